@@ -0,0 +1,184 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import app.krista.extension.authorization.AuthorizationException;
+import app.krista.ksdk.accounts.AccountManager;
+
+/**
+ * Caches whether an account exists for an email address so that repeated logins do not call
+ * {@link AccountManager#lookupAccount(String)} every time.
+ * <p>
+ * Positive results are kept for {@code positiveTtlMillis}, negative results only for {@code negativeTtlMillis} so that
+ * an account created elsewhere becomes visible quickly. Concurrent lookups for the same email share a single call to
+ * the account manager. Extensions that create accounts should call {@link #accountCreated(String)}.
+ */
+public class AccountExistenceCache {
+
+    public static final long DEFAULT_POSITIVE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Lookup lookup;
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public AccountExistenceCache(AccountManager accountManager) {
+        this(accountManager, DEFAULT_POSITIVE_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    public AccountExistenceCache(AccountManager accountManager, long positiveTtlMillis, long negativeTtlMillis) {
+        this(email -> accountManager.lookupAccount(email) != null, positiveTtlMillis, negativeTtlMillis,
+                DEFAULT_MAX_ENTRIES, System::nanoTime);
+        if (accountManager == null) {
+            throw new IllegalArgumentException("Account manager is null.");
+        }
+    }
+
+    AccountExistenceCache(Lookup lookup, long positiveTtlMillis, long negativeTtlMillis, int maxEntries,
+            LongSupplier nanoClock) {
+        this.lookup = lookup;
+        this.positiveTtlNanos = TimeUnit.MILLISECONDS.toNanos(positiveTtlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    public boolean exists(String email) throws AuthorizationException {
+        String key = normalize(email);
+        while (true) {
+            long now = nanoClock.getAsLong();
+            Entry entry = entries.get(key);
+            if (entry != null && !entry.isExpired(now)) {
+                return await(entry);
+            }
+            Entry loading = new Entry();
+            boolean owner = entry == null
+                    ? entries.putIfAbsent(key, loading) == null
+                    : entries.replace(key, entry, loading);
+            if (!owner) {
+                continue;
+            }
+            evictIfFull(now);
+            return load(key, email, loading);
+        }
+    }
+
+    public void accountCreated(String email) {
+        Entry entry = new Entry();
+        entry.complete(true, nanoClock.getAsLong() + positiveTtlNanos);
+        entries.put(normalize(email), entry);
+    }
+
+    public void invalidate(String email) {
+        entries.remove(normalize(email));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private boolean load(String key, String email, Entry loading) throws AuthorizationException {
+        boolean exists;
+        try {
+            exists = lookup.exists(email);
+        } catch (Throwable cause) {
+            // Complete on errors too, or the entry never expires and every later caller blocks on it.
+            entries.remove(key, loading);
+            loading.result.completeExceptionally(cause);
+            throw cause;
+        }
+        loading.complete(exists, nanoClock.getAsLong() + (exists ? positiveTtlNanos : negativeTtlNanos));
+        return exists;
+    }
+
+    private boolean await(Entry entry) throws AuthorizationException {
+        try {
+            return entry.result.get();
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for account lookup.", cause);
+        } catch (ExecutionException cause) {
+            if (cause.getCause() instanceof AuthorizationException) {
+                throw (AuthorizationException) cause.getCause();
+            }
+            if (cause.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) cause.getCause();
+            }
+            if (cause.getCause() instanceof Error) {
+                throw (Error) cause.getCause();
+            }
+            throw new IllegalStateException("Account lookup failed.", cause.getCause());
+        }
+    }
+
+    private void evictIfFull(long now) {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        if (entries.size() > maxEntries) {
+            entries.clear();
+        }
+    }
+
+    private static String normalize(String email) {
+        if (email == null) {
+            throw new IllegalArgumentException("Email is null.");
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    interface Lookup {
+
+        boolean exists(String email) throws AuthorizationException;
+
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private void complete(boolean exists, long expiresAt) {
+            this.expiresAt = expiresAt;
+            result.complete(exists);
+        }
+
+        private boolean isExpired(long now) {
+            return result.isDone() && now - expiresAt >= 0;
+        }
+
+    }
+
+}
@@ -20,7 +20,10 @@ package app.krista.extension.common;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import com.google.gson.annotations.JsonAdapter;
 
+@JsonAdapter(AuthenticationResponseTypeAdapter.class)
 public class AuthenticationResponse {
 
     private final String clientSessionId;
@@ -102,6 +105,34 @@ public class AuthenticationResponse {
         return kristaAccountId;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof AuthenticationResponse)) {
+            return false;
+        }
+        AuthenticationResponse that = (AuthenticationResponse) other;
+        return isWorkspaceAdmin == that.isWorkspaceAdmin
+                && isApplianceManager == that.isApplianceManager
+                && Objects.equals(clientSessionId, that.clientSessionId)
+                && Objects.equals(name, that.name)
+                && Objects.equals(avatarUrl, that.avatarUrl)
+                && Objects.equals(accountId, that.accountId)
+                && Objects.equals(kristaAccountId, that.kristaAccountId)
+                && Objects.equals(personId, that.personId)
+                && Objects.equals(roles, that.roles)
+                && Objects.equals(inboxId, that.inboxId)
+                && Objects.equals(identificationToken, that.identificationToken)
+                && Objects.equals(extras, that.extras);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(clientSessionId, accountId, personId);
+    }
+
     @Override
     public String toString() {
         return "AuthenticationResponse{" +
@@ -0,0 +1,74 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes {@link AuthenticationResponse} entities straight to the response stream through
+ * {@link AuthenticationResponseTypeAdapter}, without building the JSON document as a string first.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class AuthenticationResponseBodyWriter implements MessageBodyWriter<AuthenticationResponse> {
+
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final TypeAdapter<AuthenticationResponse> ADAPTER = GSON.getAdapter(AuthenticationResponse.class);
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return AuthenticationResponse.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(AuthenticationResponse response, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(AuthenticationResponse response, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        write(response, entityStream);
+    }
+
+    public static void write(AuthenticationResponse response, OutputStream out) throws IOException {
+        // Not closed: the container owns the entity stream.
+        JsonWriter json = GSON.newJsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        ADAPTER.write(json, response);
+        json.flush();
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streams {@link AuthenticationResponse} to and from JSON without reflection. Produces the same document as Gson's
+ * reflective adapter; only the values of {@code extras} that are not strings, numbers or booleans are delegated back
+ * to Gson.
+ */
+public class AuthenticationResponseTypeAdapter implements TypeAdapterFactory {
+
+    static final String CLIENT_SESSION_ID = "clientSessionId";
+    static final String NAME = "name";
+    static final String AVATAR_URL = "avatarUrl";
+    static final String ACCOUNT_ID = "accountId";
+    static final String KRISTA_ACCOUNT_ID = "kristaAccountId";
+    static final String PERSON_ID = "personId";
+    static final String ROLES = "roles";
+    static final String INBOX_ID = "inboxId";
+    static final String IS_WORKSPACE_ADMIN = "isWorkspaceAdmin";
+    static final String IS_APPLIANCE_MANAGER = "isApplianceManager";
+    static final String IDENTIFICATION_TOKEN = "identificationToken";
+    static final String EXTRAS = "extras";
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!AuthenticationResponse.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        return (TypeAdapter<T>) new Adapter(gson.getAdapter(Object.class));
+    }
+
+    private static final class Adapter extends TypeAdapter<AuthenticationResponse> {
+
+        private final TypeAdapter<Object> objectAdapter;
+
+        private Adapter(TypeAdapter<Object> objectAdapter) {
+            this.objectAdapter = objectAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, AuthenticationResponse response) throws IOException {
+            if (response == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name(CLIENT_SESSION_ID).value(response.getClientSessionId());
+            out.name(NAME).value(response.getName());
+            out.name(AVATAR_URL).value(response.getAvatarUrl());
+            out.name(ACCOUNT_ID).value(response.getAccountId());
+            out.name(KRISTA_ACCOUNT_ID).value(response.getKristaAccountId());
+            out.name(PERSON_ID).value(response.getPersonId());
+            out.name(ROLES);
+            if (response.getRoles() == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (String role : response.getRoles()) {
+                    out.value(role);
+                }
+                out.endArray();
+            }
+            out.name(INBOX_ID).value(response.getInboxId());
+            out.name(IS_WORKSPACE_ADMIN).value(response.isWorkspaceAdmin());
+            out.name(IS_APPLIANCE_MANAGER).value(response.isApplianceManager());
+            out.name(IDENTIFICATION_TOKEN);
+            writeMap(out, response.getIdentificationToken());
+            out.name(EXTRAS);
+            writeMap(out, response.getExtras());
+            out.endObject();
+        }
+
+        private void writeMap(JsonWriter out, Map<String, ?> map) throws IOException {
+            if (map == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (Map.Entry<String, ?> entry : map.entrySet()) {
+                out.name(entry.getKey());
+                Object value = entry.getValue();
+                if (value == null) {
+                    out.nullValue();
+                } else if (value instanceof String) {
+                    out.value((String) value);
+                } else if (value instanceof Boolean) {
+                    out.value((Boolean) value);
+                } else if (value instanceof Number) {
+                    out.value((Number) value);
+                } else {
+                    objectAdapter.write(out, value);
+                }
+            }
+            out.endObject();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public AuthenticationResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String clientSessionId = null;
+            String name = null;
+            String avatarUrl = null;
+            String accountId = null;
+            String kristaAccountId = null;
+            String personId = null;
+            List<String> roles = null;
+            String inboxId = null;
+            boolean isWorkspaceAdmin = false;
+            boolean isApplianceManager = false;
+            Map<String, String> identificationToken = null;
+            Map<String, Object> extras = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case CLIENT_SESSION_ID:
+                        clientSessionId = in.nextString();
+                        break;
+                    case NAME:
+                        name = in.nextString();
+                        break;
+                    case AVATAR_URL:
+                        avatarUrl = in.nextString();
+                        break;
+                    case ACCOUNT_ID:
+                        accountId = in.nextString();
+                        break;
+                    case KRISTA_ACCOUNT_ID:
+                        kristaAccountId = in.nextString();
+                        break;
+                    case PERSON_ID:
+                        personId = in.nextString();
+                        break;
+                    case ROLES:
+                        roles = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            roles.add(in.nextString());
+                        }
+                        in.endArray();
+                        break;
+                    case INBOX_ID:
+                        inboxId = in.nextString();
+                        break;
+                    case IS_WORKSPACE_ADMIN:
+                        isWorkspaceAdmin = in.nextBoolean();
+                        break;
+                    case IS_APPLIANCE_MANAGER:
+                        isApplianceManager = in.nextBoolean();
+                        break;
+                    case IDENTIFICATION_TOKEN:
+                        identificationToken = new LinkedHashMap<>();
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            String key = in.nextName();
+                            if (in.peek() == JsonToken.NULL) {
+                                in.nextNull();
+                                identificationToken.put(key, null);
+                            } else {
+                                identificationToken.put(key, in.nextString());
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    case EXTRAS:
+                        extras = (Map<String, Object>) objectAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new AuthenticationResponse(clientSessionId, name, avatarUrl, accountId, kristaAccountId, personId,
+                    roles, inboxId, isWorkspaceAdmin, isApplianceManager, identificationToken, extras);
+        }
+
+    }
+
+}
@@ -29,16 +29,16 @@ public class CSVUtils {
     public CSVUtils() {
     }
 
-    private static String[] getArray(TokenInfo tokenInfo) {
+    static String[] getArray(TokenInfo tokenInfo) {
         return new String[]{tokenInfo.getAccountId(),
-                tokenInfo.getInvokerId(),
-                tokenInfo.getRefreshToken(),
                 tokenInfo.getAccessToken(),
+                tokenInfo.getRefreshToken(),
+                "" + tokenInfo.getAccessTokenExpiryTime(),
                 "" + tokenInfo.getRefreshTokenExpiryTime(),
-                "" + tokenInfo.getAccessTokenExpiryTime()};
+                tokenInfo.getInvokerId()};
     }
 
-    private static TokenInfo createToken(String[] tokenInfo) {
+    static TokenInfo createToken(String[] tokenInfo) {
         if (tokenInfo == null || tokenInfo.length < 6) {
             throw new IllegalArgumentException("Invalid token information.");
         }
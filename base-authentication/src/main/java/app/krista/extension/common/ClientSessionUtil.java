@@ -22,35 +22,23 @@ import app.krista.extension.authorization.AuthorizationException;
 import app.krista.extension.request.ProtoRequest;
 import app.krista.extension.request.protos.http.HttpRequest;
 import app.krista.ksdk.authentication.SessionManager;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 public class ClientSessionUtil {
 
-    private final static Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
-    @SuppressWarnings({"unchecked", "deprecation"})
+    @SuppressWarnings("deprecation")
     public static String getAuthenticatedAccountId(SessionManager sessionManager, ProtoRequest request)
             throws AuthorizationException, ExecutionException, InterruptedException {
         if (sessionManager == null || !(request instanceof HttpRequest)) {
             return null;
         }
         String requestCtx = ((HttpRequest) (request)).getHeaders().get("X-Krista-Context");
-        if (requestCtx == null) {
-            return null;
-        }
-        Map<String, ?> map =
-                (Map<String, ?>) GSON.fromJson(URLDecoder.decode(requestCtx, StandardCharsets.UTF_8), Map.class);
-        Object clientSessionId = map.get("clientSessionId");
+        String clientSessionId = RequestContextDecoder.getClientSessionId(requestCtx);
         if (clientSessionId == null) {
             return null;
         }
-        return sessionManager.lookupAccountId((String) clientSessionId);
+        return sessionManager.lookupAccountId(clientSessionId);
     }
 
 }
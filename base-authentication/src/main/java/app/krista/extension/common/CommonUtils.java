@@ -21,8 +21,6 @@ package app.krista.extension.common;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import app.krista.extension.authorization.AuthorizationException;
 import app.krista.ksdk.accounts.AccountManager;
 import app.krista.ksdk.authentication.AuthenticationSettings;
@@ -30,49 +28,11 @@ import app.krista.ksdk.authentication.AuthenticationSettings;
 public final class CommonUtils {
 
     public static boolean isValidDomain(String domainName) {
-
-        // If the string is empty
-        // return false
-        if (domainName == null || domainName.isEmpty()) {
-            return false;
-        }
-
-        // Regex to check valid domain name.
-        String regex = "^((?!-)[A-Za-z0-9-]"
-                + "{1,63}(?<!-)\\.)"
-                + "+[A-Za-z]{2,6}";
-
-        // Compile the ReGex
-        Pattern p
-                = Pattern.compile(regex);
-
-        // Pattern class contains matcher()
-        // method to find the matching
-        // between the given string and
-        // regular expression.
-        Matcher m = p.matcher(domainName);
-
-        // Return if the string
-        // matched the ReGex
-        return m.matches();
+        return EmailSyntax.isValidDomain(domainName);
     }
 
     public static boolean isEmailDomainPresentInSupportedWorkspaceDomains(String email, String allDomains) {
-        if (email == null || email.isBlank()) {
-            return false;
-        }
-        if (allDomains == null || allDomains.isEmpty() || allDomains.equalsIgnoreCase("All")) {
-            return true;
-        } else {
-            String[] splitDomains = allDomains.split(",");
-            String[] splitEmail = email.split("@");
-            for (String domain : splitDomains) {
-                if (domain.contains(splitEmail[1])) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return DomainMatcher.of(allDomains).matchesEmail(email);
     }
 
     public static void addSupportedDomainsToWorkspace(String email, List<String> supportedDomainsForWorkspace,
@@ -86,6 +46,12 @@ public final class CommonUtils {
         }
     }
 
+    public static void addSupportedDomainsToWorkspace(String email, SupportedDomainRegistrar supportedDomainRegistrar) {
+        if (email != null && supportedDomainRegistrar != null) {
+            supportedDomainRegistrar.register(email);
+        }
+    }
+
     public static String getDate() {
         DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss Z");
         dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
@@ -93,16 +59,7 @@ public final class CommonUtils {
     }
 
     public static boolean isValidEmail(String email) {
-        //https://www.geeksforgeeks.org/check-email-address-valid-not-java/
-        if (email == null) {
-            return false;
-        }
-        String emailRegex = "^[a-zA-Z0-9_+&*-]+(?:\\." +
-                "[a-zA-Z0-9_+&*-]+)*@" +
-                "(?:[a-zA-Z0-9-]+\\.)+[a-z" +
-                "A-Z]{2,7}$";
-        Pattern pat = Pattern.compile(emailRegex);
-        return pat.matcher(email).matches();
+        return EmailSyntax.isValidEmail(email);
     }
 
     public static void validateDomains(Object supportedDomains) {
@@ -119,7 +76,7 @@ public final class CommonUtils {
         }
         for (String domain : domains) {
             String trimmedDomain = domain.trim();
-            if (!trimmedDomain.equalsIgnoreCase("all") && !CommonUtils.isValidDomain(trimmedDomain)) {
+            if (!trimmedDomain.equalsIgnoreCase("all") && !EmailSyntax.isValidDomainPattern(trimmedDomain)) {
                 throw new IllegalArgumentException("Invalid domain name:" + domain);
             }
         }
@@ -166,6 +123,18 @@ public final class CommonUtils {
 
     public static void validateAutoUserCreation(String workspaceId, String email, boolean allowAutoUserCreationBool,
             String supportedDomain, AccountManager accountManager) throws AuthorizationException {
+        doValidateAutoUserCreation(workspaceId, email, allowAutoUserCreationBool, supportedDomain,
+                accountEmail -> accountManager.lookupAccount(accountEmail) != null);
+    }
+
+    public static void validateAutoUserCreation(String workspaceId, String email, boolean allowAutoUserCreationBool,
+            String supportedDomain, AccountExistenceCache accountExistenceCache) throws AuthorizationException {
+        doValidateAutoUserCreation(workspaceId, email, allowAutoUserCreationBool, supportedDomain,
+                accountExistenceCache::exists);
+    }
+
+    private static void doValidateAutoUserCreation(String workspaceId, String email,
+            boolean allowAutoUserCreationBool, String supportedDomain, AccountExistenceCache.Lookup accountLookup) throws AuthorizationException {
         if (workspaceId == null || workspaceId.isEmpty()) {
             throw new IllegalArgumentException("WorkspaceId not found.");
         }
@@ -181,7 +150,7 @@ public final class CommonUtils {
                                 " is not supported in workspace.");
             }
 
-            if (accountManager.lookupAccount(email) == null) {
+            if (!accountLookup.exists(email)) {
                 throw new IllegalArgumentException(
                         "ALLOW_AUTO_PERSON_CREATION is not enabled. Can't add new user with email :" + email);
             }
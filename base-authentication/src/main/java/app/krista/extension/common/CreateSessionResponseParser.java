@@ -21,42 +21,50 @@ package app.krista.extension.common;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 
+/**
+ * Builds an {@link AuthenticationResponse} from a create-client-session response in a single walk over the already
+ * deserialized structure. Nested values may be {@link Map}s/{@link List}s or Gson trees; any other object is turned
+ * into a Gson tree once instead of being serialized to a JSON string and parsed back.
+ */
 public class CreateSessionResponseParser {
 
     private final static Gson GSON_JSON_MAPPER = new GsonBuilder().create();
+    private final static String[] REQUIRED_RESPONSE_KEYS = {"clientSessionId", "person", "account"};
+    private final static String[] REQUIRED_ACCOUNT_KEYS = {"personId", "localId", "roles", "inboxId"};
 
     public AuthenticationResponse parse(Map<String, Object> createResponse, String email, String extraResponse) {
         validateCreateResponse(createResponse);
-        Object accountObj = createResponse.get("account");
-        Object personObj = createResponse.get("person");
-        Map<?, ?> accountMap = GSON_JSON_MAPPER.fromJson(GSON_JSON_MAPPER.toJson(accountObj), Map.class);
-        validateAccount(accountMap);
-        String clientSessionId = (String) createResponse.get("clientSessionId");
-        String personId = (String) ((Map<?, ?>) accountMap.get("personId")).get("id");
-        String name = (String) accountMap.get("name");
-        String accountId = (String) ((Map<?, ?>) accountMap.get("localId")).get("id");
-        List<String> roles = getRoles(accountMap);
-        String inboxId = (String) ((Map<?, ?>) accountMap.get("inboxId")).get("id");
-        boolean isWorkspaceAdmin = (Boolean) accountMap.get("isWorkspaceAdmin");
-        boolean isApplianceManager = (Boolean) accountMap.get("isApplianceManager");
-        String iconUrl = getIconUrl(personObj);
-        String kristaAccountId = (String) createResponse.get("kristaAccountId");
+        Object account = toTree(createResponse.get("account"));
+        validateAccount(account);
+        String clientSessionId = asString(createResponse.get("clientSessionId"));
+        String personId = asString(field(toTree(field(account, "personId")), "id"));
+        String name = asString(field(account, "name"));
+        String accountId = asString(field(toTree(field(account, "localId")), "id"));
+        List<String> roles = getRoles(field(account, "roles"));
+        String inboxId = asString(field(toTree(field(account, "inboxId")), "id"));
+        boolean isWorkspaceAdmin = asBoolean(field(account, "isWorkspaceAdmin"));
+        boolean isApplianceManager = asBoolean(field(account, "isApplianceManager"));
+        String iconUrl = getIconUrl(toTree(createResponse.get("person")));
+        String kristaAccountId = asString(createResponse.get("kristaAccountId"));
         return new AuthenticationResponse(clientSessionId, name, iconUrl, accountId, kristaAccountId, personId, roles,
                 inboxId,
                 isWorkspaceAdmin, isApplianceManager, Map.of("email", email), Map.of("auth", extraResponse));
     }
 
-    private void validateAccount(Map<?, ?> accountMap) {
-        if (accountMap == null || accountMap.isEmpty()) {
+    private void validateAccount(Object account) {
+        if (isEmpty(account)) {
             throw new IllegalArgumentException("Account information is empty.");
         }
         List<String> missingKeys = new ArrayList<>();
-        for (String requiredKey : Set.of("personId", "localId", "roles", "inboxId")) {
-            if (!accountMap.containsKey(requiredKey)) {
+        for (String requiredKey : REQUIRED_ACCOUNT_KEYS) {
+            if (!hasField(account, requiredKey)) {
                 missingKeys.add(requiredKey);
             }
         }
@@ -70,7 +78,7 @@ public class CreateSessionResponseParser {
             throw new IllegalArgumentException("Create client session response is null.");
         }
         List<String> missingKeys = new ArrayList<>();
-        for (String requiredKey : Set.of("clientSessionId", "person", "account")) {
+        for (String requiredKey : REQUIRED_RESPONSE_KEYS) {
             if (!createResponse.containsKey(requiredKey)) {
                 missingKeys.add(requiredKey);
             }
@@ -80,24 +88,73 @@ public class CreateSessionResponseParser {
         }
     }
 
-    private List<String> getRoles(Map<?, ?> accountMap) {
-        List<?> roles = (List<?>) accountMap.get("roles");
+    private List<String> getRoles(Object rolesObj) {
+        Object roles = toTree(rolesObj);
         List<String> rolesString = new ArrayList<>();
-        for (Object object : roles) {
-            Map<?, ?> roleMap = GSON_JSON_MAPPER.fromJson(GSON_JSON_MAPPER.toJson(object), Map.class);
-            Object id = roleMap.get("id");
-            rolesString.add((String) id);
+        if (roles instanceof List) {
+            for (Object role : (List<?>) roles) {
+                rolesString.add(asString(field(toTree(role), "id")));
+            }
+        } else if (roles instanceof JsonArray) {
+            for (JsonElement role : (JsonArray) roles) {
+                rolesString.add(asString(field(role, "id")));
+            }
         }
         return rolesString;
     }
 
-    private String getIconUrl(Object personObj) {
-        Map<?, ?> personMap = GSON_JSON_MAPPER.fromJson(GSON_JSON_MAPPER.toJson(personObj), Map.class);
-        String iconUrl = "";
-        if (personMap != null) {
-            iconUrl = personMap.get("icon") == null ? "" : (String) ((Map<?, ?>) personMap.get("icon")).get("uri");
+    private String getIconUrl(Object person) {
+        Object icon = toTree(field(person, "icon"));
+        return icon == null ? "" : asString(field(icon, "uri"));
+    }
+
+    private static Object toTree(Object value) {
+        if (value == null || value instanceof Map || value instanceof List || value instanceof JsonElement
+                || value instanceof String || value instanceof Boolean || value instanceof Number) {
+            return value instanceof JsonElement && ((JsonElement) value).isJsonNull() ? null : value;
+        }
+        return GSON_JSON_MAPPER.toJsonTree(value);
+    }
+
+    private static boolean isEmpty(Object node) {
+        if (node instanceof Map) {
+            return ((Map<?, ?>) node).isEmpty();
+        }
+        return !(node instanceof JsonObject) || ((JsonObject) node).size() == 0;
+    }
+
+    private static boolean hasField(Object node, String key) {
+        if (node instanceof Map) {
+            return ((Map<?, ?>) node).containsKey(key);
+        }
+        return node instanceof JsonObject && ((JsonObject) node).has(key);
+    }
+
+    private static Object field(Object node, String key) {
+        Object value = null;
+        if (node instanceof Map) {
+            value = ((Map<?, ?>) node).get(key);
+        } else if (node instanceof JsonObject) {
+            value = ((JsonObject) node).get(key);
+        }
+        return value instanceof JsonElement && ((JsonElement) value).isJsonNull() ? null : value;
+    }
+
+    private static String asString(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof JsonPrimitive) {
+            return ((JsonPrimitive) value).getAsString();
+        }
+        throw new IllegalArgumentException("Expected a string but found: " + value);
+    }
+
+    private static boolean asBoolean(Object value) {
+        if (value instanceof JsonPrimitive) {
+            return ((JsonPrimitive) value).getAsBoolean();
         }
-        return iconUrl;
+        return Boolean.TRUE.equals(value);
     }
 
 }
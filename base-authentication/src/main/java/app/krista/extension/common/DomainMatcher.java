@@ -0,0 +1,157 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches email domains against a comma separated supported-domains setting.
+ * <p>
+ * Plain entries match the domain exactly, entries of the form {@code *.example.com} match any subdomain of
+ * {@code example.com}, and an {@code All} entry (or an empty setting) matches every domain. Matching is case
+ * insensitive. Matchers are immutable and cached per settings string, so repeated checks against the same setting
+ * only pay for the lookup.
+ */
+public final class DomainMatcher {
+
+    private static final int MAX_CACHED_MATCHERS = 64;
+    private static final String ALL = "all";
+    private static final String WILDCARD_PREFIX = "*.";
+    private static final Map<String, DomainMatcher> CACHE = new ConcurrentHashMap<>();
+    private static final DomainMatcher MATCH_ALL = new DomainMatcher(true, Set.of(), new Node());
+
+    private final boolean matchAll;
+    private final Set<String> exactDomains;
+    private final Node wildcardRoot;
+
+    private DomainMatcher(boolean matchAll, Set<String> exactDomains, Node wildcardRoot) {
+        this.matchAll = matchAll;
+        this.exactDomains = exactDomains;
+        this.wildcardRoot = wildcardRoot;
+    }
+
+    public static DomainMatcher of(String supportedDomains) {
+        if (supportedDomains == null || supportedDomains.isBlank()) {
+            return MATCH_ALL;
+        }
+        DomainMatcher matcher = CACHE.get(supportedDomains);
+        if (matcher == null) {
+            matcher = compile(supportedDomains);
+            if (CACHE.size() >= MAX_CACHED_MATCHERS) {
+                CACHE.clear();
+            }
+            CACHE.put(supportedDomains, matcher);
+        }
+        return matcher;
+    }
+
+    static DomainMatcher compile(String supportedDomains) {
+        Set<String> exactDomains = new HashSet<>();
+        Node wildcardRoot = new Node();
+        for (String entry : supportedDomains.split(",")) {
+            String domain = normalize(entry);
+            if (domain.isEmpty()) {
+                continue;
+            }
+            if (domain.equals(ALL)) {
+                return MATCH_ALL;
+            }
+            if (domain.startsWith(WILDCARD_PREFIX)) {
+                wildcardRoot.insert(domain.substring(WILDCARD_PREFIX.length()));
+            } else {
+                exactDomains.add(domain);
+            }
+        }
+        return new DomainMatcher(false, exactDomains, wildcardRoot);
+    }
+
+    public boolean matchesAll() {
+        return matchAll;
+    }
+
+    public boolean matches(String domain) {
+        if (matchAll) {
+            return true;
+        }
+        if (domain == null || domain.isEmpty()) {
+            return false;
+        }
+        String normalized = normalize(domain);
+        return exactDomains.contains(normalized) || wildcardRoot.matchesSubdomain(normalized);
+    }
+
+    public boolean matchesEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return false;
+        }
+        if (matchAll) {
+            return true;
+        }
+        int at = email.lastIndexOf('@');
+        return at >= 0 && matches(email.substring(at + 1));
+    }
+
+    private static String normalize(String domain) {
+        return domain.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Trie over domain labels in reverse order, e.g. {@code *.mail.example.com} is stored as com → example → mail.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean wildcard;
+
+        private void insert(String domain) {
+            Node node = this;
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                node = node.children.computeIfAbsent(domain.substring(start, end), label -> new Node());
+                end = start - 1;
+            }
+            node.wildcard = true;
+        }
+
+        private boolean matchesSubdomain(String domain) {
+            Node node = this;
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                node = node.children.get(domain.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                end = start - 1;
+                if (node.wildcard && end > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
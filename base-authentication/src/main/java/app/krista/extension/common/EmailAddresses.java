@@ -18,41 +18,60 @@
 
 package app.krista.extension.common;
 
-import java.util.regex.Pattern;
+import java.util.Locale;
 
 public final class EmailAddresses {
 
     public static final String DEFAULT_DOMAIN = "kristasoft.com";
-    private static final Pattern EMAIL_ADDRESS_PATTERN =
-            Pattern.compile("^[a-z0-9_+&*-]+(?:\\.[a-z0-9_+&*-]+)*@(?:[a-z0-9-]+\\.)+[a-z]{2,7}$");
 
     private EmailAddresses() {
     }
 
     public static boolean isValidEmailAddress(String emailAddress) {
-        if (emailAddress == null || emailAddress.isBlank()) {
+        if (emailAddress == null) {
             return false;
         }
-        return EMAIL_ADDRESS_PATTERN.matcher(normalize(emailAddress)).matches();
+        int start = EmailSyntax.stripStart(emailAddress);
+        return EmailSyntax.parseEmail(emailAddress, start, EmailSyntax.stripEnd(emailAddress, start))
+                != EmailSyntax.INVALID;
     }
 
-    private static String normalize(String emailAddress) {
-        return emailAddress.strip().toLowerCase();
+    private static String normalize(String emailAddress, int from, int to) {
+        return emailAddress.substring(from, to).toLowerCase(Locale.ROOT);
     }
 
     public static String normalizeEmailAddress(String emailAddress) {
-        if (!isValidEmailAddress(emailAddress)) {
-            throw new IllegalArgumentException("Email address is not valid");
-        }
-        return normalize(emailAddress);
+        int start = stripStart(emailAddress);
+        int end = EmailSyntax.stripEnd(emailAddress, start);
+        requireAt(emailAddress, start, end);
+        return normalize(emailAddress, start, end);
     }
 
     public static String getDomainName(String emailAddress) {
-        return normalizeEmailAddress(emailAddress).split("@")[1];
+        int start = stripStart(emailAddress);
+        int end = EmailSyntax.stripEnd(emailAddress, start);
+        return normalize(emailAddress, requireAt(emailAddress, start, end) + 1, end);
     }
 
     public static String getLocalPart(String emailAddress) {
-        return normalizeEmailAddress(emailAddress).split("@")[0];
+        int start = stripStart(emailAddress);
+        int end = EmailSyntax.stripEnd(emailAddress, start);
+        return normalize(emailAddress, start, requireAt(emailAddress, start, end));
+    }
+
+    private static int stripStart(String emailAddress) {
+        if (emailAddress == null) {
+            throw new IllegalArgumentException("Email address is not valid");
+        }
+        return EmailSyntax.stripStart(emailAddress);
+    }
+
+    private static int requireAt(String emailAddress, int from, int to) {
+        int at = EmailSyntax.parseEmail(emailAddress, from, to);
+        if (at == EmailSyntax.INVALID) {
+            throw new IllegalArgumentException("Email address is not valid");
+        }
+        return at;
     }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+/**
+ * Linear-time, allocation-free validation of email addresses and domain names.
+ * <p>
+ * Grammar (ASCII, case insensitive):
+ * <pre>
+ * email     = local-part "@" domain
+ * local     = atom *("." atom)             atom  = 1*(ALPHA / DIGIT / "_" / "+" / "&amp;" / "*" / "-")
+ * domain    = 1*(label ".") tld            label = 1*63(ALPHA / DIGIT / "-"), not starting or ending with "-"
+ * tld       = 2*7ALPHA
+ * </pre>
+ * Results are reported as offsets into the input so that callers only allocate when they need the parts.
+ */
+public final class EmailSyntax {
+
+    public static final int INVALID = -1;
+
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MIN_TLD_LENGTH = 2;
+    private static final int MAX_TLD_LENGTH = 7;
+
+    private EmailSyntax() {
+    }
+
+    public static boolean isValidEmail(CharSequence value) {
+        return value != null && parseEmail(value, 0, value.length()) != INVALID;
+    }
+
+    public static boolean isValidDomain(CharSequence value) {
+        return value != null && isValidDomain(value, 0, value.length());
+    }
+
+    /**
+     * Validates a supported-domains entry: a domain, optionally preceded by a {@code *.} label that matches any of
+     * its subdomains (see {@link DomainMatcher}).
+     */
+    public static boolean isValidDomainPattern(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        int from = value.length() > 2 && value.charAt(0) == '*' && value.charAt(1) == '.' ? 2 : 0;
+        return isValidDomain(value, from, value.length());
+    }
+
+    /**
+     * Validates {@code value[from, to)} as an email address.
+     *
+     * @return the index of the {@code @} separating the local part {@code [from, at)} from the domain
+     * {@code (at, to)}, or {@link #INVALID}
+     */
+    public static int parseEmail(CharSequence value, int from, int to) {
+        int at = INVALID;
+        for (int index = from; index < to; index++) {
+            if (value.charAt(index) == '@') {
+                at = index;
+                break;
+            }
+        }
+        if (at == INVALID || !isValidLocalPart(value, from, at) || !isValidDomain(value, at + 1, to)) {
+            return INVALID;
+        }
+        return at;
+    }
+
+    public static boolean isValidLocalPart(CharSequence value, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        boolean atomStart = true;
+        for (int index = from; index < to; index++) {
+            char c = value.charAt(index);
+            if (c == '.') {
+                if (atomStart) {
+                    return false;
+                }
+                atomStart = true;
+            } else if (isLocalPartChar(c)) {
+                atomStart = false;
+            } else {
+                return false;
+            }
+        }
+        return !atomStart;
+    }
+
+    public static boolean isValidDomain(CharSequence value, int from, int to) {
+        int labelStart = from;
+        int labels = 0;
+        for (int index = from; index < to; index++) {
+            char c = value.charAt(index);
+            if (c == '.') {
+                if (!isValidLabel(value, labelStart, index)) {
+                    return false;
+                }
+                labels++;
+                labelStart = index + 1;
+            } else if (!isLetterOrDigit(c) && c != '-') {
+                return false;
+            }
+        }
+        return labels > 0 && isValidTld(value, labelStart, to);
+    }
+
+    /**
+     * Returns the index of the first non-whitespace character in {@code value}, or its length when it is blank.
+     */
+    public static int stripStart(CharSequence value) {
+        int index = 0;
+        while (index < value.length() && Character.isWhitespace(value.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index just past the last non-whitespace character in {@code value} at or after {@code from}.
+     */
+    public static int stripEnd(CharSequence value, int from) {
+        int index = value.length();
+        while (index > from && Character.isWhitespace(value.charAt(index - 1))) {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean isValidLabel(CharSequence value, int from, int to) {
+        int length = to - from;
+        return length > 0 && length <= MAX_LABEL_LENGTH
+                && value.charAt(from) != '-' && value.charAt(to - 1) != '-';
+    }
+
+    private static boolean isValidTld(CharSequence value, int from, int to) {
+        int length = to - from;
+        if (length < MIN_TLD_LENGTH || length > MAX_TLD_LENGTH) {
+            return false;
+        }
+        for (int index = from; index < to; index++) {
+            if (!isLetter(value.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLocalPartChar(char c) {
+        return isLetterOrDigit(c) || c == '_' || c == '+' || c == '&' || c == '*' || c == '-';
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+}
@@ -18,6 +18,10 @@
 
 package app.krista.extension.common;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
@@ -26,7 +30,15 @@ import javax.ws.rs.ext.ExceptionMapper;
 
 public class KristaExceptionMapper implements ExceptionMapper<Exception> {
 
+    private static final String DEFAULT_MESSAGE = "Authentication failure";
+    private static final String NOT_FOUND_MESSAGE = "Page not found.";
+    private static final int STACK_TRACES_PER_SECOND = 10;
+    private static final RateLimitedLogger ERROR_LOGGER =
+            new RateLimitedLogger(System.getLogger(KristaExceptionMapper.class.getName()), STACK_TRACES_PER_SECOND);
+
     private final String extensionType;
+    private final Map<Integer, ErrorTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
 
     public KristaExceptionMapper(String extensionType) {
         this.extensionType = extensionType;
@@ -34,21 +46,52 @@ public class KristaExceptionMapper implements ExceptionMapper<Exception> {
 
     @Override
     public Response toResponse(Exception exception) {
-        String message = exception.getMessage() == null ? "Authentication failure" : exception.getMessage();
-        exception.printStackTrace();
-        int statusCode = 500;
-        if (exception instanceof NotFoundException) {
-            statusCode = 404;
-            return Response.status(statusCode).entity("Page not found.").build();
+        int statusCode = classify(exception);
+        statusCounts.computeIfAbsent(statusCode, status -> new LongAdder()).increment();
+        if (statusCode == 404 && exception instanceof NotFoundException) {
+            return Response.status(statusCode).entity(NOT_FOUND_MESSAGE).build();
         }
-        if (exception instanceof IllegalArgumentException) {
-            statusCode = 400;
+        if (statusCode >= 500) {
+            ERROR_LOGGER.error(extensionType + " request failed with status " + statusCode, exception);
         }
+        ErrorTemplate template = templates.computeIfAbsent(statusCode, ErrorTemplate::new);
+        KristaError error = exception.getMessage() == null
+                ? template.defaultError
+                : new KristaError(exception.getMessage(), template.errorCode);
+        return Response.status(statusCode).type(MediaType.APPLICATION_JSON).entity(error).build();
+    }
+
+    public long getCount(int statusCode) {
+        LongAdder count = statusCounts.get(statusCode);
+        return count == null ? 0 : count.sum();
+    }
+
+    public Map<Integer, Long> getCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    static int classify(Exception exception) {
         if (exception instanceof WebApplicationException) {
-            statusCode = ((WebApplicationException) exception).getResponse().getStatus();
+            return ((WebApplicationException) exception).getResponse().getStatus();
         }
-        return Response.status(statusCode).type(MediaType.APPLICATION_JSON)
-                .entity(new KristaError(message, extensionType + "- " + statusCode)).build();
+        if (exception instanceof IllegalArgumentException) {
+            return 400;
+        }
+        return 500;
+    }
+
+    private final class ErrorTemplate {
+
+        private final String errorCode;
+        private final KristaError defaultError;
+
+        private ErrorTemplate(int statusCode) {
+            this.errorCode = extensionType + "- " + statusCode;
+            this.defaultError = new KristaError(DEFAULT_MESSAGE, errorCode);
+        }
+
     }
 
 }
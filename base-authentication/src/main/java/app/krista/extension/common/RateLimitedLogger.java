@@ -0,0 +1,107 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs throwables from a background thread, at most {@code permitsPerSecond} per second. Records that exceed the
+ * rate or do not fit in the queue are dropped and counted instead of blocking the caller.
+ */
+final class RateLimitedLogger {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final System.Logger logger;
+    private final int permitsPerSecond;
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    RateLimitedLogger(System.Logger logger, int permitsPerSecond) {
+        this.logger = logger;
+        this.permitsPerSecond = permitsPerSecond;
+        Thread writer = new Thread(this::drain, logger.getName() + "-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void error(String message, Throwable cause) {
+        if (!tryAcquire(System.nanoTime()) || !queue.offer(new Record(message, cause))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Packs the current one-second window and the permits used in it into a single long so that admission is a
+     * lock-free compare-and-set.
+     */
+    private boolean tryAcquire(long now) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(now);
+        while (true) {
+            long current = window.get();
+            long currentSecond = current >>> 16;
+            long used = current & 0xFFFF;
+            long next;
+            if (currentSecond != (second & 0xFFFF_FFFF_FFFFL)) {
+                next = (second << 16) | 1;
+            } else if (used < permitsPerSecond) {
+                next = current + 1;
+            } else {
+                return false;
+            }
+            if (window.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                Record record = queue.take();
+                logger.log(System.Logger.Level.ERROR, record.message, record.cause);
+            } catch (InterruptedException cause) {
+                return;
+            } catch (RuntimeException ignored) {
+                // A failing logging backend must not kill the writer thread.
+            }
+        }
+    }
+
+    private static final class Record {
+
+        private final String message;
+        private final Throwable cause;
+
+        private Record(String message, Throwable cause) {
+            this.message = message;
+            this.cause = cause;
+        }
+
+    }
+
+}
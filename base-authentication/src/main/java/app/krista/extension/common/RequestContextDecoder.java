@@ -0,0 +1,104 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Decodes the URL-encoded JSON {@code X-Krista-Context} value sent by Krista clients.
+ * <p>
+ * Only the fields that are needed are extracted, by streaming over the JSON instead of building a tree. A client
+ * sends the same context on every request, so decoded values are memoized per raw header in a small bounded cache.
+ */
+public final class RequestContextDecoder {
+
+    public static final String CLIENT_SESSION_ID = "clientSessionId";
+
+    private static final int MAX_CACHED_CONTEXTS = 4096;
+    private static final int MAX_CACHEABLE_LENGTH = 4096;
+    private static final String ABSENT = "";
+    private static final Map<String, String> CLIENT_SESSION_IDS = new ConcurrentHashMap<>();
+
+    private RequestContextDecoder() {
+    }
+
+    /**
+     * Returns the client session id carried by an encoded request context, or {@code null} when the context is
+     * missing, malformed or has no client session id.
+     */
+    public static String getClientSessionId(String encodedRequestContext) {
+        if (encodedRequestContext == null || encodedRequestContext.isBlank()) {
+            return null;
+        }
+        String clientSessionId = CLIENT_SESSION_IDS.get(encodedRequestContext);
+        if (clientSessionId == null) {
+            clientSessionId = decodeClientSessionId(encodedRequestContext);
+            if (encodedRequestContext.length() <= MAX_CACHEABLE_LENGTH) {
+                if (CLIENT_SESSION_IDS.size() >= MAX_CACHED_CONTEXTS) {
+                    CLIENT_SESSION_IDS.clear();
+                }
+                CLIENT_SESSION_IDS.put(encodedRequestContext, clientSessionId);
+            }
+        }
+        return clientSessionId.isEmpty() ? null : clientSessionId;
+    }
+
+    static void clearCache() {
+        CLIENT_SESSION_IDS.clear();
+    }
+
+    private static String decodeClientSessionId(String encodedRequestContext) {
+        try (JsonReader reader = new JsonReader(new StringReader(urlDecode(encodedRequestContext)))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return ABSENT;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!CLIENT_SESSION_ID.equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                JsonToken token = reader.peek();
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    return reader.nextString();
+                }
+                return ABSENT;
+            }
+            return ABSENT;
+        } catch (IOException | JsonParseException | IllegalArgumentException | IllegalStateException cause) {
+            return ABSENT;
+        }
+    }
+
+    private static String urlDecode(String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+}
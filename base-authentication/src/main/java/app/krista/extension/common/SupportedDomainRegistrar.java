@@ -0,0 +1,191 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import app.krista.extension.authorization.AuthorizationException;
+import app.krista.ksdk.authentication.AuthenticationSettings;
+
+/**
+ * Registers the email domains of logging-in users as supported workspace domains without blocking the login.
+ * <p>
+ * Each domain is queued at most once; queued domains are sent to
+ * {@link AuthenticationSettings#addSupportedDomains} in a single comma separated batch, either every
+ * {@code flushIntervalMillis} or as soon as {@code batchSize} domains are waiting. Domains whose registration fails
+ * are forgotten so that a later login retries them.
+ */
+public class SupportedDomainRegistrar implements AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2_000;
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final DomainSink domainSink;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+    private final Set<String> seenDomains = ConcurrentHashMap.newKeySet();
+    private final Queue<String> pendingDomains = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong registeredCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public SupportedDomainRegistrar(AuthenticationSettings authenticationSettings,
+            Collection<String> supportedDomainsForWorkspace) {
+        this(authenticationSettings, supportedDomainsForWorkspace, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    public SupportedDomainRegistrar(AuthenticationSettings authenticationSettings,
+            Collection<String> supportedDomainsForWorkspace, long flushIntervalMillis, int batchSize) {
+        this((DomainSink) requireSettings(authenticationSettings)::addSupportedDomains,
+                supportedDomainsForWorkspace, flushIntervalMillis, batchSize);
+    }
+
+    SupportedDomainRegistrar(DomainSink domainSink, Collection<String> supportedDomainsForWorkspace,
+            long flushIntervalMillis, int batchSize) {
+        if (flushIntervalMillis <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Flush interval and batch size must be positive.");
+        }
+        this.domainSink = domainSink;
+        this.batchSize = batchSize;
+        if (supportedDomainsForWorkspace != null) {
+            for (String domain : supportedDomainsForWorkspace) {
+                if (domain != null) {
+                    seenDomains.add(normalize(domain));
+                }
+            }
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "supported-domain-registrar");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the domain of {@code email} for registration unless it is already known. Never blocks on
+     * {@link AuthenticationSettings}.
+     */
+    public void register(String email) {
+        if (email == null) {
+            return;
+        }
+        int at = email.lastIndexOf('@');
+        if (at < 0 || at == email.length() - 1) {
+            return;
+        }
+        String domain = normalize(email.substring(at + 1));
+        if (!seenDomains.add(domain)) {
+            return;
+        }
+        pendingDomains.add(domain);
+        if (pendingCount.incrementAndGet() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RuntimeException rejected) {
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    public boolean isKnown(String domain) {
+        return domain != null && seenDomains.contains(normalize(domain));
+    }
+
+    public long getRegisteredCount() {
+        return registeredCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Sends every queued domain to {@link AuthenticationSettings}, {@code batchSize} domains per call.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        List<String> batch = new ArrayList<>(batchSize);
+        String domain;
+        while ((domain = pendingDomains.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(domain);
+            if (batch.size() == batchSize) {
+                send(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<String> batch) {
+        try {
+            domainSink.addSupportedDomains(String.join(",", batch));
+            registeredCount.addAndGet(batch.size());
+        } catch (AuthorizationException | RuntimeException cause) {
+            failedCount.addAndGet(batch.size());
+            batch.forEach(seenDomains::remove);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private static AuthenticationSettings requireSettings(AuthenticationSettings authenticationSettings) {
+        if (authenticationSettings == null) {
+            throw new IllegalArgumentException("Authentication settings are null.");
+        }
+        return authenticationSettings;
+    }
+
+    private static String normalize(String domain) {
+        return domain.trim().toLowerCase(Locale.ROOT);
+    }
+
+    interface DomainSink {
+
+        void addSupportedDomains(String domains) throws AuthorizationException;
+
+    }
+
+}
@@ -0,0 +1,548 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+
+/**
+ * Streams {@link TokenInfo} records in and out of CSV or binary token files.
+ * <p>
+ * Rows are read sequentially in chunks and each chunk is parsed and validated on a fork/join pool while the next
+ * chunk is being read, so at most two chunks are held in memory regardless of the input size. Parsed tokens and
+ * per-row errors are handed to the caller's consumers on the calling thread, in input order.
+ */
+public class TokenBulkTransfer {
+
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final int PARSE_THRESHOLD = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BINARY_MAGIC = 0x4B544B31;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public TokenBulkTransfer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public TokenBulkTransfer(ForkJoinPool pool, int chunkSize) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Fork/join pool is null.");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports every token file under {@code source}, which may be a single file or a directory of files. Rows that
+     * fail to parse are reported to {@code errorConsumer} and the import carries on with the next row.
+     */
+    public Summary importTokens(Path source, Consumer<TokenInfo> tokenConsumer, Consumer<RowError> errorConsumer)
+            throws IOException {
+        if (source == null || tokenConsumer == null || errorConsumer == null) {
+            throw new IllegalArgumentException("Source and consumers are required.");
+        }
+        Importer importer = new Importer(tokenConsumer, errorConsumer);
+        if (Files.isDirectory(source)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(source,
+                    file -> Files.isRegularFile(file) && Format.fromFileName(file) != null)) {
+                for (Path file : files) {
+                    importer.readFile(file);
+                }
+            }
+        } else {
+            importer.readFile(source);
+        }
+        return importer.finish();
+    }
+
+    public long exportTokens(Iterator<TokenInfo> tokens, Path target) throws IOException {
+        Format format = Format.fromFileName(target);
+        return exportTokens(tokens, target, format == null ? Format.CSV : format);
+    }
+
+    public long exportTokens(Iterator<TokenInfo> tokens, Path target, Format format) throws IOException {
+        if (tokens == null || target == null || format == null) {
+            throw new IllegalArgumentException("Tokens, target and format are required.");
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return format == Format.CSV ? writeCsv(tokens, channel) : writeBinary(tokens, channel);
+        }
+    }
+
+    private static long writeCsv(Iterator<TokenInfo> tokens, FileChannel channel) throws IOException {
+        long count = 0;
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        CSVWriter csvWriter = new CSVWriter(writer);
+        while (tokens.hasNext()) {
+            csvWriter.writeNext(CSVUtils.getArray(tokens.next()), false);
+            count++;
+        }
+        csvWriter.flush();
+        return count;
+    }
+
+    private static long writeBinary(Iterator<TokenInfo> tokens, FileChannel channel) throws IOException {
+        long count = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.putInt(BINARY_MAGIC);
+        while (tokens.hasNext()) {
+            byte[] record = encode(tokens.next());
+            if (buffer.remaining() < Integer.BYTES + record.length) {
+                drain(buffer, channel);
+            }
+            if (buffer.remaining() < Integer.BYTES + record.length) {
+                ByteBuffer large = ByteBuffer.allocate(Integer.BYTES + record.length);
+                large.putInt(record.length).put(record);
+                drain(large, channel);
+            } else {
+                buffer.putInt(record.length).put(record);
+            }
+            count++;
+        }
+        drain(buffer, channel);
+        return count;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encode(TokenInfo tokenInfo) {
+        byte[][] strings = {
+                bytes(tokenInfo.getAccountId()),
+                bytes(tokenInfo.getAccessToken()),
+                bytes(tokenInfo.getRefreshToken()),
+                bytes(tokenInfo.getInvokerId())};
+        int size = 2 * Long.BYTES;
+        for (byte[] string : strings) {
+            size += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        putString(record, strings[0]);
+        putString(record, strings[1]);
+        putString(record, strings[2]);
+        record.putLong(tokenInfo.getAccessTokenExpiryTime());
+        record.putLong(tokenInfo.getRefreshTokenExpiryTime());
+        putString(record, strings[3]);
+        return record.array();
+    }
+
+    private static TokenInfo decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        String accountId = getString(buffer);
+        String accessToken = getString(buffer);
+        String refreshToken = getString(buffer);
+        long accessTokenExpiryTime = buffer.getLong();
+        long refreshTokenExpiryTime = buffer.getLong();
+        String invokerId = getString(buffer);
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Unexpected trailing bytes in token record.");
+        }
+        return new TokenInfo(accountId, accessToken, refreshToken, accessTokenExpiryTime, refreshTokenExpiryTime,
+                invokerId);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Token record is truncated.");
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static TokenInfo parse(RawRow row) {
+        TokenInfo tokenInfo = row.format == Format.CSV
+                ? CSVUtils.createToken((String[]) row.fields)
+                : decode((byte[]) row.fields);
+        if (tokenInfo.getAccountId() == null || tokenInfo.getAccountId().isBlank()) {
+            throw new IllegalArgumentException("Account id is empty.");
+        }
+        return tokenInfo;
+    }
+
+    private final class Importer {
+
+        private final Consumer<TokenInfo> tokenConsumer;
+        private final Consumer<RowError> errorConsumer;
+        private RawRow[] chunk = new RawRow[chunkSize];
+        private int chunkLength;
+        private ParseChunk pending;
+        private long rowsRead;
+        private long imported;
+        private long failed;
+
+        private Importer(Consumer<TokenInfo> tokenConsumer, Consumer<RowError> errorConsumer) {
+            this.tokenConsumer = tokenConsumer;
+            this.errorConsumer = errorConsumer;
+        }
+
+        private void readFile(Path file) {
+            Format format = Format.fromFileName(file);
+            String source = file.toString();
+            try (RowReader reader = format == Format.BINARY ? new BinaryRowReader(file) : new CsvRowReader(file)) {
+                long rowNumber = 0;
+                while (true) {
+                    rowNumber++;
+                    Object fields;
+                    try {
+                        fields = reader.readRow();
+                    } catch (CsvValidationException cause) {
+                        rowsRead++;
+                        report(new RowError(source, rowNumber, cause.getMessage()));
+                        continue;
+                    }
+                    if (fields == null) {
+                        break;
+                    }
+                    add(new RawRow(source, rowNumber, format == null ? Format.CSV : format, fields));
+                }
+            } catch (IOException | RuntimeException cause) {
+                report(new RowError(source, -1, "Failed to read token file: " + cause.getMessage()));
+            }
+        }
+
+        private void add(RawRow row) {
+            rowsRead++;
+            chunk[chunkLength++] = row;
+            if (chunkLength == chunk.length) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            ParseChunk next = new ParseChunk(chunk, 0, chunkLength);
+            pool.execute(next);
+            deliverPending();
+            pending = next;
+            chunk = new RawRow[chunkSize];
+            chunkLength = 0;
+        }
+
+        private void deliverPending() {
+            if (pending == null) {
+                return;
+            }
+            pending.join();
+            for (int index = 0; index < pending.to; index++) {
+                RawRow row = pending.rows[index];
+                if (row.token != null) {
+                    imported++;
+                    tokenConsumer.accept(row.token);
+                } else {
+                    report(new RowError(row.source, row.rowNumber, row.error));
+                }
+            }
+            pending = null;
+        }
+
+        private void report(RowError error) {
+            failed++;
+            errorConsumer.accept(error);
+        }
+
+        private Summary finish() {
+            if (chunkLength > 0) {
+                submit();
+            }
+            deliverPending();
+            return new Summary(rowsRead, imported, failed);
+        }
+
+    }
+
+    private static final class ParseChunk extends RecursiveAction {
+
+        private final RawRow[] rows;
+        private final int from;
+        private final int to;
+
+        private ParseChunk(RawRow[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARSE_THRESHOLD) {
+                for (int index = from; index < to; index++) {
+                    RawRow row = rows[index];
+                    try {
+                        row.token = parse(row);
+                    } catch (RuntimeException cause) {
+                        row.error = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+                    }
+                    row.fields = null;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            ForkJoinTask.invokeAll(new ParseChunk(rows, from, middle), new ParseChunk(rows, middle, to));
+        }
+
+    }
+
+    private static final class RawRow {
+
+        private final String source;
+        private final long rowNumber;
+        private final Format format;
+        private Object fields;
+        private TokenInfo token;
+        private String error;
+
+        private RawRow(String source, long rowNumber, Format format, Object fields) {
+            this.source = source;
+            this.rowNumber = rowNumber;
+            this.format = format;
+            this.fields = fields;
+        }
+
+    }
+
+    private interface RowReader extends Closeable {
+
+        Object readRow() throws IOException, CsvValidationException;
+
+    }
+
+    private static final class CsvRowReader implements RowReader {
+
+        private final CSVReader csvReader;
+
+        private CsvRowReader(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.csvReader = new CSVReader(new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8),
+                    BUFFER_SIZE));
+        }
+
+        @Override
+        public Object readRow() throws IOException, CsvValidationException {
+            return csvReader.readNext();
+        }
+
+        @Override
+        public void close() throws IOException {
+            csvReader.close();
+        }
+
+    }
+
+    private static final class BinaryRowReader implements RowReader {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private BinaryRowReader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+            if (!fill(Integer.BYTES) || buffer.getInt() != BINARY_MAGIC) {
+                channel.close();
+                throw new IOException("Not a binary token file.");
+            }
+        }
+
+        @Override
+        public Object readRow() throws IOException {
+            if (!fill(Integer.BYTES)) {
+                return null;
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > MAX_RECORD_SIZE) {
+                throw new IOException("Invalid token record length: " + length);
+            }
+            byte[] record = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                if (!fill(1)) {
+                    throw new EOFException("Token record is truncated.");
+                }
+                int count = Math.min(buffer.remaining(), length - offset);
+                buffer.get(record, offset, count);
+                offset += count;
+            }
+            return record;
+        }
+
+        private boolean fill(int required) throws IOException {
+            while (buffer.remaining() < required) {
+                buffer.compact();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    if (buffer.hasRemaining()) {
+                        throw new EOFException("Token file is truncated.");
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    public enum Format {
+
+        CSV(".csv"),
+        BINARY(".tokens");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        static Format fromFileName(Path file) {
+            Path fileName = file.getFileName();
+            if (fileName == null) {
+                return null;
+            }
+            String name = fileName.toString().toLowerCase();
+            for (Format format : values()) {
+                if (name.endsWith(format.extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    public static final class RowError {
+
+        private final String source;
+        private final long rowNumber;
+        private final String message;
+
+        public RowError(String source, long rowNumber, String message) {
+            this.source = source;
+            this.rowNumber = rowNumber;
+            this.message = message;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the 1-based row (or record) number within the source, or {@code -1} when the whole source failed.
+         */
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return source + ":" + rowNumber + " " + message;
+        }
+
+    }
+
+    public static final class Summary {
+
+        private final long rowsRead;
+        private final long imported;
+        private final long failed;
+
+        public Summary(long rowsRead, long imported, long failed) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.failed = failed;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return "{rowsRead=" + rowsRead + ", imported=" + imported + ", failed=" + failed + '}';
+        }
+
+    }
+
+}
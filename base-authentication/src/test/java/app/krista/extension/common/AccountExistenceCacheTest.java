@@ -0,0 +1,165 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import app.krista.extension.authorization.AuthorizationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccountExistenceCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final Set<String> accounts = new HashSet<>(Set.of("known@example.com"));
+
+    private final AccountExistenceCache cache = new AccountExistenceCache(email -> {
+        lookups.incrementAndGet();
+        return accounts.contains(email);
+    }, 1_000, 100, 100, clock::get);
+
+    @Test
+    public void cachesPositiveResults() throws AuthorizationException {
+        Assert.assertTrue(cache.exists("known@example.com"));
+        Assert.assertTrue(cache.exists("Known@Example.com")); //verify case insensitive key
+        advanceMillis(999);
+        Assert.assertTrue(cache.exists("known@example.com"));
+        Assert.assertEquals(1, lookups.get());
+
+        advanceMillis(1);
+        Assert.assertTrue(cache.exists("known@example.com"));
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void cachesNegativeResultsBriefly() throws AuthorizationException {
+        Assert.assertFalse(cache.exists("new@example.com"));
+        accounts.add("new@example.com");
+        Assert.assertFalse(cache.exists("new@example.com"));
+        advanceMillis(100);
+        Assert.assertTrue(cache.exists("new@example.com"));
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void accountCreatedOverridesNegativeResult() throws AuthorizationException {
+        Assert.assertFalse(cache.exists("created@example.com"));
+        cache.accountCreated("created@example.com");
+        Assert.assertTrue(cache.exists("created@example.com"));
+        Assert.assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void failuresAreNotCached() throws AuthorizationException {
+        AtomicInteger calls = new AtomicInteger();
+        AccountExistenceCache failing = new AccountExistenceCache(email -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new AuthorizationException("denied");
+            }
+            return true;
+        }, 1_000, 100, 100, clock::get);
+
+        Assert.assertThrows(AuthorizationException.class, () -> failing.exists("a@example.com"));
+        Assert.assertTrue(failing.exists("a@example.com"));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void coalescesConcurrentLookups() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccountExistenceCache slow = new AccountExistenceCache(email -> {
+            lookups.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException cause) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, 1_000, 100, 100, clock::get);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Boolean> first = executor.submit(() -> slow.exists("burst@example.com"));
+            started.await();
+            Future<Boolean> second = executor.submit(() -> slow.exists("burst@example.com"));
+            Future<Boolean> third = executor.submit(() -> slow.exists("burst@example.com"));
+            release.countDown();
+
+            Assert.assertTrue(first.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(second.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(third.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, lookups.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void errorsReachWaitersAndAreNotCached() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccountExistenceCache failing = new AccountExistenceCache(email -> {
+            if (lookups.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException cause) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new AssertionError("backend bug");
+            }
+            return true;
+        }, 1_000, 100, 100, clock::get);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> failing.exists("error@example.com"));
+            started.await();
+            Future<Boolean> second = executor.submit(() -> failing.exists("error@example.com"));
+            Thread.sleep(50);
+            release.countDown();
+
+            ExecutionException firstFailure =
+                    Assert.assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(firstFailure.getCause() instanceof AssertionError);
+            try {
+                Assert.assertTrue(second.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException waiterFailure) {
+                Assert.assertTrue(waiterFailure.getCause() instanceof AssertionError);
+            }
+            Assert.assertTrue(failing.exists("error@example.com"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void advanceMillis(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+}
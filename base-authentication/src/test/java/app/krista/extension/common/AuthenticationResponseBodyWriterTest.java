@@ -0,0 +1,95 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.core.MediaType;
+import com.google.gson.Gson;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AuthenticationResponseBodyWriterTest {
+
+    private static final Gson GSON = new Gson();
+
+    @Test
+    public void writesSameJsonAsGson() throws IOException {
+        // Given
+        Map<String, Object> extras = new LinkedHashMap<>();
+        extras.put("auth", "<tok\"en>\n\u2028\u00e9\ud83d\ude00");
+        extras.put("count", 3);
+        extras.put("nested", Map.of("flag", true));
+        extras.put("missing", null);
+        AuthenticationResponse response = response("session-1", extras);
+
+        // When
+        String written = write(new AuthenticationResponseBodyWriter(), response);
+
+        // Then
+        Assert.assertEquals(GSON.toJson(response), written);
+        Assert.assertEquals("{\"clientSessionId\":\"session-1\",\"name\":\"Jane \\u003cAdmin\\u003e\","
+                + "\"accountId\":\"account-1\",\"personId\":\"person-1\",\"roles\":[\"r1\",\"r2\"],"
+                + "\"inboxId\":\"inbox-1\",\"isWorkspaceAdmin\":true,\"isApplianceManager\":false,"
+                + "\"identificationToken\":{\"email\":\"jane@example.com\"},"
+                + "\"extras\":{\"auth\":\"\\u003ctok\\\"en\\u003e\\n\\u2028\u00e9\ud83d\ude00\",\"count\":3,"
+                + "\"nested\":{\"flag\":true}}}", written);
+    }
+
+    @Test
+    public void typeAdapterRoundTrips() {
+        AuthenticationResponse response = response("session-2", Map.of("auth", "value"));
+
+        AuthenticationResponse read = GSON.fromJson(GSON.toJson(response), AuthenticationResponse.class);
+
+        Assert.assertEquals(response, read);
+    }
+
+    @Test
+    public void writesCurrentResponseForSameSession() throws IOException {
+        // Given
+        AuthenticationResponseBodyWriter writer = new AuthenticationResponseBodyWriter();
+
+        // When
+        String first = write(writer, response("session-3", Map.of("auth", "one")));
+        String changed = write(writer, response("session-3", Map.of("auth", "two")));
+
+        // Then
+        Assert.assertTrue(first.contains("\"one\""));
+        Assert.assertTrue(changed.contains("\"two\""));
+    }
+
+    private static AuthenticationResponse response(String clientSessionId, Map<String, Object> extras) {
+        return new AuthenticationResponse(clientSessionId, "Jane <Admin>", null, "account-1", null, "person-1",
+                List.of("r1", "r2"), "inbox-1", true, false, Map.of("email", "jane@example.com"), extras);
+    }
+
+    private static String write(AuthenticationResponseBodyWriter writer, AuthenticationResponse response)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(response, AuthenticationResponse.class, AuthenticationResponse.class, null,
+                MediaType.APPLICATION_JSON_TYPE, null, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+}
@@ -138,6 +138,23 @@ public class CommonUtilsTest {
         CommonUtils.validateDomains(valid);
     }
 
+    @Test
+    public void test_ValidateDomains_WildcardSubdomains() {
+        // Given
+        String supportedDomains = "*.example.com,kristasoft.com";
+
+        // When
+        CommonUtils.validateDomains(supportedDomains);
+        CommonUtils.validateIfSupportedDomain("jane@mail.example.com", "other.org", supportedDomains);
+
+        // Then
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> CommonUtils.validateIfSupportedDomain("jane@example.com", "other.org", supportedDomains));
+        Assert.assertThrows(IllegalArgumentException.class, () -> CommonUtils.validateDomains("*.com"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> CommonUtils.validateDomains("mail.*.example.com"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> CommonUtils.validateDomains("*example.com"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void validateIfSupportedDomain() {
         CommonUtils.validateIfSupportedDomain(null, null, null);
@@ -0,0 +1,125 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.gson.Gson;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CreateSessionResponseParserTest {
+
+    private static final String RESPONSE_JSON = "{\"clientSessionId\":\"session-1\",\"kristaAccountId\":\"krista-1\","
+            + "\"person\":{\"icon\":{\"uri\":\"https://icons/1.png\"}},"
+            + "\"account\":{\"name\":\"Jane\",\"personId\":{\"id\":\"person-1\"},\"localId\":{\"id\":\"account-1\"},"
+            + "\"roles\":[{\"id\":\"role-1\"},{\"id\":\"role-2\"}],\"inboxId\":{\"id\":\"inbox-1\"},"
+            + "\"isWorkspaceAdmin\":true,\"isApplianceManager\":false}}";
+
+    private final CreateSessionResponseParser parser = new CreateSessionResponseParser();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void parsesDeserializedMaps() {
+        // Given
+        Map<String, Object> createResponse = new Gson().fromJson(RESPONSE_JSON, Map.class);
+
+        // When
+        AuthenticationResponse response = parser.parse(createResponse, "jane@example.com", "extra");
+
+        // Then
+        Assert.assertEquals("session-1", response.getClientSessionId());
+        Assert.assertEquals("Jane", response.getName());
+        Assert.assertEquals("https://icons/1.png", response.getAvatarUrl());
+        Assert.assertEquals("account-1", response.getAccountId());
+        Assert.assertEquals("krista-1", response.getKristaAccountId());
+        Assert.assertEquals("person-1", response.getPersonId());
+        Assert.assertEquals(List.of("role-1", "role-2"), response.getRoles());
+        Assert.assertEquals("inbox-1", response.getInboxId());
+        Assert.assertTrue(response.isWorkspaceAdmin());
+        Assert.assertFalse(response.isApplianceManager());
+        Assert.assertEquals("jane@example.com", response.getIdentificationToken().get("email"));
+    }
+
+    @Test
+    public void parsesTypedObjects() {
+        // Given
+        Map<String, Object> createResponse = new HashMap<>();
+        createResponse.put("clientSessionId", "session-2");
+        createResponse.put("person", new Person());
+        createResponse.put("account", new Account());
+
+        // When
+        AuthenticationResponse response = parser.parse(createResponse, "joe@example.com", "extra");
+
+        // Then
+        Assert.assertEquals("account-2", response.getAccountId());
+        Assert.assertEquals(List.of("role-3"), response.getRoles());
+        Assert.assertEquals("", response.getAvatarUrl());
+        Assert.assertFalse(response.isWorkspaceAdmin());
+    }
+
+    @Test
+    public void reportsMissingAccountKeys() {
+        // Given
+        Map<String, Object> createResponse = new HashMap<>();
+        createResponse.put("clientSessionId", "session-3");
+        createResponse.put("person", Map.of());
+        createResponse.put("account", Map.of("name", "Jane", "roles", List.of()));
+
+        // When
+        IllegalArgumentException exception = Assert.assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(createResponse, "jane@example.com", "extra"));
+
+        // Then
+        Assert.assertTrue(exception.getMessage().contains("personId"));
+        Assert.assertTrue(exception.getMessage().contains("inboxId"));
+        Assert.assertFalse(exception.getMessage().contains("roles"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingResponseKeys() {
+        parser.parse(Map.of("clientSessionId", "session-4"), "jane@example.com", "extra");
+    }
+
+    private static final class Id {
+
+        private final String id;
+
+        private Id(String id) {
+            this.id = id;
+        }
+
+    }
+
+    private static final class Person {
+    }
+
+    private static final class Account {
+
+        private final String name = "Joe";
+        private final Id personId = new Id("person-2");
+        private final Id localId = new Id("account-2");
+        private final List<Id> roles = List.of(new Id("role-3"));
+        private final Id inboxId = new Id("inbox-2");
+
+    }
+
+}
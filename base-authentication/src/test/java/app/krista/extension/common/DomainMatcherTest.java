@@ -0,0 +1,119 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DomainMatcherTest {
+
+    @Test
+    public void matchesExactDomainsOnly() {
+        // Given
+        DomainMatcher matcher = DomainMatcher.of("example.com, KristaSoft.com");
+
+        // Then
+        Assert.assertTrue(matcher.matchesEmail("abc@example.com"));
+        Assert.assertTrue(matcher.matchesEmail("abc@KRISTASOFT.com")); //verify case insensitive
+        Assert.assertFalse(matcher.matchesEmail("abc@ample.com")); //verify no substring match
+        Assert.assertFalse(matcher.matchesEmail("abc@mail.example.com"));
+        Assert.assertFalse(matcher.matchesEmail("no-at-sign"));
+        Assert.assertFalse(matcher.matchesEmail(null));
+    }
+
+    @Test
+    public void matchesWildcardSubdomains() {
+        // Given
+        DomainMatcher matcher = DomainMatcher.of("*.example.com,other.org");
+
+        // Then
+        Assert.assertTrue(matcher.matches("mail.example.com"));
+        Assert.assertTrue(matcher.matches("a.b.Example.com"));
+        Assert.assertFalse(matcher.matches("example.com")); //verify apex needs its own entry
+        Assert.assertFalse(matcher.matches("badexample.com"));
+        Assert.assertTrue(matcher.matches("other.org"));
+    }
+
+    @Test
+    public void matchesAll() {
+        Assert.assertTrue(DomainMatcher.of(null).matchesAll());
+        Assert.assertTrue(DomainMatcher.of("").matchesAll());
+        Assert.assertTrue(DomainMatcher.of("All").matchesEmail("abc@anything.io"));
+        Assert.assertTrue(DomainMatcher.of("example.com,all").matchesAll());
+        Assert.assertFalse(DomainMatcher.of("All").matchesEmail(" "));
+    }
+
+    @Test
+    public void cachesMatcherPerSetting() {
+        String setting = "cached.com,other.com";
+        Assert.assertSame(DomainMatcher.of(setting), DomainMatcher.of(new String(setting)));
+    }
+
+    @Test
+    public void benchmarkTenThousandDomains() {
+        // Given
+        int domainCount = 10_000;
+        StringBuilder setting = new StringBuilder();
+        for (int index = 0; index < domainCount; index++) {
+            setting.append(index == 0 ? "" : ",").append("domain").append(index).append(".com");
+            setting.append(",*.sub").append(index).append(".org");
+        }
+        String allDomains = setting.toString();
+        String[] emails = new String[1_000];
+        for (int index = 0; index < emails.length; index++) {
+            emails[index] = index % 2 == 0
+                    ? "user@domain" + (index * 7 % domainCount) + ".com"
+                    : "user@mail.sub" + (index * 13 % domainCount) + ".org";
+        }
+
+        // When
+        long compileStart = System.nanoTime();
+        DomainMatcher matcher = DomainMatcher.compile(allDomains);
+        long compileNanos = System.nanoTime() - compileStart;
+        int iterations = 200;
+        long matchStart = System.nanoTime();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (String email : emails) {
+                Assert.assertTrue(matcher.matchesEmail(email));
+            }
+        }
+        long matchNanos = (System.nanoTime() - matchStart) / ((long) iterations * emails.length);
+        long scanStart = System.nanoTime();
+        for (String email : emails) {
+            linearScan(email, allDomains);
+        }
+        long scanNanos = (System.nanoTime() - scanStart) / emails.length;
+
+        // Then
+        Assert.assertFalse(matcher.matchesEmail("user@domain" + domainCount + ".com"));
+        System.out.println("DomainMatcher 10k domains: compile=" + compileNanos / 1_000 + "us, match=" + matchNanos
+                + "ns/op, split+scan=" + scanNanos + "ns/op");
+    }
+
+    private static boolean linearScan(String email, String allDomains) {
+        String emailDomain = email.split("@")[1];
+        for (String domain : allDomains.split(",")) {
+            if (domain.contains(emailDomain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EmailSyntaxTest {
+
+    private static final String LABEL = "(?!-)[A-Za-z0-9-]{1,63}(?<!-)";
+    private static final Pattern DOMAIN = Pattern.compile("(?:" + LABEL + "\\.)+[A-Za-z]{2,7}");
+    private static final Pattern EMAIL =
+            Pattern.compile("[A-Za-z0-9_+&*-]+(?:\\.[A-Za-z0-9_+&*-]+)*@" + DOMAIN.pattern());
+    private static final String ALPHABET = "abcXYZ019_+&*-.@ !";
+    private static final int SAMPLES = 50_000;
+
+    @Test
+    public void emailMatchesGrammar() {
+        Random random = new Random(42);
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            String candidate = sample % 2 == 0 ? randomString(random) : mutate(random, randomEmail(random));
+            Assert.assertEquals(candidate, EMAIL.matcher(candidate).matches(), EmailSyntax.isValidEmail(candidate));
+        }
+    }
+
+    @Test
+    public void domainMatchesGrammar() {
+        Random random = new Random(7);
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            String candidate = sample % 2 == 0 ? randomString(random) : mutate(random, randomDomain(random));
+            Assert.assertEquals(candidate, DOMAIN.matcher(candidate).matches(), EmailSyntax.isValidDomain(candidate));
+        }
+    }
+
+    @Test
+    public void domainPatternAcceptsLeadingWildcardLabel() {
+        Assert.assertTrue(EmailSyntax.isValidDomainPattern("example.com"));
+        Assert.assertTrue(EmailSyntax.isValidDomainPattern("*.example.com"));
+        Assert.assertFalse(EmailSyntax.isValidDomainPattern("*.com"));
+        Assert.assertFalse(EmailSyntax.isValidDomainPattern("*."));
+        Assert.assertFalse(EmailSyntax.isValidDomainPattern("a.*.example.com"));
+        Assert.assertFalse(EmailSyntax.isValidDomain("*.example.com"));
+    }
+
+    @Test
+    public void parseEmailReturnsOffsets() {
+        String email = "  First.Last+tag@Mail.Example.com ";
+        int start = EmailSyntax.stripStart(email);
+        int end = EmailSyntax.stripEnd(email, start);
+
+        int at = EmailSyntax.parseEmail(email, start, end);
+
+        Assert.assertEquals("First.Last+tag", email.substring(start, at));
+        Assert.assertEquals("Mail.Example.com", email.substring(at + 1, end));
+        Assert.assertEquals(EmailSyntax.INVALID, EmailSyntax.parseEmail(email, 0, email.length()));
+    }
+
+    @Test
+    public void emailAddressesNormalize() {
+        Assert.assertTrue(EmailAddresses.isValidEmailAddress(" User@Example.COM "));
+        Assert.assertFalse(EmailAddresses.isValidEmailAddress("   "));
+        Assert.assertFalse(EmailAddresses.isValidEmailAddress(null));
+        Assert.assertEquals("user@example.com", EmailAddresses.normalizeEmailAddress(" User@Example.COM "));
+        Assert.assertEquals("example.com", EmailAddresses.getDomainName(" User@Example.COM "));
+        Assert.assertEquals("user", EmailAddresses.getLocalPart(" User@Example.COM "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emailAddressesRejectInvalid() {
+        EmailAddresses.getDomainName("user@-example.com");
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(20);
+        for (int index = 0; index < length; index++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    private static String randomEmail(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int atoms = 1 + random.nextInt(3);
+        for (int atom = 0; atom < atoms; atom++) {
+            builder.append(atom == 0 ? "" : ".").append(randomToken(random, "aZ9_+&*-", 1 + random.nextInt(5)));
+        }
+        return builder.append('@').append(randomDomain(random)).toString();
+    }
+
+    private static String randomDomain(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int labels = 1 + random.nextInt(3);
+        for (int label = 0; label < labels; label++) {
+            int length = random.nextInt(10) == 0 ? 62 + random.nextInt(3) : 1 + random.nextInt(6);
+            builder.append(randomToken(random, "aZ9-", length)).append('.');
+        }
+        return builder.append(randomToken(random, "abZ", 1 + random.nextInt(8))).toString();
+    }
+
+    private static String randomToken(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < length; index++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private static String mutate(Random random, String value) {
+        if (value.isEmpty() || random.nextBoolean()) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value);
+        int index = random.nextInt(builder.length());
+        switch (random.nextInt(3)) {
+            case 0:
+                builder.deleteCharAt(index);
+                break;
+            case 1:
+                builder.insert(index, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                break;
+            default:
+                builder.setCharAt(index, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                break;
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KristaExceptionMapperTest {
+
+    private final KristaExceptionMapper mapper = new KristaExceptionMapper("Krista Client");
+
+    @Test
+    public void mapsIllegalArgumentToBadRequest() {
+        Response response = mapper.toResponse(new IllegalArgumentException("bad input"));
+
+        Assert.assertEquals(400, response.getStatus());
+        KristaError error = (KristaError) response.getEntity();
+        Assert.assertEquals("bad input", error.getErrorMessage());
+        Assert.assertEquals("Krista Client- 400", error.getKristaErrorCode());
+    }
+
+    @Test
+    public void mapsNotFound() {
+        Response response = mapper.toResponse(new NotFoundException());
+
+        Assert.assertEquals(404, response.getStatus());
+        Assert.assertEquals("Page not found.", response.getEntity());
+    }
+
+    @Test
+    public void reusesDefaultErrorPerStatus() {
+        Response first = mapper.toResponse(new IllegalStateException());
+        Response second = mapper.toResponse(new RuntimeException());
+
+        Assert.assertEquals(500, first.getStatus());
+        Assert.assertSame(first.getEntity(), second.getEntity());
+        Assert.assertEquals("Authentication failure", ((KristaError) first.getEntity()).getErrorMessage());
+    }
+
+    @Test
+    public void countsResponsesPerStatus() {
+        mapper.toResponse(new BadRequestException());
+        mapper.toResponse(new IllegalArgumentException());
+        mapper.toResponse(new NotFoundException());
+
+        Assert.assertEquals(2, mapper.getCount(400));
+        Assert.assertEquals(1, mapper.getCount(404));
+        Assert.assertEquals(0, mapper.getCount(500));
+        Assert.assertEquals(2, mapper.getCounts().size());
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestContextDecoderTest {
+
+    @Test
+    public void extractsClientSessionId() {
+        String context = URLEncoder.encode("{\"workspaceId\":\"w-1\",\"nested\":{\"clientSessionId\":\"inner\"},"
+                + "\"clientSessionId\":\"session-1\",\"other\":[1,2]}", StandardCharsets.UTF_8);
+
+        Assert.assertEquals("session-1", RequestContextDecoder.getClientSessionId(context));
+        Assert.assertEquals("session-1", RequestContextDecoder.getClientSessionId(context)); //verify memoized value
+    }
+
+    @Test
+    public void acceptsUnencodedContext() {
+        Assert.assertEquals("session-2", RequestContextDecoder.getClientSessionId("{\"clientSessionId\":\"session-2\"}"));
+    }
+
+    @Test
+    public void returnsNullForMissingOrMalformedContext() {
+        Assert.assertNull(RequestContextDecoder.getClientSessionId(null));
+        Assert.assertNull(RequestContextDecoder.getClientSessionId(" "));
+        Assert.assertNull(RequestContextDecoder.getClientSessionId("{\"workspaceId\":\"w-1\"}"));
+        Assert.assertNull(RequestContextDecoder.getClientSessionId("{\"clientSessionId\":null}"));
+        Assert.assertNull(RequestContextDecoder.getClientSessionId("%7B%ZZ"));
+        Assert.assertNull(RequestContextDecoder.getClientSessionId("not json"));
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import app.krista.extension.authorization.AuthorizationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SupportedDomainRegistrarTest {
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final SupportedDomainRegistrar.DomainSink settings = calls::add;
+
+    @Test
+    public void deduplicatesAndBatchesDomains() {
+        // Given
+        SupportedDomainRegistrar registrar =
+                new SupportedDomainRegistrar(settings, List.of("known.com"), 60_000, 100);
+
+        // When
+        registrar.register("a@new.com");
+        registrar.register("b@NEW.com");
+        registrar.register("c@known.com");
+        registrar.register("d@other.com");
+        registrar.register("invalid");
+        registrar.flush();
+        registrar.close();
+
+        // Then
+        Assert.assertEquals(List.of("new.com,other.com"), calls);
+        Assert.assertEquals(2, registrar.getRegisteredCount());
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() throws InterruptedException {
+        // Given
+        SupportedDomainRegistrar registrar = new SupportedDomainRegistrar(settings, List.of(), 60_000, 2);
+
+        // When
+        registrar.register("a@one.com");
+        registrar.register("a@two.com");
+        for (int attempt = 0; attempt < 100 && calls.isEmpty(); attempt++) {
+            Thread.sleep(10);
+        }
+        registrar.close();
+
+        // Then
+        Assert.assertEquals(List.of("one.com,two.com"), calls);
+    }
+
+    @Test
+    public void forgetsDomainsThatFailedToRegister() {
+        // Given
+        SupportedDomainRegistrar.DomainSink failing = domains -> {
+            throw new AuthorizationException("denied");
+        };
+        SupportedDomainRegistrar registrar = new SupportedDomainRegistrar(failing, List.of(), 60_000, 10);
+
+        // When
+        registrar.register("a@retry.com");
+        registrar.flush();
+        registrar.close();
+
+        // Then
+        Assert.assertEquals(1, registrar.getFailedCount());
+        Assert.assertFalse(registrar.isKnown("retry.com"));
+    }
+
+}
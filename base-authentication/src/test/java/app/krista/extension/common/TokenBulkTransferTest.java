@@ -0,0 +1,109 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TokenBulkTransferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TokenBulkTransfer transfer = new TokenBulkTransfer(ForkJoinPool.commonPool(), 8);
+
+    @Test
+    public void roundTripCsv() throws IOException {
+        // Given
+        List<TokenInfo> tokens = tokens(100);
+        Path file = folder.getRoot().toPath().resolve("tokens.csv");
+
+        // When
+        long written = transfer.exportTokens(tokens.iterator(), file);
+        List<TokenInfo> imported = new ArrayList<>();
+        List<TokenBulkTransfer.RowError> errors = new ArrayList<>();
+        TokenBulkTransfer.Summary summary = transfer.importTokens(file, imported::add, errors::add);
+
+        // Then
+        Assert.assertEquals(100, written);
+        Assert.assertEquals(100, summary.getImported());
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(tokens.toString(), imported.toString()); //verify order and content
+    }
+
+    @Test
+    public void roundTripBinary() throws IOException {
+        // Given
+        List<TokenInfo> tokens = tokens(100);
+        Path file = folder.getRoot().toPath().resolve("tokens" + TokenBulkTransfer.Format.BINARY.getExtension());
+
+        // When
+        transfer.exportTokens(tokens.iterator(), file);
+        List<TokenInfo> imported = new ArrayList<>();
+        TokenBulkTransfer.Summary summary = transfer.importTokens(file, imported::add, error -> Assert.fail());
+
+        // Then
+        Assert.assertEquals(100, summary.getRowsRead());
+        Assert.assertEquals(tokens.toString(), imported.toString());
+    }
+
+    @Test
+    public void reportsBadRowsWithoutAborting() throws IOException {
+        // Given
+        Path directory = folder.newFolder("tokens").toPath();
+        Files.writeString(directory.resolve("a.csv"), "acc1,access,refresh,1,2,invoker\n"
+                + "acc2,access,refresh,notANumber,2,invoker\n"
+                + "short,row\n"
+                + "acc3,access,refresh,3,4,invoker\n", StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("b.csv"), "acc4,access,refresh,5,6,invoker\n", StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("ignored.txt"), "not a token file", StandardCharsets.UTF_8);
+
+        // When
+        List<TokenInfo> imported = new ArrayList<>();
+        List<TokenBulkTransfer.RowError> errors = new ArrayList<>();
+        TokenBulkTransfer.Summary summary = transfer.importTokens(directory, imported::add, errors::add);
+
+        // Then
+        Assert.assertEquals(5, summary.getRowsRead());
+        Assert.assertEquals(3, summary.getImported());
+        Assert.assertEquals(2, summary.getFailed());
+        Assert.assertEquals(2, errors.size());
+        Assert.assertEquals(2, errors.get(0).getRowNumber());
+        Assert.assertEquals(3, errors.get(1).getRowNumber());
+    }
+
+    private static List<TokenInfo> tokens(int count) {
+        List<TokenInfo> tokens = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            tokens.add(new TokenInfo("account" + index, "access,\"" + index, "refresh" + index, index, index * 2L,
+                    "invoker" + index));
+        }
+        return tokens;
+    }
+
+}
@@ -24,6 +24,11 @@ import javax.inject.Inject;
 import app.krista.extension.authorization.RequestAuthenticator;
 import app.krista.extension.executor.Invoker;
 import app.krista.extension.impl.anno.*;
+import app.krista.extensions.authentication.krista_client_authentication.cluster.InvalidationBus;
+import app.krista.extensions.authentication.krista_client_authentication.session.AdaptiveConcurrencyLimiter;
+import app.krista.extensions.authentication.krista_client_authentication.session.HedgedSessionLookup;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionCache;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
 import app.krista.ksdk.authentication.SessionManager;
 
 @SuppressWarnings("deprecation")
@@ -43,18 +48,26 @@ import app.krista.ksdk.authentication.SessionManager;
 @StaticResource(path = "docs", file = "docs")
 public class KristaClientAuthenticationExtension {
 
-    private final Invoker invoker;
-    private final SessionManager sessionManager;
+    private final SessionCache sessionCache;
+    private final LoginRedirects loginRedirects;
 
     @Inject
     public KristaClientAuthenticationExtension(Invoker invoker, SessionManager sessionManager) {
-        this.invoker = invoker;
-        this.sessionManager = sessionManager;
+        SessionLookup sessions = AdaptiveConcurrencyLimiter.getDefault()
+                .limit(clientSessionId -> sessionManager.lookupAccountId(clientSessionId));
+        if (HedgedSessionLookup.isEnabled()) {
+            sessions = new HedgedSessionLookup(sessions);
+        }
+        this.sessionCache = new SessionCache(sessions);
+        InvalidationBus invalidations = InvalidationBus.getDefault();
+        invalidations.addListener(sessionCache);
+        sessionCache.setRevocationListener(invalidations::publish);
+        this.loginRedirects = new LoginRedirects(invoker);
     }
 
     @InvokerRequest(InvokerRequest.Type.AUTHENTICATOR)
     public RequestAuthenticator getAuthenticatedAccountId() {
-        return new KristaClientRequestAuthenticator(invoker, sessionManager);
+        return new KristaClientRequestAuthenticator(sessionCache, RouteClassifier.getDefault(), loginRedirects);
     }
 
     @InvokerRequest(InvokerRequest.Type.CUSTOM_TABS)
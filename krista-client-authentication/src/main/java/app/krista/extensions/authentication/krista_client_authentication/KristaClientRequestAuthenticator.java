@@ -27,8 +27,15 @@ import app.krista.extension.request.ProtoResponse;
 import app.krista.extension.request.protos.http.HttpProtocol;
 import app.krista.extension.request.protos.http.HttpRequest;
 import app.krista.extension.request.protos.http.HttpResponse;
+import app.krista.extensions.authentication.krista_client_authentication.activity.ActivityTracker;
+import app.krista.extensions.authentication.krista_client_authentication.audit.AuditLog;
 import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiConstants;
 import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiUtility;
+import app.krista.extensions.authentication.krista_client_authentication.jfr.RedirectIssueEvent;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientKeyResolver;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientRateLimiter;
+import app.krista.extensions.authentication.krista_client_authentication.session.LimitExceededException;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
 import app.krista.ksdk.authentication.SessionManager;
 import app.krista.model.field.NamedField;
 import com.google.gson.Gson;
@@ -38,34 +45,72 @@ import com.google.gson.JsonObject;
 import com.kristasoft.common.io.Unicodes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import javax.ws.rs.core.HttpHeaders;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
 
-import static app.krista.extension.request.RoutingInfo.Type.APPLIANCE;
-
 @SuppressWarnings("deprecation")
 public class KristaClientRequestAuthenticator implements RequestAuthenticator {
 
     private static final Logger logger = LoggerFactory.getLogger(KristaClientRequestAuthenticator.class);
 
-    private final Invoker invoker;
-    private final SessionManager sessionManager;
+    /**
+     * The request on this thread that was shed by the concurrency limiter or went over its client's rate limit, so
+     * that the {@link #getMustAuthenticateResponse(MustAuthenticateException, ProtoRequest)} call that follows answers
+     * it with a 503 or 429 instead of a login redirect.
+     */
+    private static final ThreadLocal<Rejection> rejectedRequest = new ThreadLocal<>();
+
+    private final SessionLookup sessions;
 
     private final Gson gson;
+    private final RouteClassifier routes;
+    private final LoginRedirects loginRedirects;
+    private final ClientRateLimiter rateLimiter;
+    private final ActivityTracker activity;
+    private final AuditLog auditLog;
+    private final ClientKeyResolver clientKeys;
+
+    private volatile ServiceAuthorization serviceAuthorization;
 
     public KristaClientRequestAuthenticator(Invoker invoker, SessionManager sessionManager) {
-        this(invoker, sessionManager, new GsonBuilder().create());
+        this(clientSessionId -> sessionManager.lookupAccountId(clientSessionId), RouteClassifier.getDefault(),
+                new LoginRedirects(invoker));
+    }
+
+    public KristaClientRequestAuthenticator(SessionLookup sessions, RouteClassifier routes,
+            LoginRedirects loginRedirects) {
+        this(sessions, routes, loginRedirects, ClientRateLimiter.getUnauthenticatedDefault());
+    }
+
+    KristaClientRequestAuthenticator(SessionLookup sessions, RouteClassifier routes, LoginRedirects loginRedirects,
+            ClientRateLimiter rateLimiter) {
+        this(sessions, routes, loginRedirects, rateLimiter, ActivityTracker.getDefault());
+    }
+
+    KristaClientRequestAuthenticator(SessionLookup sessions, RouteClassifier routes, LoginRedirects loginRedirects,
+            ClientRateLimiter rateLimiter, ActivityTracker activity) {
+        this(sessions, routes, loginRedirects, rateLimiter, activity, AuditLog.getDefault());
     }
 
-    private KristaClientRequestAuthenticator(Invoker invoker, SessionManager sessionManager, Gson gson) {
-        this.invoker = invoker;
-        this.sessionManager = sessionManager;
-        this.gson = gson;
+    KristaClientRequestAuthenticator(SessionLookup sessions, RouteClassifier routes, LoginRedirects loginRedirects,
+            ClientRateLimiter rateLimiter, ActivityTracker activity, AuditLog auditLog) {
+        this(sessions, routes, loginRedirects, rateLimiter, activity, auditLog, ClientKeyResolver.getDefault());
+    }
+
+    KristaClientRequestAuthenticator(SessionLookup sessions, RouteClassifier routes, LoginRedirects loginRedirects,
+            ClientRateLimiter rateLimiter, ActivityTracker activity, AuditLog auditLog, ClientKeyResolver clientKeys) {
+        this.sessions = sessions;
+        this.gson = new GsonBuilder().create();
+        this.routes = routes;
+        this.loginRedirects = loginRedirects;
+        this.rateLimiter = rateLimiter;
+        this.activity = activity;
+        this.auditLog = auditLog;
+        this.clientKeys = clientKeys;
     }
 
     @Override
@@ -86,27 +131,74 @@ public class KristaClientRequestAuthenticator implements RequestAuthenticator {
      */
     @Override
     public String getAuthenticatedAccountId(ProtoRequest request) {
+        rejectedRequest.remove();
         HttpRequest httpRequest = (HttpRequest) request;
+        RouteClassifier.Route route = classify(httpRequest);
+        if (route == RouteClassifier.Route.PUBLIC) {
+            return null;
+        }
+        String accountId;
+        try {
+            accountId = authenticate(httpRequest, route);
+        } catch (LimitExceededException overloaded) {
+            rejectedRequest.set(new Rejection(request, ApiConstants.SERVICE_UNAVAILABLE,
+                    String.valueOf(overloaded.getRetryAfterSeconds())));
+            return null;
+        }
+        // Only failures spend the client's budget, so a valid session is never turned away by the limiter.
+        if (accountId == null && !rateLimiter.tryAcquire(getClientKey(httpRequest))) {
+            rejectedRequest.set(
+                    new Rejection(request, ApiConstants.TOO_MANY_REQUESTS, ApiConstants.RETRY_AFTER_SECONDS));
+        }
+        return accountId;
+    }
+
+    private String authenticate(HttpRequest httpRequest, RouteClassifier.Route route) {
+        String authorizedSessionId =
+                ApiUtility.getClientSessionIdFromAuthorization(httpRequest.getHeader(ApiConstants.AUTHORIZATION));
+        if (authorizedSessionId != null) {
+            String authorizedAccountId = getAuthorizedAccountId(authorizedSessionId);
+            if (authorizedAccountId != null) {
+                activity.record(authorizedSessionId, authorizedAccountId);
+                return authorizedAccountId;
+            }
+        }
+
         String cookie = httpRequest.getHeader(ApiConstants.COOKIE);
         String clientSessionId = ApiUtility.getClientSessionIdFromCookie(cookie);
         if(clientSessionId == null){
             return null;
         }
 
-        String accountId = sessionManager.lookupAccountId(clientSessionId);
+        String accountId = ApiUtility.lookupAccountId(sessions, clientSessionId, "cookie");
         if (!Objects.isNull(accountId)) {
+            activity.record(clientSessionId, accountId);
             return accountId;
         }
 
-        if (isLoginApiRequested(httpRequest)) {
+        if (route == RouteClassifier.Route.LOGIN) {
             return getAccountId(httpRequest);
         }
         return null;
     }
 
+    /**
+     * Registers the client session id that service callers present as their {@code Authorization} credential. The
+     * token is accepted only if it currently resolves to an account. Requests carrying it are recognized by a
+     * constant-time comparison, but the account is still resolved through the session lookup on every request, so a
+     * revoked or expired service session stops authenticating as soon as the session cache notices; the service
+     * authorization is then cleared. Passing {@code null} or a token that does not resolve clears it as well.
+     *
+     * @param authorizationToken the service client session id
+     * @return whether the token was accepted
+     */
     @Override
     public boolean setServiceAuthorization(String authorizationToken) {
-        return false;
+        String accountId = authorizationToken == null || authorizationToken.isBlank()
+                ? null
+                : ApiUtility.lookupAccountId(sessions, authorizationToken, "service");
+        serviceAuthorization = accountId != null ? new ServiceAuthorization(authorizationToken) : null;
+        return accountId != null;
     }
 
     @Override
@@ -116,12 +208,26 @@ public class KristaClientRequestAuthenticator implements RequestAuthenticator {
 
     @Override
     public ProtoResponse getMustAuthenticateResponse(MustAuthenticateException cause, ProtoRequest request) {
+        String clientKey = getClientKey((HttpRequest) request);
+        Rejection rejection = rejectedRequest.get();
+        if (rejection != null && rejection.request() == request) {
+            rejectedRequest.remove();
+            auditLog.mustAuthenticate(rejection.status(), clientKey);
+            return new HttpResponse(rejection.status(), Map.of(ApiConstants.RETRY_AFTER, rejection.retryAfter()),
+                    new ByteArrayInputStream(new byte[0]));
+        }
+        RedirectIssueEvent event = new RedirectIssueEvent();
+        event.begin();
         String uri =
                 ((HttpRequest) request).getHeader(ApiConstants.X_KRISTA_ORIGINAL_URL);
-        String encodedUri = URLEncoder.encode(uri, StandardCharsets.UTF_8);
-        return new HttpResponse(302,
-                Map.of(HttpHeaders.LOCATION, getLoginUrl(encodedUri)),
-                new ByteArrayInputStream(new byte[0]));
+        HttpResponse response = loginRedirects.redirect(uri);
+        auditLog.mustAuthenticate(response.getStatusCode(), clientKey);
+        event.end();
+        if (event.shouldCommit()) {
+            event.originalUriLength = uri != null ? uri.length() : 0;
+            event.commit();
+        }
+        return response;
     }
 
     @Override
@@ -139,9 +245,16 @@ public class KristaClientRequestAuthenticator implements RequestAuthenticator {
         return null;
     }
 
-    private String getLoginUrl(String encodedUri) {
-        return invoker.getRoutingInfo().getRoutingURL(HttpProtocol.PROTOCOL_NAME, APPLIANCE)
-                + "/authn/login?" + ApiConstants.X_KRISTA_ORIGINAL_URL + "=" + encodedUri;
+    private String getAuthorizedAccountId(String clientSessionId) {
+        ServiceAuthorization service = serviceAuthorization;
+        if (service != null && service.matches(clientSessionId)) {
+            String accountId = ApiUtility.lookupAccountId(sessions, clientSessionId, "service");
+            if (accountId == null && serviceAuthorization == service) {
+                serviceAuthorization = null;
+            }
+            return accountId;
+        }
+        return ApiUtility.lookupAccountId(sessions, clientSessionId, "header");
     }
 
     private String getAccountId(HttpRequest httpRequest) {
@@ -149,7 +262,7 @@ public class KristaClientRequestAuthenticator implements RequestAuthenticator {
             if ("GET".equalsIgnoreCase(httpRequest.getMethod())) {
                 List<String> clientSessionId = httpRequest.getQueryParameters().get(ApiConstants.CLIENTSESSIONID);
                 if (!Objects.isNull(clientSessionId) && !clientSessionId.isEmpty()) {
-                    return sessionManager.lookupAccountId(clientSessionId.get(0));
+                    return ApiUtility.lookupAccountId(sessions, clientSessionId.get(0), "query");
                 }
             } else if (("POST".equalsIgnoreCase(httpRequest.getMethod()))) {
                 httpRequest.bufferBody();
@@ -158,7 +271,7 @@ public class KristaClientRequestAuthenticator implements RequestAuthenticator {
                 JsonObject jsonObject = gson.fromJson(requestPayload, JsonObject.class);
                 JsonElement jsonElement = jsonObject.get(ApiConstants.CLIENTSESSIONID);
                 String clientSessionId = jsonElement != null ? jsonElement.getAsString() : "";
-                return sessionManager.lookupAccountId(clientSessionId);
+                return ApiUtility.lookupAccountId(sessions, clientSessionId, "body");
             }
             return null;
         } catch (IOException ex) {
@@ -167,8 +280,32 @@ public class KristaClientRequestAuthenticator implements RequestAuthenticator {
         }
     }
 
-    private boolean isLoginApiRequested(HttpRequest httpRequest) {
-        return Objects.equals(ApiConstants.LOGIN_API, httpRequest.getUri().getPath());
+    private String getClientKey(HttpRequest httpRequest) {
+        return clientKeys.resolve(null, httpRequest.getHeader(ApiConstants.X_FORWARDED_FOR),
+                httpRequest.getHeader(ApiConstants.X_REAL_IP));
+    }
+
+    private RouteClassifier.Route classify(HttpRequest httpRequest) {
+        return httpRequest.getUri() != null
+                ? routes.classify(httpRequest.getMethod(), httpRequest.getUri().getPath())
+                : RouteClassifier.Route.PROTECTED;
+    }
+
+    private static final class ServiceAuthorization {
+
+        private final byte[] token;
+
+        private ServiceAuthorization(String token) {
+            this.token = token.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private boolean matches(String candidate) {
+            return MessageDigest.isEqual(token, candidate.getBytes(StandardCharsets.UTF_8));
+        }
+
+    }
+
+    private record Rejection(ProtoRequest request, int status, String retryAfter) {
     }
 
 }
@@ -0,0 +1,157 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.ws.rs.core.HttpHeaders;
+import app.krista.extension.executor.Invoker;
+import app.krista.extension.request.protos.http.HttpProtocol;
+import app.krista.extension.request.protos.http.HttpResponse;
+import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiConstants;
+
+import static app.krista.extension.request.RoutingInfo.Type.APPLIANCE;
+
+/**
+ * Builds the 302 redirects to the login page for must-authenticate responses.
+ * <p>
+ * The appliance routing URL is cached and re-read at most every {@code recheckNanos}; when it changes the login URL
+ * prefix is recomputed and previously built redirects are discarded. While the routing URL is unavailable the last
+ * good one keeps being served; before any is known, redirects point at the host-relative login path. Location headers
+ * for recently seen original URIs are kept in a bounded LRU, so a wave of expired sessions hitting the same pages
+ * costs one map lookup and one response object per request.
+ */
+public class LoginRedirects {
+
+    private static final long DEFAULT_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final String LOGIN_PATH = "/authn/login";
+
+    // Redirects have no body; ByteArrayInputStream ignores close() so one instance can be shared.
+    private static final InputStream EMPTY_BODY = new ByteArrayInputStream(new byte[0]);
+
+    private final Supplier<String> routingUrl;
+    private final long recheckNanos;
+    private final int capacity;
+    private final LongSupplier nanoClock;
+    private volatile Snapshot snapshot;
+
+    public LoginRedirects(Invoker invoker) {
+        this(() -> invoker.getRoutingInfo().getRoutingURL(HttpProtocol.PROTOCOL_NAME, APPLIANCE),
+                DEFAULT_RECHECK_NANOS, DEFAULT_CAPACITY, System::nanoTime);
+    }
+
+    LoginRedirects(Supplier<String> routingUrl, long recheckNanos, int capacity, LongSupplier nanoClock) {
+        this.routingUrl = routingUrl;
+        this.recheckNanos = recheckNanos;
+        this.capacity = capacity;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns a redirect to the login page that carries {@code originalUri} back, or a plain redirect to the login
+     * page when the original URI is unknown.
+     */
+    public HttpResponse redirect(String originalUri) {
+        return new HttpResponse(302, headers(originalUri), EMPTY_BODY);
+    }
+
+    Map<String, String> headers(String originalUri) {
+        Snapshot current = currentSnapshot();
+        if (originalUri == null) {
+            return current.bareLogin;
+        }
+        Map<String, String> headers = current.get(originalUri);
+        if (headers == null) {
+            headers = Map.of(HttpHeaders.LOCATION,
+                    current.loginPrefix + URLEncoder.encode(originalUri, StandardCharsets.UTF_8));
+            current.put(originalUri, headers);
+        }
+        return headers;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long now = nanoClock.getAsLong();
+        if (current != null && now - current.checkedAt < recheckNanos) {
+            return current;
+        }
+        String url = readRoutingUrl();
+        if (current != null && (url == null || Objects.equals(current.routingUrl, url))) {
+            current.checkedAt = now;
+            return current;
+        }
+        if (url == null) {
+            // Nothing good to cache yet; try again on the next redirect.
+            return new Snapshot("", now, capacity);
+        }
+        Snapshot refreshed = new Snapshot(url, now, capacity);
+        snapshot = refreshed;
+        return refreshed;
+    }
+
+    private String readRoutingUrl() {
+        try {
+            return routingUrl.get();
+        } catch (RuntimeException unavailable) {
+            return null;
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final String routingUrl;
+        private final String loginPrefix;
+        private final Map<String, String> bareLogin;
+        private final Map<String, Map<String, String>> recent;
+        private volatile long checkedAt;
+
+        private Snapshot(String routingUrl, long checkedAt, int capacity) {
+            this.routingUrl = routingUrl;
+            this.checkedAt = checkedAt;
+            String login = routingUrl + LOGIN_PATH;
+            this.loginPrefix = login + "?" + ApiConstants.X_KRISTA_ORIGINAL_URL + "=";
+            this.bareLogin = Map.of(HttpHeaders.LOCATION, login);
+            this.recent = new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private synchronized Map<String, String> get(String originalUri) {
+            return recent.get(originalUri);
+        }
+
+        private synchronized void put(String originalUri, Map<String, String> headers) {
+            recent.put(originalUri, headers);
+        }
+
+    }
+
+}
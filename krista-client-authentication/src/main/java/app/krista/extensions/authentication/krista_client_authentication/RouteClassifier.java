@@ -0,0 +1,236 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiConstants;
+
+/**
+ * Classifies request paths as {@link Route#PUBLIC public}, {@link Route#LOGIN login} or
+ * {@link Route#PROTECTED protected} in a single walk over a path-segment trie.
+ * <p>
+ * Rules are written as {@code [METHOD ]/segment/segment}, where a {@code *} segment matches any one segment and a
+ * trailing {@code **} matches the rest of the path. Literal segments take precedence over {@code *}, which takes
+ * precedence over {@code **}. A rule without a method applies to every method. Paths containing {@code .} or
+ * {@code ..} segments are always protected so that they cannot escape a public prefix.
+ * <p>
+ * Public routes skip the session lookup even for requests that carry a valid session, so the defaults cover only
+ * the authenticator script, the login preflight and {@code /static/docs}. Anything else, such as health checks, has
+ * to be opted in with the {@value #PUBLIC_ROUTES_PROPERTY} system property as a comma separated list of rules, e.g.
+ * {@code /health,/health/**}.
+ */
+public final class RouteClassifier {
+
+    public enum Route {
+        PUBLIC, LOGIN, PROTECTED
+    }
+
+    public static final String PUBLIC_ROUTES_PROPERTY = "krista.authn.publicRoutes";
+
+    static final List<String> DEFAULT_PUBLIC_ROUTES = List.of(
+            "GET /authenticator",
+            "/static/docs/**",
+            "OPTIONS " + ApiConstants.LOGIN_API
+    );
+
+    static final List<String> DEFAULT_LOGIN_ROUTES = List.of(ApiConstants.LOGIN_API);
+
+    private static final RouteClassifier DEFAULT = new RouteClassifier(
+            withConfigured(DEFAULT_PUBLIC_ROUTES, System.getProperty(PUBLIC_ROUTES_PROPERTY)),
+            DEFAULT_LOGIN_ROUTES);
+
+    private final Node root = new Node(null);
+
+    public RouteClassifier(Collection<String> publicRoutes, Collection<String> loginRoutes) {
+        publicRoutes.forEach(rule -> add(rule, Route.PUBLIC));
+        loginRoutes.forEach(rule -> add(rule, Route.LOGIN));
+    }
+
+    public static RouteClassifier getDefault() {
+        return DEFAULT;
+    }
+
+    public Route classify(String method, String path) {
+        if (path == null || hasDotSegment(path)) {
+            return Route.PROTECTED;
+        }
+        Route route = match(root, method, path, 0);
+        return route != null ? route : Route.PROTECTED;
+    }
+
+    private void add(String rule, Route route) {
+        String trimmed = rule.trim();
+        String method = null;
+        int space = trimmed.indexOf(' ');
+        if (space > 0) {
+            method = trimmed.substring(0, space);
+            trimmed = trimmed.substring(space + 1).trim();
+        }
+        if (!trimmed.startsWith("/")) {
+            throw new IllegalArgumentException("Route must start with '/': " + rule);
+        }
+        Node node = root;
+        String[] segments = trimmed.substring(1).split("/");
+        for (int index = 0; index < segments.length; index++) {
+            String segment = segments[index];
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if ("**".equals(segment)) {
+                if (index != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' must be the last segment: " + rule);
+                }
+                if (node.rest == null) {
+                    node.rest = new Node("**");
+                }
+                node = node.rest;
+            } else if ("*".equals(segment)) {
+                if (node.any == null) {
+                    node.any = new Node("*");
+                }
+                node = node.any;
+            } else {
+                node = node.childOrCreate(segment);
+            }
+        }
+        node.setRoute(method, route);
+    }
+
+    private static Route match(Node node, String method, String path, int from) {
+        int position = from;
+        int length = path.length();
+        while (position < length && path.charAt(position) == '/') {
+            position++;
+        }
+        if (position == length) {
+            Route route = node.route(method);
+            return route != null || node.rest == null ? route : node.rest.route(method);
+        }
+        int end = path.indexOf('/', position);
+        if (end < 0) {
+            end = length;
+        }
+        Node child = node.child(path, position, end);
+        if (child != null) {
+            Route route = match(child, method, path, end);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.any != null) {
+            Route route = match(node.any, method, path, end);
+            if (route != null) {
+                return route;
+            }
+        }
+        return node.rest != null ? node.rest.route(method) : null;
+    }
+
+    private static boolean hasDotSegment(String path) {
+        int segmentStart = 0;
+        int length = path.length();
+        for (int index = 0; index <= length; index++) {
+            if (index == length || path.charAt(index) == '/') {
+                int segmentLength = index - segmentStart;
+                if ((segmentLength == 1 || segmentLength == 2) && path.charAt(segmentStart) == '.'
+                        && path.charAt(index - 1) == '.') {
+                    return true;
+                }
+                segmentStart = index + 1;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> withConfigured(List<String> defaults, String configured) {
+        if (configured == null || configured.isBlank()) {
+            return defaults;
+        }
+        List<String> routes = new ArrayList<>(defaults);
+        Arrays.stream(configured.split(","))
+                .map(String::trim)
+                .filter(rule -> !rule.isEmpty())
+                .forEach(routes::add);
+        return routes;
+    }
+
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final String segment;
+        private Node[] children = NO_CHILDREN;
+        private Node any;
+        private Node rest;
+        private Route anyMethodRoute;
+        private Map<String, Route> methodRoutes;
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private Node child(String path, int from, int to) {
+            int length = to - from;
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(from, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(String name) {
+            Node child = child(name, 0, name.length());
+            if (child == null) {
+                child = new Node(name);
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+
+        private void setRoute(String method, Route route) {
+            if (method == null) {
+                anyMethodRoute = route;
+            } else {
+                if (methodRoutes == null) {
+                    methodRoutes = new HashMap<>();
+                }
+                methodRoutes.put(method, route);
+            }
+        }
+
+        private Route route(String method) {
+            if (methodRoutes != null && method != null) {
+                Route route = methodRoutes.get(method);
+                if (route != null) {
+                    return route;
+                }
+            }
+            return anyMethodRoute;
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.activity;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives batches of session activity from the {@link ActivityTracker} flusher. Calls come from that single thread,
+ * one batch at a time. A batch that fails is offered again, merged with newer activity, on the next flush.
+ */
+public interface ActivitySink {
+
+    void write(List<SessionActivity> batch) throws IOException;
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.activity;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks when each session was last used without writing anything per request beyond one field.
+ * <p>
+ * Sessions map to per-session cells held in striped tables. On a request, {@link #record} finds the session's cell
+ * and advances its last-seen time with a single relaxed write; only a session's first request in a tracking period
+ * inserts a cell. A background flusher visits every cell at a fixed cadence, emits those that moved since the last
+ * flush to the {@link ActivitySink} in batches, and drops cells that have been idle for {@code idleMillis}. A batch
+ * the sink rejects stays unflushed and goes out with the next flush.
+ * <p>
+ * The default tracker is configured by {@code krista.authn.activity.*} system properties: {@code sink} is
+ * {@code off} (the default, which makes {@link #record} a no-op), {@code file} (written to {@code file}, rotated at
+ * {@code maxFileBytes} keeping {@code maxFiles} files) or {@code memory}, which only code in this node can read;
+ * {@code flushMillis} sets the cadence, {@code maxSessions} bounds the tracked sessions and {@code idleMillis} how
+ * long an idle session is kept.
+ */
+public class ActivityTracker implements AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_MILLIS = Long.getLong("krista.authn.activity.flushMillis", 10_000);
+    public static final long DEFAULT_IDLE_MILLIS = Long.getLong("krista.authn.activity.idleMillis", 1_800_000);
+    public static final int DEFAULT_MAX_SESSIONS = Integer.getInteger("krista.authn.activity.maxSessions", 100_000);
+    private static final int STRIPES = 16;
+    private static final int DEFAULT_BATCH_SIZE = 1_000;
+    private static final Logger logger = LoggerFactory.getLogger(ActivityTracker.class);
+
+    private final ActivitySink sink;
+    private final int maxSessionsPerStripe;
+    private final long idleMillis;
+    private final int batchSize;
+    private final LongSupplier clockMillis;
+    @SuppressWarnings("unchecked")
+    private final Map<String, Cell>[] stripes = new Map[STRIPES];
+    private final LongAdder untracked = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    public ActivityTracker(ActivitySink sink) {
+        this(sink, DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_MILLIS, DEFAULT_BATCH_SIZE, System::currentTimeMillis);
+    }
+
+    ActivityTracker(ActivitySink sink, int maxSessions, long idleMillis, int batchSize, LongSupplier clockMillis) {
+        this.sink = sink;
+        this.maxSessionsPerStripe = Math.max(1, maxSessions / STRIPES);
+        this.idleMillis = idleMillis;
+        this.batchSize = batchSize;
+        this.clockMillis = clockMillis;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Returns the tracker configured by system properties, flushing in the background.
+     */
+    public static ActivityTracker getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Notes that the session was just used by the given account. The account recorded is the one the session was
+     * first seen with in the current tracking period.
+     */
+    public void record(String clientSessionId, String accountId) {
+        if (sink == null || clientSessionId == null) {
+            return;
+        }
+        Map<String, Cell> stripe = stripes[spread(clientSessionId.hashCode()) & (STRIPES - 1)];
+        long now = clockMillis.getAsLong();
+        Cell cell = stripe.get(clientSessionId);
+        if (cell == null) {
+            if (stripe.size() >= maxSessionsPerStripe) {
+                untracked.increment();
+                return;
+            }
+            cell = stripe.putIfAbsent(clientSessionId, new Cell(accountId, now));
+            if (cell == null) {
+                return;
+            }
+        }
+        cell.touch(now);
+    }
+
+    /**
+     * Starts flushing every {@code periodMillis} on a daemon thread.
+     */
+    public synchronized ActivityTracker start(long periodMillis) {
+        if (flusher == null && sink != null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "krista-authn-activity");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleAtFixedRate(this::flush, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Emits the activity recorded since the last flush and forgets sessions that have been idle too long.
+     */
+    public synchronized void flush() {
+        if (sink == null) {
+            return;
+        }
+        long now = clockMillis.getAsLong();
+        List<SessionActivity> batch = new ArrayList<>(batchSize);
+        List<Cell> cells = new ArrayList<>(batchSize);
+        for (Map<String, Cell> stripe : stripes) {
+            for (Map.Entry<String, Cell> entry : stripe.entrySet()) {
+                Cell cell = entry.getValue();
+                long lastSeen = cell.lastSeen();
+                if (lastSeen != cell.flushedSeen) {
+                    batch.add(new SessionActivity(entry.getKey(), cell.accountId, lastSeen));
+                    cells.add(cell);
+                    if (batch.size() == batchSize) {
+                        emit(batch, cells);
+                    }
+                } else if (now - lastSeen >= idleMillis) {
+                    stripe.remove(entry.getKey(), cell);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            emit(batch, cells);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flush();
+        if (sink instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) sink).close();
+            } catch (Exception cause) {
+                logger.warn("Could not close the session activity sink.", cause);
+            }
+        }
+    }
+
+    /**
+     * Returns how many sessions were not tracked because the tables were full.
+     */
+    public long getUntrackedCount() {
+        return untracked.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushed.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<String, Cell> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private void emit(List<SessionActivity> batch, List<Cell> cells) {
+        try {
+            sink.write(Collections.unmodifiableList(new ArrayList<>(batch)));
+            for (int i = 0; i < cells.size(); i++) {
+                cells.get(i).flushedSeen = batch.get(i).getLastSeenMillis();
+            }
+            flushed.add(batch.size());
+        } catch (IOException | RuntimeException cause) {
+            failedBatches.increment();
+            logger.warn("Could not write {} session activity records; retrying on the next flush.", batch.size(),
+                    cause);
+        }
+        batch.clear();
+        cells.clear();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static ActivityTracker fromProperties() {
+        String kind = System.getProperty("krista.authn.activity.sink", "off");
+        ActivitySink sink;
+        if ("file".equalsIgnoreCase(kind)) {
+            sink = new FileActivitySink(Path.of(System.getProperty("krista.authn.activity.file",
+                    Path.of(System.getProperty("java.io.tmpdir"), "krista-session-activity.jsonl").toString())),
+                    Long.getLong("krista.authn.activity.maxFileBytes", FileActivitySink.DEFAULT_MAX_FILE_BYTES),
+                    Integer.getInteger("krista.authn.activity.maxFiles", FileActivitySink.DEFAULT_MAX_FILES));
+        } else if ("memory".equalsIgnoreCase(kind)) {
+            sink = new InMemoryActivitySink(DEFAULT_IDLE_MILLIS);
+        } else {
+            sink = null;
+        }
+        return new ActivityTracker(sink).start(DEFAULT_FLUSH_MILLIS);
+    }
+
+    private static final class DefaultHolder {
+
+        private static final ActivityTracker INSTANCE = fromProperties();
+
+    }
+
+    private static final class Cell {
+
+        private static final VarHandle LAST_SEEN;
+
+        static {
+            try {
+                LAST_SEEN = MethodHandles.lookup().findVarHandle(Cell.class, "lastSeen", long.class);
+            } catch (ReflectiveOperationException cause) {
+                throw new ExceptionInInitializerError(cause);
+            }
+        }
+
+        private final String accountId;
+        private long lastSeen;
+        private long flushedSeen = Long.MIN_VALUE;
+
+        private Cell(String accountId, long now) {
+            this.accountId = accountId;
+            this.lastSeen = now;
+        }
+
+        private void touch(long now) {
+            if ((long) LAST_SEEN.getOpaque(this) < now) {
+                LAST_SEEN.setOpaque(this, now);
+            }
+        }
+
+        private long lastSeen() {
+            return (long) LAST_SEEN.getOpaque(this);
+        }
+
+    }
+
+}
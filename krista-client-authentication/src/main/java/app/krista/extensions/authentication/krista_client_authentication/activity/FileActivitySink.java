@@ -0,0 +1,141 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.activity;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Appends session activity to a local file, one JSON object per line.
+ * <p>
+ * A client session id is a bearer credential, so the file records the first 16 bytes of its SHA-256 digest instead:
+ * enough to tell sessions apart and to match a known id, useless for presenting one.
+ * <p>
+ * Once a line would take the file past {@code maxFileBytes}, the file is rotated: it is renamed to {@code <file>.1},
+ * older generations move up by one, and at most {@code maxFiles} files are kept, including the one being written.
+ */
+public class FileActivitySink implements ActivitySink, Closeable {
+
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Gson gson = new Gson();
+    private final MessageDigest digest;
+    private OutputStream out;
+    private long fileBytes;
+
+    public FileActivitySink(Path file) {
+        this(file, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    public FileActivitySink(Path file, long maxFileBytes, int maxFiles) {
+        if (maxFileBytes <= 0 || maxFiles < 1) {
+            throw new IllegalArgumentException("Invalid activity file limits: " + maxFileBytes + " bytes, "
+                    + maxFiles + " files");
+        }
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException cause) {
+            throw new IllegalStateException("SHA-256 is not available.", cause);
+        }
+    }
+
+    @Override
+    public void write(List<SessionActivity> batch) throws IOException {
+        try {
+            for (SessionActivity activity : batch) {
+                JsonObject line = new JsonObject();
+                line.addProperty("session", fingerprint(activity.getClientSessionId()));
+                line.addProperty("account", activity.getAccountId());
+                line.addProperty("lastSeen", activity.getLastSeenMillis());
+                byte[] bytes = (gson.toJson(line) + "\n").getBytes(StandardCharsets.UTF_8);
+                if (out == null) {
+                    open();
+                }
+                if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+                    rotate();
+                }
+                out.write(bytes);
+                fileBytes += bytes.length;
+            }
+            if (out != null) {
+                out.flush();
+            }
+        } catch (IOException cause) {
+            close();
+            throw cause;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            OutputStream closing = out;
+            out = null;
+            closing.close();
+        }
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND));
+        fileBytes = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        close();
+        Files.deleteIfExists(generation(maxFiles - 1));
+        for (int index = maxFiles - 2; index >= 0; index--) {
+            Path source = generation(index);
+            if (Files.exists(source)) {
+                Files.move(source, generation(index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        open();
+    }
+
+    private Path generation(int index) {
+        return index == 0 ? file : file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private String fingerprint(String clientSessionId) {
+        byte[] hash = digest.digest(clientSessionId.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 16);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.activity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the latest flushed activity of each session in memory, for idle checks within this node and for tests.
+ * Sessions not seen for {@code retentionMillis} are no longer returned and are dropped by the next prune, which a
+ * batch runs at most once per {@code pruneIntervalMillis} so that a flush of many batches scans the map only once.
+ */
+public class InMemoryActivitySink implements ActivitySink {
+
+    private final long retentionMillis;
+    private final long pruneIntervalMillis;
+    private final LongSupplier clockMillis;
+    private final Map<String, SessionActivity> latest = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private long lastPrune = Long.MIN_VALUE;
+
+    public InMemoryActivitySink(long retentionMillis) {
+        this(retentionMillis, ActivityTracker.DEFAULT_FLUSH_MILLIS, System::currentTimeMillis);
+    }
+
+    InMemoryActivitySink(long retentionMillis, long pruneIntervalMillis, LongSupplier clockMillis) {
+        this.retentionMillis = retentionMillis;
+        this.pruneIntervalMillis = pruneIntervalMillis;
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public void write(List<SessionActivity> batch) {
+        for (SessionActivity activity : batch) {
+            latest.put(activity.getClientSessionId(), activity);
+        }
+        long now = clockMillis.getAsLong();
+        if (lastPrune == Long.MIN_VALUE || now - lastPrune >= pruneIntervalMillis) {
+            lastPrune = now;
+            latest.values().removeIf(activity -> isExpired(activity, now));
+        }
+        batches.increment();
+    }
+
+    /**
+     * Returns the latest flushed activity of the session, or {@code null} if none is retained.
+     */
+    public SessionActivity get(String clientSessionId) {
+        SessionActivity activity = latest.get(clientSessionId);
+        return activity != null && !isExpired(activity, clockMillis.getAsLong()) ? activity : null;
+    }
+
+    public int size() {
+        return latest.size();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    private boolean isExpired(SessionActivity activity, long now) {
+        return now - activity.getLastSeenMillis() > retentionMillis;
+    }
+
+}
@@ -27,6 +27,8 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.inject.Inject;
 import javax.naming.AuthenticationException;
 import javax.ws.rs.*;
@@ -34,35 +36,76 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import app.krista.extension.authorization.AuthorizationException;
 import app.krista.extension.executor.Invoker;
 import app.krista.extension.request.RoutingInfo;
 import app.krista.extension.request.protos.http.HttpProtocol;
 import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiConstants;
 import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiUtility;
+import app.krista.extensions.authentication.krista_client_authentication.audit.AuditLog;
+import app.krista.extensions.authentication.krista_client_authentication.jfr.AuthenticatorRenderEvent;
+import app.krista.extensions.authentication.krista_client_authentication.jfr.LoginEvent;
+import app.krista.extensions.authentication.krista_client_authentication.logging.AsyncAuthLogger;
+import app.krista.extensions.authentication.krista_client_authentication.logging.AuthLogEvent;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientKeyResolver;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientRateLimiter;
+import app.krista.extensions.authentication.krista_client_authentication.session.AdaptiveConcurrencyLimiter;
+import app.krista.extensions.authentication.krista_client_authentication.session.LimitExceededException;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
 import app.krista.ksdk.authentication.SessionManager;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 @SuppressWarnings("deprecation")
 @Path("/")
 public class AuthenticationResource {
 
-    private static final Logger logger = LoggerFactory.getLogger(AuthenticationResource.class);
-    private final SessionManager sessionManager;
+    private static final AsyncAuthLogger authLog = AsyncAuthLogger.getInstance();
+    private final SessionLookup sessions;
     private final Invoker invoker;
+    private final BlockingCalls blockingCalls;
+    private final ClientRateLimiter loginRateLimiter;
+    private final AuditLog auditLog;
+    private final ClientKeyResolver clientKeys;
 
     @Inject
     public AuthenticationResource(SessionManager sessionManager, Invoker invoker) {
-        this.sessionManager = sessionManager;
+        this(sessionManager, invoker, BlockingCalls.getDefault());
+    }
+
+    public AuthenticationResource(SessionManager sessionManager, Invoker invoker, BlockingCalls blockingCalls) {
+        this(sessionManager, invoker, blockingCalls, ClientRateLimiter.getLoginDefault());
+    }
+
+    public AuthenticationResource(SessionManager sessionManager, Invoker invoker, BlockingCalls blockingCalls,
+            ClientRateLimiter loginRateLimiter) {
+        this(sessionManager, invoker, blockingCalls, loginRateLimiter, AuditLog.getDefault());
+    }
+
+    public AuthenticationResource(SessionManager sessionManager, Invoker invoker, BlockingCalls blockingCalls,
+            ClientRateLimiter loginRateLimiter, AuditLog auditLog) {
+        this(sessionManager, invoker, blockingCalls, loginRateLimiter, auditLog, ClientKeyResolver.getDefault());
+    }
+
+    public AuthenticationResource(SessionManager sessionManager, Invoker invoker, BlockingCalls blockingCalls,
+            ClientRateLimiter loginRateLimiter, AuditLog auditLog, ClientKeyResolver clientKeys) {
+        this.sessions = AdaptiveConcurrencyLimiter.getDefault()
+                .limit(clientSessionId -> sessionManager.lookupAccountId(clientSessionId));
         this.invoker = invoker;
+        this.blockingCalls = blockingCalls;
+        this.loginRateLimiter = loginRateLimiter;
+        this.auditLog = auditLog;
+        this.clientKeys = clientKeys;
     }
 
     @GET
     @Path("/authenticator")
-    public Response getAuthenticator(@Context HttpHeaders httpHeaders, @QueryParam("key") String key)
-            throws IOException {
+    public CompletionStage<Response> getAuthenticator(@Context HttpHeaders httpHeaders,
+            @QueryParam("key") String key) {
+        String path = httpHeaders.getHeaderString(ApiConstants.X_KRISTA_ORIGINAL_URL);
+        return blockingCalls.respond(() -> renderAuthenticator(path, key));
+    }
 
+    private Response renderAuthenticator(String path, String key) throws IOException {
+        AuthenticatorRenderEvent event = new AuthenticatorRenderEvent();
+        event.begin();
         String jsAuthFn = "Auth";
         String jSWindowVariable = "Authenticator";
         if (key != null) {
@@ -70,8 +113,7 @@ public class AuthenticationResource {
             jSWindowVariable = key;
         }
 
-        String path = httpHeaders.getHeaderString(ApiConstants.X_KRISTA_ORIGINAL_URL);
-        System.out.println("Client Authenticator header path - " + path);
+        authLog.log(AuthLogEvent.AUTHENTICATOR_REQUESTED, path);
         String uriToSubstitute = !Objects.isNull(path)
                 ? path.substring(0, path.indexOf("authn") - 1)
                 : this.invoker.getRoutingInfo()
@@ -91,6 +133,12 @@ public class AuthenticationResource {
         for (Map.Entry<String, String> entry : translations.entrySet()) {
             page = page.replace(entry.getKey(), entry.getValue());
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.key = key;
+            event.size = page.length();
+            event.commit();
+        }
         return page.isEmpty()
                 ? Response.noContent().build()
                 : Response.ok(page)
@@ -115,14 +163,22 @@ public class AuthenticationResource {
     @Path("/login")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response login(@Context HttpHeaders headers, Map<String, String> loginInput,
-            @Context HttpHeaders httpHeaders)
-            throws AuthorizationException {
-
+    public CompletionStage<Response> login(@Context HttpHeaders headers, Map<String, String> loginInput,
+            @Context HttpHeaders httpHeaders) {
+        String clientKey = clientKeys.resolve(null, httpHeaders.getHeaderString(ApiConstants.X_FORWARDED_FOR),
+                httpHeaders.getHeaderString(ApiConstants.X_REAL_IP));
+        if (loginRateLimiter.isLimited(clientKey)) {
+            authLog.log(AuthLogEvent.LOGIN_REJECTED, null, "RateLimited");
+            auditLog.loginFailed(null, null, ApiConstants.TOO_MANY_REQUESTS, "RateLimited", clientKey);
+            return CompletableFuture.completedFuture(Response.status(ApiConstants.TOO_MANY_REQUESTS)
+                    .header(ApiConstants.RETRY_AFTER, ApiConstants.RETRY_AFTER_SECONDS)
+                    .build());
+        }
         String clientSessionId = loginInput.get(ApiConstants.CLIENTSESSIONID);
-        String messageToLog = "Client Session id :" + clientSessionId;
+        String source = "body";
 
         if (clientSessionId == null) {
+            source = "cookie";
             List<String> cookies = headers.getRequestHeaders().get("Cookie");
             if (cookies != null && !cookies.isEmpty()) {
                 String cookie = cookies.get(0);
@@ -130,25 +186,53 @@ public class AuthenticationResource {
             }
         }
 
-        logger.info(messageToLog);
+        String resolvedSessionId = clientSessionId;
+        String resolvedSource = source;
+        List<String> origins = httpHeaders.getRequestHeader("origin");
+        return blockingCalls.respond(() -> authenticate(resolvedSessionId, resolvedSource, origins, clientKey));
+    }
+
+    private Response authenticate(String clientSessionId, String source, List<String> origins, String clientKey) {
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        authLog.log(AuthLogEvent.LOGIN_REQUESTED, clientSessionId, source);
+        Response response;
         try {
-            if (sessionManager.lookupAccountId(clientSessionId) == null) {
+            String accountId = ApiUtility.lookupAccountId(sessions, clientSessionId, "login");
+            if (accountId == null) {
                 throw new AuthenticationException("Unauthenticated User");
             }
             String encodedClientSessionId = Base64.getEncoder().encodeToString(clientSessionId.getBytes());
-            String originUrl = httpHeaders.getRequestHeader("origin").get(0);
+            String originUrl = origins.get(0);
             URI originalUri = URI.create(originUrl);
 
-            return Response.status(202)
+            response = Response.status(202)
                     .header("Access-Control-Allow-Credentials", "true")
                     .header("Access-Control-Allow-Origin", originUrl)
                     .header("Access-Control-Allow-Methods", "POST,OPTIONS")
                     .header("Access-Control-Allow-Headers", "Content-Type, Accept")
                     .header("Set-Cookie", createSessionIdCookie(encodedClientSessionId, originalUri))
                     .build();
+            auditLog.loginSucceeded(clientSessionId, source, accountId, clientKey);
+        } catch (LimitExceededException ex) {
+            authLog.log(AuthLogEvent.LOGIN_REJECTED, clientSessionId, "Overloaded");
+            response = Response.status(ApiConstants.SERVICE_UNAVAILABLE)
+                    .header(ApiConstants.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                    .build();
+            auditLog.loginFailed(clientSessionId, source, ApiConstants.SERVICE_UNAVAILABLE, "Overloaded", clientKey);
         } catch (Exception ex) {
-            return Response.status(401).build();
+            authLog.log(AuthLogEvent.LOGIN_REJECTED, clientSessionId, ex.getClass().getSimpleName());
+            response = Response.status(401).build();
+            auditLog.loginFailed(clientSessionId, source, 401, ex.getClass().getSimpleName(), clientKey);
+            loginRateLimiter.tryAcquire(clientKey);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.status = response.getStatus();
+            event.commit();
         }
+        return response;
     }
 
     private String createSessionIdCookie(String sessionInfo, URI originalUri)
@@ -0,0 +1,90 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.api;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.ws.rs.core.Response;
+import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiConstants;
+
+/**
+ * Runs resource methods that block on platform calls on a virtual-thread-per-task executor, so container threads are
+ * released while {@code SessionManager} or routing lookups are in flight.
+ * <p>
+ * Every call has a deadline; when it passes the returned stage completes with {@code 503 Service Unavailable} and
+ * the virtual thread is interrupted. Exceptions thrown by the call complete the stage exceptionally and are mapped by
+ * the registered exception mappers as before. The default deadline can be set with the
+ * {@value #DEADLINE_PROPERTY} system property.
+ */
+public final class BlockingCalls {
+
+    public static final String DEADLINE_PROPERTY = "krista.authn.blockingDeadlineMillis";
+
+    private static final BlockingCalls DEFAULT = new BlockingCalls(Executors.newVirtualThreadPerTaskExecutor(),
+            Duration.ofMillis(Long.getLong(DEADLINE_PROPERTY, 5000)));
+
+    private final ExecutorService executor;
+    private final Duration deadline;
+
+    public BlockingCalls(ExecutorService executor, Duration deadline) {
+        this.executor = executor;
+        this.deadline = deadline;
+    }
+
+    public static BlockingCalls getDefault() {
+        return DEFAULT;
+    }
+
+    public CompletionStage<Response> respond(Callable<Response> call) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Throwable failure) {
+                result.completeExceptionally(failure);
+            }
+        });
+        return result
+                .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, failure) -> {
+                    if (failure == null) {
+                        return response;
+                    }
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause()
+                            : failure;
+                    if (cause instanceof TimeoutException) {
+                        task.cancel(true);
+                        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                .header(ApiConstants.RETRY_AFTER, ApiConstants.RETRY_AFTER_SECONDS)
+                                .build();
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+}
@@ -29,8 +29,17 @@ public class ApiConstants {
 
     public static final String X_KRISTA_CONTEXT = "X-Krista-Context";
     public static final String COOKIE = "Cookie";
-    public static final Object LOGIN_API = "/login";
+    public static final String AUTHORIZATION = "Authorization";
+    public static final String KRISTA_SCHEME = "Krista";
+    public static final String BEARER_SCHEME = "Bearer";
+    public static final String LOGIN_API = "/login";
     public static final String HOST = "host";
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    public static final String X_REAL_IP = "X-Real-IP";
+    public static final String RETRY_AFTER = "Retry-After";
+    public static final String RETRY_AFTER_SECONDS = "1";
+    public static final int TOO_MANY_REQUESTS = 429;
+    public static final int SERVICE_UNAVAILABLE = 503;
     public static final String BASE_URI_KEYWORD_TO_BE_REPLACED = "__BASE_URI__";
 
     public static final String CLIENTSESSIONID = "clientSessionId";
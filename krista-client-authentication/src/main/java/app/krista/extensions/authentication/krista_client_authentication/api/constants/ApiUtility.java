@@ -18,50 +18,107 @@
 
 package app.krista.extensions.authentication.krista_client_authentication.api.constants;
 
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import javax.ws.rs.core.Cookie;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import app.krista.extension.common.RequestContextDecoder;
+import app.krista.extensions.authentication.krista_client_authentication.jfr.CookieDecodeEvent;
+import app.krista.extensions.authentication.krista_client_authentication.jfr.SessionLookupEvent;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
 import org.glassfish.jersey.message.internal.CookiesParser;
 
 public class ApiUtility {
 
-    private static final Gson GSON = new Gson();
-
     private ApiUtility() {
 
     }
 
     public static String getClientSessionIdFromCookie(String cookie) {
+        CookieDecodeEvent event = new CookieDecodeEvent();
+        event.begin();
         String clientSessionId = null;
         if (cookie != null && cookie.contains(ApiConstants.CLIENTSESSIONID)) {
             clientSessionId = parseClientSessionIdFromCookie(cookie);
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.cookieLength = cookie != null ? cookie.length() : 0;
+            event.found = clientSessionId != null;
+            event.commit();
+        }
         return clientSessionId;
     }
 
+    /**
+     * Looks the client session id up through {@code sessions}, recording a {@link SessionLookupEvent} when the call is
+     * slower than the event's threshold.
+     */
+    public static String lookupAccountId(SessionLookup sessions, String clientSessionId, String source) {
+        SessionLookupEvent event = new SessionLookupEvent();
+        event.begin();
+        String accountId = sessions.lookupAccountId(clientSessionId);
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.hit = accountId != null;
+            event.commit();
+        }
+        return accountId;
+    }
+
+    /**
+     * Returns the credential of an {@code Authorization: Krista <clientSessionId>} or
+     * {@code Authorization: Bearer <clientSessionId>} header, or {@code null} for any other scheme or a malformed
+     * value. The scheme is matched in place, so headers for other schemes are rejected without copying.
+     */
+    public static String getClientSessionIdFromAuthorization(String authorization) {
+        if (authorization == null) {
+            return null;
+        }
+        int schemeEnd = matchScheme(authorization, ApiConstants.KRISTA_SCHEME);
+        if (schemeEnd < 0) {
+            schemeEnd = matchScheme(authorization, ApiConstants.BEARER_SCHEME);
+            if (schemeEnd < 0) {
+                return null;
+            }
+        }
+        int start = schemeEnd;
+        int end = authorization.length();
+        while (start < end && authorization.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && authorization.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        for (int index = start; index < end; index++) {
+            if (Character.isWhitespace(authorization.charAt(index))) {
+                return null;
+            }
+        }
+        return authorization.substring(start, end);
+    }
+
+    private static int matchScheme(String authorization, String scheme) {
+        int length = scheme.length();
+        return authorization.length() > length
+                && authorization.regionMatches(true, 0, scheme, 0, length)
+                && authorization.charAt(length) == ' '
+                ? length
+                : -1;
+    }
+
     public static String parseClientSessionIdFromCookie(String cookie) {
         String clientSessionId = null;
         if (cookie != null && !cookie.isBlank()) {
             Map<String, Cookie> cookies = CookiesParser.parseCookies(cookie);
             Cookie xKristaContextCookie = cookies.get("X-Krista-Context");
-            String encodedRequestContext;
             if (xKristaContextCookie != null) {
-                encodedRequestContext = xKristaContextCookie.getValue();
-                if (encodedRequestContext != null && !encodedRequestContext.isBlank()) {
-                    JsonObject jsonObject = decodeRequestContext(encodedRequestContext);
-                    clientSessionId = jsonObject.get("clientSessionId").getAsString();
-                }
+                clientSessionId = RequestContextDecoder.getClientSessionId(xKristaContextCookie.getValue());
             }
         }
         return clientSessionId;
     }
 
-    private static JsonObject decodeRequestContext(String encodedRequestContext) {
-        String requestContextString = URLDecoder.decode(encodedRequestContext, StandardCharsets.UTF_8);
-        return GSON.fromJson(requestContextString, JsonObject.class);
-    }
-
 }
@@ -21,6 +21,7 @@ package app.krista.extensions.authentication.krista_client_authentication.applic
 import java.util.Set;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
+import app.krista.extension.common.AuthenticationResponseBodyWriter;
 import app.krista.extensions.authentication.krista_client_authentication.api.AuthenticationResource;
 import com.kristasoft.common.jaxrs.impl.GsonMessageBodyHandler;
 import org.jvnet.hk2.annotations.ContractsProvided;
@@ -38,7 +39,7 @@ public class KristaClientApplication extends Application {
 
     @Override
     public Set<Object> getSingletons() {
-        return Set.of(GsonMessageBodyHandler.create());
+        return Set.of(new AuthenticationResponseBodyWriter(), GsonMessageBodyHandler.create());
     }
 
 }
@@ -0,0 +1,261 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Encodes audit records into a reusable buffer and writes it to rotating files through a {@link FileChannel}. Used
+ * only by the {@link AuditLog} writer thread.
+ * <p>
+ * A file is closed once it would grow past {@code maxFileBytes}, and at most {@code maxFiles} files are kept,
+ * including the one being written. Names are {@code audit-<epoch millis>-<counter>.<jsonl|bin>}, so they sort by
+ * age. Client session ids are never written: records carry the first 8 bytes of the id's SHA-256 digest, enough to
+ * correlate events of one session.
+ * <p>
+ * A binary file starts with the magic {@code KAUD} and a version byte; each record is a 2-byte length followed by
+ * the type code (1 byte), time (8 bytes), status (2 bytes), the session fingerprint (8 bytes, zero without a session)
+ * and the source, account, client and reason as 2-byte-length-prefixed UTF-8 strings, {@code 0xFFFF} marking null.
+ * All numbers are big-endian. Strings longer than {@value #MAX_FIELD_BYTES} bytes (characters in JSON) are cut at the
+ * last whole character that fits, so a truncated field is still valid UTF-8.
+ */
+final class AuditFileWriter implements Closeable {
+
+    static final byte[] BINARY_MAGIC = {'K', 'A', 'U', 'D', 1};
+    private static final int NULL_LENGTH = 0xFFFF;
+    private static final int MAX_FIELD_BYTES = 1024;
+    private static final byte[] NO_SESSION = new byte[8];
+
+    enum Format {
+        JSONL("jsonl"),
+        BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final Path directory;
+    private final Format format;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final StringBuilder line = new StringBuilder(256);
+    private final MessageDigest digest;
+    private FileChannel channel;
+    private long fileBytes;
+    private int fileCounter;
+
+    AuditFileWriter(Path directory, Format format, long maxFileBytes, int maxFiles) {
+        this.directory = directory;
+        this.format = format;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException cause) {
+            throw new IllegalStateException("SHA-256 is not available.", cause);
+        }
+    }
+
+    /**
+     * Encodes one record into the batch buffer, writing the buffer out first if the record does not fit.
+     */
+    void append(AuditRecord record) throws IOException {
+        int start = buffer.position();
+        try {
+            encode(record);
+        } catch (BufferOverflowException full) {
+            buffer.position(start);
+            flush();
+            encode(record);
+        }
+    }
+
+    /**
+     * Writes out the records appended since the last flush.
+     */
+    void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            if (channel == null || fileBytes + buffer.remaining() > maxFileBytes) {
+                rotate();
+            }
+            while (buffer.hasRemaining()) {
+                fileBytes += channel.write(buffer);
+            }
+        } catch (IOException cause) {
+            closeChannel();
+            throw cause;
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            closeChannel();
+        }
+    }
+
+    private void encode(AuditRecord record) {
+        if (format == Format.BINARY) {
+            encodeBinary(record);
+        } else {
+            encodeJson(record);
+        }
+    }
+
+    private void encodeJson(AuditRecord record) {
+        line.setLength(0);
+        line.append("{\"time\":").append(record.timeMillis)
+                .append(",\"type\":\"").append(record.type.name()).append('"')
+                .append(",\"status\":").append(record.status);
+        appendJson("session", record.clientSessionId != null ? fingerprintHex(record.clientSessionId) : null);
+        appendJson("source", record.source);
+        appendJson("account", record.accountId);
+        appendJson("client", record.clientKey);
+        appendJson("reason", record.reason);
+        line.append("}\n");
+        buffer.put(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void appendJson(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        int length = Math.min(value.length(), MAX_FIELD_BYTES);
+        if (length < value.length() && Character.isHighSurrogate(value.charAt(length - 1))) {
+            length--;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private void encodeBinary(AuditRecord record) {
+        int lengthPosition = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put((byte) record.type.getCode());
+        buffer.putLong(record.timeMillis);
+        buffer.putShort((short) record.status);
+        buffer.put(record.clientSessionId != null ? fingerprint(record.clientSessionId) : NO_SESSION);
+        putString(record.source);
+        putString(record.accountId);
+        putString(record.clientKey);
+        putString(record.reason);
+        buffer.putShort(lengthPosition, (short) (buffer.position() - lengthPosition - 2));
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_FIELD_BYTES);
+        // Back up over continuation bytes (10xxxxxx) so the cut falls before the character it would split.
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    private byte[] fingerprint(String clientSessionId) {
+        byte[] hash = digest.digest(clientSessionId.getBytes(StandardCharsets.UTF_8));
+        byte[] fingerprint = new byte[8];
+        System.arraycopy(hash, 0, fingerprint, 0, fingerprint.length);
+        return fingerprint;
+    }
+
+    private String fingerprintHex(String clientSessionId) {
+        return HexFormat.of().formatHex(fingerprint(clientSessionId));
+    }
+
+    private void rotate() throws IOException {
+        closeChannel();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("audit-%013d-%06d.%s", System.currentTimeMillis(),
+                fileCounter++ % 1_000_000, format.extension));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+        if (format == Format.BINARY && fileBytes == 0) {
+            fileBytes += channel.write(ByteBuffer.wrap(BINARY_MAGIC));
+        }
+        deleteOldFiles();
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "audit-*." + format.extension)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing more can be done for a file that fails to close.
+            }
+            channel = null;
+            fileBytes = 0;
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import app.krista.extensions.authentication.krista_client_authentication.logging.MpscRing;
+import app.krista.extensions.authentication.krista_client_authentication.logging.RingDrainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking audit trail of logins and must-authenticate responses.
+ * <p>
+ * Request threads publish into an {@link MpscRing} of preallocated records; a single {@link RingDrainer} thread,
+ * asleep until a request signals it, drains the ring in batches and appends them to rotating local files, as JSON
+ * lines or compact binary records (see {@link AuditFileWriter}). When the ring is full, the {@link OverflowPolicy}
+ * either drops the event at once or lets the request wait up to a short timeout for room. Every event lost, whether
+ * to a full ring, an expired wait or a failed write, is counted.
+ * <p>
+ * The default log records nothing unless enabled. It is configured by {@code krista.authn.audit.*} system
+ * properties: {@code enabled} (default {@code false}), {@code dir}, {@code format} ({@code jsonl} or
+ * {@code binary}), {@code policy} ({@code drop} or {@code block}), {@code blockTimeoutMillis}, {@code capacity},
+ * {@code maxFileBytes} and {@code maxFiles}.
+ */
+public final class AuditLog implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+    private static final int BATCH_SIZE = 512;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final AuditLog DISABLED = new AuditLog(null, 2, OverflowPolicy.DROP, 0);
+
+    private final MpscRing<AuditRecord> ring;
+    private final AuditFileWriter writer;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final LongAdder droppedFull = new LongAdder();
+    private final LongAdder droppedTimeout = new LongAdder();
+    private final LongAdder droppedWrite = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private volatile RingDrainer drainer;
+    private int pendingInBuffer;
+
+    AuditLog(AuditFileWriter writer, int capacity, OverflowPolicy policy, long blockTimeoutMillis) {
+        this.writer = writer;
+        this.ring = writer != null ? new MpscRing<>(capacity, AuditRecord::new) : null;
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+    }
+
+    /**
+     * Returns the audit log configured by system properties, writing on a background thread.
+     */
+    public static AuditLog getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Returns an audit log that records nothing.
+     */
+    public static AuditLog disabled() {
+        return DISABLED;
+    }
+
+    public void loginSucceeded(String clientSessionId, String source, String accountId, String clientKey) {
+        publish(AuditEventType.LOGIN_SUCCEEDED, 202, source, accountId, clientKey, null, clientSessionId);
+    }
+
+    public void loginFailed(String clientSessionId, String source, int status, String reason, String clientKey) {
+        publish(AuditEventType.LOGIN_FAILED, status, source, null, clientKey, reason, clientSessionId);
+    }
+
+    public void mustAuthenticate(int status, String clientKey) {
+        publish(AuditEventType.MUST_AUTHENTICATE, status, null, null, clientKey, null, null);
+    }
+
+    /**
+     * Returns how many events were dropped because the ring was full (under {@link OverflowPolicy#DROP}).
+     */
+    public long getDroppedFull() {
+        return droppedFull.sum();
+    }
+
+    /**
+     * Returns how many events were dropped after waiting for room for the block timeout.
+     */
+    public long getDroppedTimeout() {
+        return droppedTimeout.sum();
+    }
+
+    /**
+     * Returns how many events were lost because their batch could not be written.
+     */
+    public long getDroppedWrite() {
+        return droppedWrite.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    synchronized AuditLog start() {
+        if (ring != null && drainer == null) {
+            drainer = new RingDrainer("krista-authn-audit-writer", this::drain, () -> !ring.isEmpty()).start();
+        }
+        return this;
+    }
+
+    /**
+     * Stops the writer after it has written everything already published, and closes the current file.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (ring == null) {
+            return;
+        }
+        RingDrainer running;
+        synchronized (this) {
+            running = drainer;
+            drainer = null;
+        }
+        if (running != null) {
+            running.stop();
+        } else {
+            drain();
+        }
+        try {
+            writer.close();
+        } catch (IOException cause) {
+            logger.warn("Could not close the audit file.", cause);
+        }
+    }
+
+    private void publish(AuditEventType type, int status, String source, String accountId, String clientKey,
+            String reason, String clientSessionId) {
+        if (ring == null) {
+            return;
+        }
+        AuditRecord record = ring.claim();
+        if (record == null) {
+            if (policy == OverflowPolicy.DROP) {
+                droppedFull.increment();
+                return;
+            }
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            do {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                record = ring.claim();
+            } while (record == null && System.nanoTime() - deadline < 0);
+            if (record == null) {
+                droppedTimeout.increment();
+                return;
+            }
+        }
+        record.type = type;
+        record.timeMillis = System.currentTimeMillis();
+        record.status = status;
+        record.source = source;
+        record.accountId = accountId;
+        record.clientKey = clientKey;
+        record.reason = reason;
+        record.clientSessionId = clientSessionId;
+        ring.publish(record);
+        RingDrainer current = drainer;
+        if (current != null) {
+            current.signal();
+        }
+    }
+
+    /**
+     * Writes out everything published so far and returns how many events that was. Called by the writer thread, or
+     * by the caller when no writer thread was started.
+     */
+    synchronized int drain() {
+        int total = 0;
+        int drained;
+        do {
+            drained = ring.drain(this::append, BATCH_SIZE);
+            total += drained;
+            flush();
+        } while (drained == BATCH_SIZE);
+        return total;
+    }
+
+    private void append(AuditRecord record) {
+        try {
+            writer.append(record);
+            pendingInBuffer++;
+        } catch (IOException cause) {
+            // The writer flushed to make room and failed; the buffered records and this one are lost.
+            pendingInBuffer++;
+            failed(cause);
+        }
+    }
+
+    private void flush() {
+        if (pendingInBuffer == 0) {
+            return;
+        }
+        try {
+            writer.flush();
+            written.add(pendingInBuffer);
+        } catch (IOException cause) {
+            failed(cause);
+        }
+        pendingInBuffer = 0;
+    }
+
+    private void failed(IOException cause) {
+        droppedWrite.add(pendingInBuffer);
+        pendingInBuffer = 0;
+        logger.warn("Could not write audit records.", cause);
+    }
+
+    private static AuditLog fromProperties() {
+        if (!Boolean.getBoolean("krista.authn.audit.enabled")) {
+            return DISABLED;
+        }
+        Path directory = Path.of(System.getProperty("krista.authn.audit.dir",
+                Path.of(System.getProperty("java.io.tmpdir"), "krista-authn-audit").toString()));
+        AuditFileWriter.Format format = "binary".equalsIgnoreCase(System.getProperty("krista.authn.audit.format"))
+                ? AuditFileWriter.Format.BINARY
+                : AuditFileWriter.Format.JSONL;
+        OverflowPolicy policy = "block".equalsIgnoreCase(System.getProperty("krista.authn.audit.policy"))
+                ? OverflowPolicy.BLOCK
+                : OverflowPolicy.DROP;
+        AuditFileWriter writer = new AuditFileWriter(directory, format,
+                Long.getLong("krista.authn.audit.maxFileBytes", 64L << 20),
+                Integer.getInteger("krista.authn.audit.maxFiles", 10));
+        return new AuditLog(writer, Integer.getInteger("krista.authn.audit.capacity", 8192), policy,
+                Long.getLong("krista.authn.audit.blockTimeoutMillis", 5)).start();
+    }
+
+    private static final class DefaultHolder {
+
+        private static final AuditLog INSTANCE = fromProperties();
+
+    }
+
+}
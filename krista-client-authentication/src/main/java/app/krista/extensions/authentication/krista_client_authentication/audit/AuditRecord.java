@@ -0,0 +1,48 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.audit;
+
+import app.krista.extensions.authentication.krista_client_authentication.logging.MpscRing;
+
+/**
+ * One preallocated audit event in the {@link AuditLog} ring, filled in place by the request thread and read by the
+ * writer.
+ */
+final class AuditRecord extends MpscRing.Slot {
+
+    AuditEventType type;
+    long timeMillis;
+    int status;
+    String source;
+    String accountId;
+    String clientKey;
+    String reason;
+    String clientSessionId;
+
+    @Override
+    protected void clear() {
+        type = null;
+        source = null;
+        accountId = null;
+        clientKey = null;
+        reason = null;
+        clientSessionId = null;
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Consistent-hash ring that assigns every key to one node. Each node is placed at {@code virtualNodes} points of a
+ * 64-bit ring and owns the keys hashing up to each of its points, so keys spread evenly and adding or removing a
+ * node moves only that node's share of them. The hash is fixed, so every node computes the same owners.
+ */
+final class HashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    HashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Set.copyOf(nodes);
+        long[][] placed = new long[this.nodes.size() * virtualNodes][];
+        String[] names = this.nodes.toArray(new String[0]);
+        Arrays.sort(names);
+        int count = 0;
+        for (int node = 0; node < names.length; node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                placed[count++] = new long[] {hash(names[node] + '#' + replica), node};
+            }
+        }
+        Arrays.sort(placed, Comparator.<long[]>comparingLong(point -> point[0]).thenComparingLong(point -> point[1]));
+        this.points = new long[count];
+        this.owners = new String[count];
+        for (int index = 0; index < count; index++) {
+            points[index] = placed[index][0];
+            owners[index] = names[(int) placed[index][1]];
+        }
+    }
+
+    /**
+     * Returns the node owning {@code key}, or {@code null} for an empty ring.
+     */
+    String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 code units, finished with the MurmurHash3 64-bit mix.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < value.length(); index++) {
+            hash ^= value.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
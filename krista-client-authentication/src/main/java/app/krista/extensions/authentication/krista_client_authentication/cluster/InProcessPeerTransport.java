@@ -0,0 +1,84 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
+
+/**
+ * Connects nodes in one JVM through a shared {@link Network}; a lookup calls the peer's handler directly on the
+ * calling thread. Meant for tests and for running several nodes in one process.
+ */
+public class InProcessPeerTransport implements PeerTransport {
+
+    private final Network network;
+    private volatile String nodeId;
+
+    public InProcessPeerTransport(Network network) {
+        this.network = network;
+    }
+
+    @Override
+    public void start(String nodeId, SessionLookup handler) {
+        this.nodeId = nodeId;
+        network.handlers.put(nodeId, handler);
+    }
+
+    @Override
+    public String lookup(String peerId, String clientSessionId) throws IOException {
+        SessionLookup handler = network.handlers.get(peerId);
+        if (handler == null || network.unreachable.contains(peerId)) {
+            throw new IOException("Peer is unreachable: " + peerId);
+        }
+        return handler.lookupAccountId(clientSessionId);
+    }
+
+    @Override
+    public void close() {
+        String started = nodeId;
+        if (started != null) {
+            network.handlers.remove(started);
+        }
+    }
+
+    /**
+     * The shared medium of a set of in-process transports.
+     */
+    public static final class Network {
+
+        private final Map<String, SessionLookup> handlers = new ConcurrentHashMap<>();
+        private final Set<String> unreachable = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Makes lookups sent to {@code nodeId} fail as if the node were down, or lets them through again.
+         */
+        public void setUnreachable(String nodeId, boolean unreachable) {
+            if (unreachable) {
+                this.unreachable.add(nodeId);
+            } else {
+                this.unreachable.remove(nodeId);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,348 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads session invalidations to every node of a cluster, so that a session revoked on one node stops being served
+ * from the caches of the others.
+ * <p>
+ * {@link #publish} only adds the session id to a pending set; repeated invalidations of one session coalesce there.
+ * Every {@code flushMillis} a background thread sends the pending ids in as few messages as the transport's size limit
+ * allows. Past {@code maxPending} ids the set collapses into a single evict-everything message.
+ * <p>
+ * Each message carries the sender's next sequence number. A receiver that sees a sender's sequence jump, because a
+ * message was lost or arrived out of order, cannot know which sessions it missed and evicts everything instead; a
+ * message that arrives late is still applied. A periodic heartbeat carries the sender's latest sequence number as a
+ * full-resync hint, so that a lost last message is noticed within {@code heartbeatMillis} even when no further
+ * invalidations follow. Received invalidations go to every registered {@link Listener}, one per local cache layer.
+ * <p>
+ * The default bus is configured by {@code krista.authn.invalidation.*} system properties: {@code transport} is
+ * {@code off} (the default) or {@code multicast} (on {@code group}:{@code port}, default 239.255.77.77:47877);
+ * {@code flushMillis}, {@code heartbeatMillis} and {@code maxPending} tune the timing and coalescing.
+ */
+public class InvalidationBus implements AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_MILLIS = Long.getLong("krista.authn.invalidation.flushMillis", 20);
+    public static final long DEFAULT_HEARTBEAT_MILLIS =
+            Long.getLong("krista.authn.invalidation.heartbeatMillis", 5_000);
+    public static final int DEFAULT_MAX_PENDING = Integer.getInteger("krista.authn.invalidation.maxPending", 10_000);
+    private static final int PEER_TIMEOUT_HEARTBEATS = 10;
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private final InvalidationTransport transport;
+    private final String nodeId;
+    private final int maxPending;
+    private final long heartbeatMillis;
+    private final LongSupplier clockMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pendingAll = new AtomicBoolean();
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private long sequence;
+    private ScheduledExecutorService flusher;
+
+    public InvalidationBus(InvalidationTransport transport) {
+        this(transport, UUID.randomUUID().toString(), DEFAULT_MAX_PENDING, DEFAULT_HEARTBEAT_MILLIS,
+                System::currentTimeMillis);
+    }
+
+    InvalidationBus(InvalidationTransport transport, String nodeId, int maxPending, long heartbeatMillis,
+            LongSupplier clockMillis) {
+        this.transport = transport;
+        this.nodeId = nodeId;
+        this.maxPending = maxPending;
+        this.heartbeatMillis = heartbeatMillis;
+        this.clockMillis = clockMillis;
+    }
+
+    /**
+     * Returns the bus configured by system properties, already started. Without a transport it publishes nothing.
+     */
+    public static InvalidationBus getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Registers a local cache layer to evict from when another node invalidates sessions.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Queues the invalidation of a session on every other node.
+     */
+    public void publish(String clientSessionId) {
+        if (transport == null || clientSessionId == null) {
+            return;
+        }
+        published.increment();
+        pending.add(clientSessionId);
+        if (pending.size() > maxPending) {
+            pendingAll.set(true);
+            pending.clear();
+        }
+    }
+
+    /**
+     * Queues the eviction of every session on every other node.
+     */
+    public void publishAll() {
+        if (transport == null) {
+            return;
+        }
+        published.increment();
+        pendingAll.set(true);
+        pending.clear();
+    }
+
+    /**
+     * Starts the transport and sends pending invalidations every {@code flushMillis} on a daemon thread.
+     */
+    public synchronized InvalidationBus start(long flushMillis) throws IOException {
+        if (flusher == null && transport != null) {
+            transport.start(this::receive);
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "krista-authn-invalidation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+            flusher.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Sends the invalidations published since the last flush.
+     */
+    public synchronized void flush() {
+        if (transport == null) {
+            return;
+        }
+        if (pendingAll.getAndSet(false)) {
+            pending.clear();
+            send(InvalidationMessage.ALL, List.of());
+            return;
+        }
+        int limit = transport.getMaxMessageBytes();
+        int headerBytes = InvalidationMessage.headerBytes(nodeId);
+        List<String> batch = new ArrayList<>();
+        int size = headerBytes;
+        for (Iterator<String> iterator = pending.iterator(); iterator.hasNext(); ) {
+            String clientSessionId = iterator.next();
+            iterator.remove();
+            int idBytes = InvalidationMessage.idBytes(clientSessionId);
+            if (headerBytes + idBytes > limit) {
+                // Too long to ever fit a message; only evicting everything covers it.
+                send(InvalidationMessage.ALL, List.of());
+                continue;
+            }
+            if (size + idBytes > limit || batch.size() == InvalidationMessage.maxIds()) {
+                send(0, batch);
+                batch = new ArrayList<>();
+                size = headerBytes;
+            }
+            batch.add(clientSessionId);
+            size += idBytes;
+        }
+        if (!batch.isEmpty()) {
+            send(0, batch);
+        }
+    }
+
+    /**
+     * Sends this node's latest sequence number so that peers notice messages they missed, and forgets peers that
+     * have not been heard from for several heartbeats.
+     */
+    public synchronized void heartbeat() {
+        if (transport == null) {
+            return;
+        }
+        sendMessage(new InvalidationMessage(nodeId, sequence, InvalidationMessage.HEARTBEAT, List.of()));
+        long cutoff = clockMillis.getAsLong() - PEER_TIMEOUT_HEARTBEATS * heartbeatMillis;
+        peers.values().removeIf(peer -> peer.lastHeardMillis < cutoff);
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * Returns how many times a missed message forced an eviction of everything.
+     */
+    public long getResyncCount() {
+        return resyncs.sum();
+    }
+
+    public long getMalformedCount() {
+        return malformed.sum();
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (flusher != null) {
+                flusher.shutdown();
+                flusher = null;
+            }
+        }
+        flush();
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    private void send(int flags, List<String> sessionIds) {
+        sendMessage(new InvalidationMessage(nodeId, ++sequence, flags, sessionIds));
+    }
+
+    private void sendMessage(InvalidationMessage message) {
+        try {
+            transport.send(message.encode());
+            messagesSent.increment();
+        } catch (IOException | RuntimeException cause) {
+            // Peers see the sequence gap at the next message or heartbeat and resynchronize.
+            sendFailures.increment();
+            logger.warn("Could not send session invalidations.", cause);
+        }
+    }
+
+    void receive(byte[] bytes) {
+        InvalidationMessage message;
+        try {
+            message = InvalidationMessage.decode(bytes);
+        } catch (IllegalArgumentException cause) {
+            malformed.increment();
+            return;
+        }
+        if (message.getNodeId().equals(nodeId)) {
+            return;
+        }
+        received.increment();
+        Peer peer = peers.computeIfAbsent(message.getNodeId(), id -> new Peer());
+        boolean missed;
+        synchronized (peer) {
+            long expected = message.isHeartbeat() ? peer.sequence : peer.sequence + 1;
+            missed = message.getSequence() > expected;
+            peer.sequence = Math.max(peer.sequence, message.getSequence());
+            peer.lastHeardMillis = clockMillis.getAsLong();
+        }
+        if (missed) {
+            resyncs.increment();
+            evictAll();
+        } else if (message.isAll()) {
+            evictAll();
+        } else {
+            for (String clientSessionId : message.getSessionIds()) {
+                for (Listener listener : listeners) {
+                    listener.invalidate(clientSessionId);
+                }
+            }
+        }
+    }
+
+    private void evictAll() {
+        for (Listener listener : listeners) {
+            listener.invalidateAll();
+        }
+    }
+
+    private static InvalidationBus fromProperties() {
+        String transport = System.getProperty("krista.authn.invalidation.transport", "off");
+        if (!"multicast".equalsIgnoreCase(transport)) {
+            return new InvalidationBus(null);
+        }
+        try {
+            InetAddress group = InetAddress.getByName(
+                    System.getProperty("krista.authn.invalidation.group", "239.255.77.77"));
+            int port = Integer.getInteger("krista.authn.invalidation.port", 47877);
+            return new InvalidationBus(new MulticastTransport(group, port)).start(DEFAULT_FLUSH_MILLIS);
+        } catch (IOException | RuntimeException cause) {
+            logger.error("Could not start the session invalidation bus; invalidations stay local.", cause);
+            return new InvalidationBus(null);
+        }
+    }
+
+    /**
+     * A local cache layer that evicts sessions invalidated on other nodes.
+     */
+    public interface Listener {
+
+        void invalidate(String clientSessionId);
+
+        void invalidateAll();
+
+    }
+
+    private static final class Peer {
+
+        private long sequence;
+        private long lastHeardMillis;
+
+    }
+
+    private static final class DefaultHolder {
+
+        private static final InvalidationBus INSTANCE = fromProperties();
+
+    }
+
+}
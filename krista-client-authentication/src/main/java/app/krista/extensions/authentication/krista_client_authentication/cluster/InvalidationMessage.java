@@ -0,0 +1,143 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One message on the invalidation bus: the sending node, its sequence number and either a list of session ids, an
+ * instruction to evict everything, or (for a heartbeat) nothing but the sender's latest sequence number.
+ * <p>
+ * Encoded as the magic {@code KI}, a version byte, a flags byte, the node id as a 1-byte-length-prefixed UTF-8
+ * string, the 8-byte sequence number, a 2-byte id count and the ids as 2-byte-length-prefixed UTF-8 strings. All
+ * numbers are big-endian.
+ */
+final class InvalidationMessage {
+
+    static final int ALL = 1;
+    static final int HEARTBEAT = 2;
+    private static final short MAGIC = ('K' << 8) | 'I';
+    private static final byte VERSION = 1;
+    private static final int MAX_IDS = 0xFFFF;
+
+    private final String nodeId;
+    private final long sequence;
+    private final int flags;
+    private final List<String> sessionIds;
+
+    InvalidationMessage(String nodeId, long sequence, int flags, List<String> sessionIds) {
+        this.nodeId = nodeId;
+        this.sequence = sequence;
+        this.flags = flags;
+        this.sessionIds = sessionIds;
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    boolean isAll() {
+        return (flags & ALL) != 0;
+    }
+
+    boolean isHeartbeat() {
+        return (flags & HEARTBEAT) != 0;
+    }
+
+    List<String> getSessionIds() {
+        return sessionIds;
+    }
+
+    /**
+     * Returns the encoded size of a message from {@code nodeId} without any session ids.
+     */
+    static int headerBytes(String nodeId) {
+        return 2 + 1 + 1 + 1 + nodeId.getBytes(StandardCharsets.UTF_8).length + 8 + 2;
+    }
+
+    /**
+     * Returns how many bytes {@code sessionId} adds to an encoded message.
+     */
+    static int idBytes(String sessionId) {
+        return 2 + sessionId.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static int maxIds() {
+        return MAX_IDS;
+    }
+
+    byte[] encode() {
+        byte[] node = nodeId.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> ids = new ArrayList<>(sessionIds.size());
+        int size = headerBytes(nodeId);
+        for (String sessionId : sessionIds) {
+            byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+            ids.add(id);
+            size += 2 + id.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putShort(MAGIC).put(VERSION).put((byte) flags);
+        buffer.put((byte) node.length).put(node);
+        buffer.putLong(sequence);
+        buffer.putShort((short) ids.size());
+        for (byte[] id : ids) {
+            buffer.putShort((short) id.length).put(id);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a message, throwing {@link IllegalArgumentException} for anything that is not one.
+     */
+    static InvalidationMessage decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getShort() != MAGIC || buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Not an invalidation message.");
+            }
+            int flags = buffer.get();
+            String nodeId = getString(buffer, Byte.toUnsignedInt(buffer.get()));
+            long sequence = buffer.getLong();
+            int count = Short.toUnsignedInt(buffer.getShort());
+            List<String> sessionIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                sessionIds.add(getString(buffer, Short.toUnsignedInt(buffer.getShort())));
+            }
+            return new InvalidationMessage(nodeId, sequence, flags, Collections.unmodifiableList(sessionIds));
+        } catch (BufferUnderflowException truncated) {
+            throw new IllegalArgumentException("Truncated invalidation message.", truncated);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded invalidation messages between the {@link InvalidationBus} instances of a cluster. Delivery may be
+ * lossy and unordered; the bus detects gaps from sequence numbers and recovers by evicting everything.
+ */
+public interface InvalidationTransport extends Closeable {
+
+    /**
+     * Returns the largest message this transport can carry in one send.
+     */
+    int getMaxMessageBytes();
+
+    /**
+     * Starts delivering messages sent by other nodes to {@code receiver}. Messages sent by this node may be delivered
+     * as well; the bus ignores them.
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    void send(byte[] message) throws IOException;
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Connects buses in one JVM through a shared {@link Hub}. A send is delivered synchronously, on the sending thread,
+ * to every other started transport of the hub. Meant for tests and for running several nodes in one process.
+ */
+public class LoopbackTransport implements InvalidationTransport {
+
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024;
+
+    private final Hub hub;
+    private volatile Consumer<byte[]> receiver;
+
+    public LoopbackTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public int getMaxMessageBytes() {
+        return MAX_MESSAGE_BYTES;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        hub.transports.addIfAbsent(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (LoopbackTransport transport : hub.transports) {
+            Consumer<byte[]> target = transport.receiver;
+            if (transport != this && target != null) {
+                target.accept(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        hub.transports.remove(this);
+        receiver = null;
+    }
+
+    /**
+     * The shared medium of a set of loopback transports.
+     */
+    public static final class Hub {
+
+        private final CopyOnWriteArrayList<LoopbackTransport> transports = new CopyOnWriteArrayList<>();
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exchanges messages over UDP multicast on the loopback interface, for nodes running on one host. Datagrams are sent
+ * with a time-to-live of 0 so they never leave the host, which also keeps session ids off the network.
+ */
+public class MulticastTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(MulticastTransport.class);
+    private static final int MAX_MESSAGE_BYTES = 1400;
+
+    private final InetAddress group;
+    private final int port;
+    private MulticastSocket socket;
+
+    public MulticastTransport(InetAddress group, int port) {
+        if (!group.isMulticastAddress()) {
+            throw new IllegalArgumentException("Not a multicast address: " + group);
+        }
+        this.group = group;
+        this.port = port;
+    }
+
+    @Override
+    public int getMaxMessageBytes() {
+        return MAX_MESSAGE_BYTES;
+    }
+
+    @Override
+    public synchronized void start(Consumer<byte[]> receiver) throws IOException {
+        if (socket != null) {
+            return;
+        }
+        NetworkInterface networkInterface = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        socket = new MulticastSocket(port);
+        socket.setTimeToLive(0);
+        socket.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+        socket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+        socket.joinGroup(new InetSocketAddress(group, port), networkInterface);
+        MulticastSocket receiving = socket;
+        Thread thread = new Thread(() -> receive(receiving, receiver), "krista-authn-invalidation-receiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void send(byte[] message) throws IOException {
+        MulticastSocket sending;
+        synchronized (this) {
+            sending = socket;
+        }
+        if (sending == null) {
+            throw new IOException("Multicast transport is not started.");
+        }
+        sending.send(new DatagramPacket(message, message.length, group, port));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    private static void receive(MulticastSocket socket, Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[MAX_MESSAGE_BYTES];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                receiver.accept(Arrays.copyOf(buffer, packet.getLength()));
+            } catch (SocketException closed) {
+                return;
+            } catch (IOException | RuntimeException cause) {
+                logger.warn("Could not receive an invalidation message.", cause);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
+
+/**
+ * Lets a {@link ShardedSessionCache} ask the node owning a session to resolve it.
+ */
+public interface PeerTransport extends Closeable {
+
+    /**
+     * Starts answering other nodes' lookups for {@code nodeId} with {@code handler}.
+     */
+    void start(String nodeId, SessionLookup handler) throws IOException;
+
+    /**
+     * Resolves a session on {@code peerId}; throws {@link IOException} when the peer cannot be reached.
+     */
+    String lookup(String peerId, String clientSessionId) throws IOException;
+
+}
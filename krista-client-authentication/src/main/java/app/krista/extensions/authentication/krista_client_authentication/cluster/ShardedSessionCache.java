@@ -0,0 +1,194 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import app.krista.extensions.authentication.krista_client_authentication.session.HeapSessionStore;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionCache;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session cache shared by the extension nodes of a cluster: each session is resolved and cached by one owner node,
+ * so cluster-wide {@code SessionManager} load grows with the number of sessions rather than with the number of
+ * nodes.
+ * <p>
+ * Owners are assigned by a {@link HashRing} with {@value #DEFAULT_VIRTUAL_NODES} virtual nodes per node. A session
+ * this node owns is looked up in its local {@link SessionCache}, which goes to {@code SessionManager} on a miss and
+ * also answers the other nodes. A session owned elsewhere is looked up in a small near-cache whose misses and
+ * refreshes ask the owner through the {@link PeerTransport}. The near-cache keeps entries only for
+ * {@code nearTtlMillis}, short enough that a revocation seen by the owner soon reaches the others even without an
+ * {@link InvalidationBus}; as a bus listener, the cache evicts invalidated sessions from both layers at once. When
+ * the owner cannot be reached, this node resolves the session itself.
+ * <p>
+ * The extension does not wire this cache yet: there is no configuration that selects it, and the only
+ * {@link PeerTransport} is {@link InProcessPeerTransport}. Running it across JVMs needs a network transport that
+ * authenticates its peers, since a peer answers session-to-account lookups for whoever asks.
+ */
+public class ShardedSessionCache implements SessionLookup, InvalidationBus.Listener {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+    public static final long DEFAULT_NEAR_TTL_MILLIS =
+            Long.getLong("krista.authn.sessionCache.nearTtlMillis", 5_000);
+    public static final int DEFAULT_NEAR_MAX_ENTRIES =
+            Integer.getInteger("krista.authn.sessionCache.nearMaxEntries", 10_000);
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSessionCache.class);
+
+    private final String nodeId;
+    private final SessionCache local;
+    private final SessionCache near;
+    private final PeerTransport transport;
+    private final int virtualNodes;
+    private final LongAdder ownedLookups = new LongAdder();
+    private final LongAdder remoteLookups = new LongAdder();
+    private final LongAdder remoteFailures = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private volatile HashRing ring;
+
+    public ShardedSessionCache(String nodeId, Collection<String> peers, SessionLookup source,
+            PeerTransport transport) {
+        this(nodeId, peers, new SessionCache(source), DEFAULT_NEAR_TTL_MILLIS, DEFAULT_NEAR_MAX_ENTRIES, transport,
+                DEFAULT_VIRTUAL_NODES);
+    }
+
+    ShardedSessionCache(String nodeId, Collection<String> peers, SessionCache local, long nearTtlMillis,
+            int nearMaxEntries, PeerTransport transport, int virtualNodes) {
+        this.nodeId = nodeId;
+        this.local = local;
+        this.near = new SessionCache(this::lookupAtOwner, nearTtlMillis, new HeapSessionStore(nearMaxEntries));
+        this.transport = transport;
+        this.virtualNodes = virtualNodes;
+        setPeers(peers);
+    }
+
+    /**
+     * Starts answering lookups from the other nodes.
+     */
+    public ShardedSessionCache start() throws IOException {
+        transport.start(nodeId, this::serve);
+        return this;
+    }
+
+    /**
+     * Replaces the nodes of the cluster; this node is always included. Sessions whose owner changes are resolved by
+     * their new owner from then on; entries cached under the old assignment expire on their own.
+     */
+    public void setPeers(Collection<String> peers) {
+        Set<String> nodes = new HashSet<>(peers);
+        nodes.add(nodeId);
+        ring = new HashRing(nodes, virtualNodes);
+    }
+
+    @Override
+    public String lookupAccountId(String clientSessionId) {
+        if (clientSessionId == null || nodeId.equals(ring.owner(clientSessionId))) {
+            ownedLookups.increment();
+            return local.lookupAccountId(clientSessionId);
+        }
+        return near.lookupAccountId(clientSessionId);
+    }
+
+    @Override
+    public void invalidate(String clientSessionId) {
+        local.invalidate(clientSessionId);
+        near.invalidate(clientSessionId);
+    }
+
+    @Override
+    public void invalidateAll() {
+        local.invalidateAll();
+        near.invalidateAll();
+    }
+
+    /**
+     * Sets what to call with a session this node owns and found revoked; see
+     * {@link SessionCache#setRevocationListener}.
+     */
+    public void setRevocationListener(Consumer<String> revocationListener) {
+        local.setRevocationListener(revocationListener);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the node that owns the session under the current membership.
+     */
+    public String getOwner(String clientSessionId) {
+        return ring.owner(clientSessionId);
+    }
+
+    public long getOwnedLookups() {
+        return ownedLookups.sum();
+    }
+
+    /**
+     * Returns how many near-cache misses and refreshes asked the owning node.
+     */
+    public long getRemoteLookups() {
+        return remoteLookups.sum();
+    }
+
+    /**
+     * Returns how many lookups fell back to this node because the owner could not be reached.
+     */
+    public long getRemoteFailures() {
+        return remoteFailures.sum();
+    }
+
+    /**
+     * Returns how many lookups this node answered for other nodes.
+     */
+    public long getServedCount() {
+        return served.sum();
+    }
+
+    public long getNearHitCount() {
+        return near.getHitCount();
+    }
+
+    private String serve(String clientSessionId) {
+        served.increment();
+        // Answer from the local cache even if this node's view of the ring disagrees, so lookups never bounce.
+        return local.lookupAccountId(clientSessionId);
+    }
+
+    private String lookupAtOwner(String clientSessionId) {
+        String owner = ring.owner(clientSessionId);
+        if (owner == null || owner.equals(nodeId)) {
+            return local.lookupAccountId(clientSessionId);
+        }
+        try {
+            remoteLookups.increment();
+            return transport.lookup(owner, clientSessionId);
+        } catch (IOException cause) {
+            remoteFailures.increment();
+            logger.debug("Could not reach session owner {}; resolving locally.", owner, cause);
+            return local.lookupAccountId(clientSessionId);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Rendering of {@code authenticator.js} for {@code GET /authenticator}.
+ */
+@Name("app.krista.authn.AuthenticatorRender")
+@Label("Authenticator Render")
+@Category({"Krista", "Authentication"})
+@Description("Loading and templating of authenticator.js")
+@Threshold("5 ms")
+@StackTrace(false)
+public class AuthenticatorRenderEvent extends Event {
+
+    @Label("Key")
+    public String key;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Decoding the client session id out of the {@code X-Krista-Context} cookie.
+ * <p>
+ * Like the other events in this package it is only committed when it takes longer than its threshold. The default
+ * threshold can be overridden per recording, e.g.
+ * {@code -XX:StartFlightRecording:app.krista.authn.CookieDecode#threshold=100us}. When no recording is running the
+ * event is never enabled and the instrumented code pays nothing beyond an inlined check.
+ */
+@Name("app.krista.authn.CookieDecode")
+@Label("Cookie Decode")
+@Category({"Krista", "Authentication"})
+@Description("Extraction of the client session id from the request cookie")
+@Threshold("1 ms")
+@StackTrace(false)
+public class CookieDecodeEvent extends Event {
+
+    @Label("Cookie Length")
+    public int cookieLength;
+
+    @Label("Session Id Found")
+    public boolean found;
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Building the 302 redirect to the login page for an unauthenticated request.
+ */
+@Name("app.krista.authn.RedirectIssue")
+@Label("Redirect Issue")
+@Category({"Krista", "Authentication"})
+@Description("Construction of the must-authenticate redirect to the login page")
+@Threshold("1 ms")
+@StackTrace(false)
+public class RedirectIssueEvent extends Event {
+
+    @Label("Original URI Length")
+    public int originalUriLength;
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking logger for {@link AuthLogEvent}s.
+ * <p>
+ * The request thread only checks whether the level is enabled, applies the event's sampling and publishes the raw
+ * arguments into a {@link MpscRing}; formatting, session id redaction and the actual SLF4J call happen on a
+ * {@link RingDrainer} thread that sleeps while there is nothing to write. Events that arrive while the ring is full
+ * are dropped and counted.
+ */
+public final class AsyncAuthLogger {
+
+    private static final int CAPACITY = 4096;
+    private static final int DRAIN_BATCH = 256;
+    private static final int VISIBLE_SESSION_ID_CHARS = 4;
+    private static final AsyncAuthLogger INSTANCE =
+            new AsyncAuthLogger(LoggerFactory.getLogger("app.krista.extensions.authentication.audit"), CAPACITY);
+
+    private final Logger logger;
+    private final MpscRing<Entry> ring;
+    private final AtomicLongArray occurrences = new AtomicLongArray(AuthLogEvent.values().length);
+    private final AtomicLong dropped = new AtomicLong();
+    private final RingDrainer writer;
+
+    AsyncAuthLogger(Logger logger, int capacity) {
+        this.logger = logger;
+        this.ring = new MpscRing<>(capacity, Entry::new);
+        this.writer = new RingDrainer("krista-auth-log-writer", () -> ring.drain(this::write, DRAIN_BATCH),
+                () -> !ring.isEmpty()).start();
+    }
+
+    public static AsyncAuthLogger getInstance() {
+        return INSTANCE;
+    }
+
+    public void log(AuthLogEvent event, Object first) {
+        log(event, first, null);
+    }
+
+    public void log(AuthLogEvent event, Object first, Object second) {
+        if (!isEnabled(event.getLevel())) {
+            return;
+        }
+        int sampleEvery = event.getSampleEvery();
+        if (sampleEvery > 1 && occurrences.getAndIncrement(event.ordinal()) % sampleEvery != 0) {
+            return;
+        }
+        Entry entry = ring.claim();
+        if (entry == null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        entry.event = event;
+        entry.first = first;
+        entry.second = second;
+        ring.publish(entry);
+        writer.signal();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Masks all but the last few characters of a client session id, e.g. {@code ****3f9a}.
+     */
+    public static String redactSessionId(Object clientSessionId) {
+        if (clientSessionId == null) {
+            return null;
+        }
+        String value = clientSessionId.toString();
+        if (value.length() <= VISIBLE_SESSION_ID_CHARS * 2) {
+            return "****";
+        }
+        return "****" + value.substring(value.length() - VISIBLE_SESSION_ID_CHARS);
+    }
+
+    private boolean isEnabled(AuthLogEvent.Level level) {
+        switch (level) {
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            default:
+                return logger.isInfoEnabled();
+        }
+    }
+
+    private void write(Entry entry) {
+        AuthLogEvent event = entry.event;
+        Object first = entry.first;
+        Object second = entry.second;
+        Object firstArg = event.isRedactFirst() ? redactSessionId(first) : first;
+        Object secondArg = event.isRedactSecond() ? redactSessionId(second) : second;
+        try {
+            switch (event.getLevel()) {
+                case DEBUG:
+                    logger.debug(event.getTemplate(), firstArg, secondArg);
+                    break;
+                case WARN:
+                    logger.warn(event.getTemplate(), firstArg, secondArg);
+                    break;
+                default:
+                    logger.info(event.getTemplate(), firstArg, secondArg);
+                    break;
+            }
+        } catch (RuntimeException ignored) {
+            // A failing logging backend must not kill the writer thread.
+        }
+    }
+
+    private static final class Entry extends MpscRing.Slot {
+
+        private AuthLogEvent event;
+        private Object first;
+        private Object second;
+
+        @Override
+        protected void clear() {
+            event = null;
+            first = null;
+            second = null;
+        }
+
+    }
+
+}
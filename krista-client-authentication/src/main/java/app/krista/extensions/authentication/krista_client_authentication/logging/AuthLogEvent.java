@@ -0,0 +1,70 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.logging;
+
+/**
+ * Structured events logged on the authentication hot path. Each event carries its SLF4J template, level, sampling
+ * rate (one in {@code sampleEvery} occurrences is logged) and which of its two arguments are client session ids that
+ * must be redacted before they reach the log.
+ */
+public enum AuthLogEvent {
+
+    AUTHENTICATOR_REQUESTED(Level.INFO, "event=authenticator_requested originalUri={}", 100, false, false),
+    LOGIN_REQUESTED(Level.INFO, "event=login_requested clientSessionId={} source={}", 1, true, false),
+    LOGIN_REJECTED(Level.INFO, "event=login_rejected clientSessionId={} reason={}", 1, true, false);
+
+    public enum Level {
+        DEBUG, INFO, WARN
+    }
+
+    private final Level level;
+    private final String template;
+    private final int sampleEvery;
+    private final boolean redactFirst;
+    private final boolean redactSecond;
+
+    AuthLogEvent(Level level, String template, int sampleEvery, boolean redactFirst, boolean redactSecond) {
+        this.level = level;
+        this.template = template;
+        this.sampleEvery = sampleEvery;
+        this.redactFirst = redactFirst;
+        this.redactSecond = redactSecond;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    boolean isRedactFirst() {
+        return redactFirst;
+    }
+
+    boolean isRedactSecond() {
+        return redactSecond;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded lock-free multi-producer, single-consumer ring of preallocated slots, shared by the log and audit
+ * pipelines. Each slot carries a sequence number that tells producers when it is free and the consumer when it is
+ * published, so a producer claims a slot with one compare-and-set on the tail, fills its fields in place and
+ * publishes it with one volatile write; nothing is allocated per event.
+ * <p>
+ * A producer calls {@link #claim()}, fills the returned slot and passes it to {@link #publish}. The consumer sees a
+ * slot in {@link #drain} only after it was published, and the slot is cleared and handed back to producers once the
+ * callback returns, so the consumer must not keep it.
+ *
+ * @param <S> the slot type, holding one event's fields
+ */
+public final class MpscRing<S extends MpscRing.Slot> {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    public MpscRing(int capacity, Supplier<S> slotFactory) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        for (int index = 0; index < capacity; index++) {
+            Slot slot = slotFactory.get();
+            slot.sequence = index;
+            slots[index] = slot;
+        }
+    }
+
+    /**
+     * Claims the next free slot for the calling producer, or returns {@code null} without blocking when the ring is
+     * full. A claimed slot must be filled and then published.
+     */
+    @SuppressWarnings("unchecked")
+    public S claim() {
+        while (true) {
+            long position = tail.get();
+            Slot slot = slots[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.position = position;
+                    return (S) slot;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Makes a filled slot visible to the consumer.
+     */
+    public void publish(S slot) {
+        Slot published = slot;
+        published.sequence = published.position + 1;
+    }
+
+    /**
+     * Hands up to {@code max} published slots to {@code consumer} in order and returns how many that was. Must only
+     * be called from the single consumer thread. A slot is recycled even if the consumer throws.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super S> consumer, int max) {
+        int drained = 0;
+        while (drained < max) {
+            Slot slot = slots[(int) head & mask];
+            if (slot.sequence != head + 1) {
+                break;
+            }
+            try {
+                consumer.accept((S) slot);
+            } finally {
+                slot.clear();
+                slot.sequence = head + slots.length;
+                head++;
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Returns whether every published slot has been drained. Must only be called from the consumer thread.
+     */
+    public boolean isEmpty() {
+        return slots[(int) head & mask].sequence != head + 1;
+    }
+
+    /**
+     * Base class of ring slots. Subclasses add the event's fields and drop their references in {@link #clear()}.
+     */
+    public abstract static class Slot {
+
+        private volatile long sequence;
+        private long position;
+
+        /**
+         * Drops the references the slot holds once the consumer is done with it.
+         */
+        protected abstract void clear();
+
+    }
+
+}
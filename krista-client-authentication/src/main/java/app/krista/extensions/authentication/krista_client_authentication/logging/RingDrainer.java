@@ -0,0 +1,98 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.logging;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * The single consumer thread of a multi-producer ring. It drains while there is work and otherwise parks without a
+ * timeout until a producer calls {@link #signal}, so an idle pipeline costs nothing.
+ * <p>
+ * A producer publishes, then reads whether the drainer is parked; the drainer announces that it is parking, then
+ * checks the ring once more. Both steps go through volatile fields, so at least one side sees the other and no
+ * published event is left waiting. Signalling a drainer that is awake is a single volatile read.
+ */
+public final class RingDrainer {
+
+    private final Thread thread;
+    private final IntSupplier drain;
+    private final BooleanSupplier hasWork;
+    private volatile boolean parked;
+    private volatile boolean stopped;
+
+    /**
+     * @param drain drains the ring and returns how many events it handled
+     * @param hasWork tells whether anything is published but not yet drained
+     */
+    public RingDrainer(String name, IntSupplier drain, BooleanSupplier hasWork) {
+        this.drain = drain;
+        this.hasWork = hasWork;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+    }
+
+    public RingDrainer start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Wakes the drainer if it is parked; called by producers after publishing.
+     */
+    public void signal() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops the drainer after a last drain of everything already published.
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    private void run() {
+        while (!stopped) {
+            if (drainOnce() > 0) {
+                continue;
+            }
+            parked = true;
+            if (!stopped && !hasWork.getAsBoolean()) {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+        drainOnce();
+    }
+
+    private int drainOnce() {
+        try {
+            return drain.getAsInt();
+        } catch (RuntimeException ignored) {
+            // The consumer handles its own failures; never let one kill the thread.
+            return 0;
+        }
+    }
+
+}
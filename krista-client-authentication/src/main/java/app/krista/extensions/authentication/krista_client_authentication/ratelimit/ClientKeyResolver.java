@@ -0,0 +1,204 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.ratelimit;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Derives the rate-limit key of a request from the address it came from.
+ * <p>
+ * The key is the peer address of the connection unless that peer is a trusted proxy. Forwarding headers are believed
+ * only hop by hop from the right: starting at the peer, each trusted proxy vouches for the entry to its left in
+ * {@code X-Forwarded-For}, and the first address that is not a trusted proxy is the client. Entries a client writes
+ * into the header itself end up left of that address and are ignored, so rotating or omitting the header does not
+ * buy a fresh bucket. {@code X-Real-IP} is used only when it comes straight from a trusted peer.
+ * <p>
+ * Neither the platform's {@code HttpRequest} nor the extension's JAX-RS resources expose the socket peer, because
+ * both are reached through the Krista platform. Callers then pass a {@code null} peer: the platform is the peer, and
+ * the right-most {@code X-Forwarded-For} entry, the one its ingress appended, is where the walk starts. Behind a load
+ * balancer that entry is the balancer, not the client, so without a peer nothing is resolved until the proxies in
+ * front of the ingress are listed, as addresses or CIDR blocks, in the {@value #TRUSTED_PROXIES_PROPERTY} system
+ * property. A request whose client cannot be determined gets a {@code null} key, which {@link ClientRateLimiter}
+ * does not limit.
+ */
+public final class ClientKeyResolver {
+
+    public static final String TRUSTED_PROXIES_PROPERTY = "krista.authn.rateLimit.trustedProxies";
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final Pattern IPV4_WITH_PORT = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}:\\d{1,5}");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+    private static final ClientKeyResolver DEFAULT =
+            new ClientKeyResolver(System.getProperty(TRUSTED_PROXIES_PROPERTY, ""));
+
+    private final List<Block> trustedProxies = new ArrayList<>();
+
+    /**
+     * @param trustedProxies comma-separated addresses or CIDR blocks, e.g. {@code 10.0.0.0/8, ::1}
+     */
+    public ClientKeyResolver(String trustedProxies) {
+        for (String entry : trustedProxies.split(",")) {
+            String value = entry.trim();
+            if (!value.isEmpty()) {
+                this.trustedProxies.add(Block.parse(value));
+            }
+        }
+    }
+
+    public static ClientKeyResolver getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the client key for a request, or {@code null} when the client cannot be determined.
+     *
+     * @param peerAddress the connection's peer address, or {@code null} when the request came through the platform
+     * @param forwardedFor the {@code X-Forwarded-For} header
+     * @param realIp the {@code X-Real-IP} header
+     */
+    public String resolve(String peerAddress, String forwardedFor, String realIp) {
+        if (peerAddress == null && trustedProxies.isEmpty()) {
+            return null;
+        }
+        if (peerAddress != null) {
+            InetAddress peer = parse(peerAddress);
+            if (peer == null) {
+                return null;
+            }
+            if (!isTrusted(peer)) {
+                return peer.getHostAddress();
+            }
+        }
+        if (forwardedFor != null) {
+            InetAddress hop = null;
+            int end = forwardedFor.length();
+            while (end > 0) {
+                int comma = forwardedFor.lastIndexOf(',', end - 1);
+                String entry = forwardedFor.substring(comma + 1, end).trim();
+                end = Math.max(comma, 0);
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                hop = parse(entry);
+                if (hop == null) {
+                    return null;
+                }
+                if (!isTrusted(hop)) {
+                    return hop.getHostAddress();
+                }
+            }
+            if (hop != null) {
+                // Every hop is a trusted proxy; the left-most one is as close to the client as we can get.
+                return hop.getHostAddress();
+            }
+        }
+        if (peerAddress != null && realIp != null) {
+            InetAddress client = parse(realIp.trim());
+            return client != null ? client.getHostAddress() : null;
+        }
+        return null;
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        for (Block block : trustedProxies) {
+            if (block.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses an IP literal, optionally with a port or in brackets. Anything else, host names included, yields
+     * {@code null}, so parsing never resolves names.
+     */
+    static InetAddress parse(String value) {
+        String literal = value;
+        if (literal.startsWith("[")) {
+            int close = literal.indexOf(']');
+            if (close < 0) {
+                return null;
+            }
+            literal = literal.substring(1, close);
+        } else if (IPV4_WITH_PORT.matcher(literal).matches()) {
+            literal = literal.substring(0, literal.indexOf(':'));
+        }
+        int scope = literal.indexOf('%');
+        if (scope >= 0) {
+            literal = literal.substring(0, scope);
+        }
+        if (!IPV4.matcher(literal).matches() && !IPV6.matcher(literal).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(literal);
+        } catch (UnknownHostException malformed) {
+            return null;
+        }
+    }
+
+    private record Block(byte[] network, int prefixLength) {
+
+        static Block parse(String value) {
+            int slash = value.indexOf('/');
+            InetAddress address = ClientKeyResolver.parse(slash < 0 ? value : value.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Invalid trusted proxy: " + value);
+            }
+            byte[] network = address.getAddress();
+            int prefixLength = network.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefixLength = Integer.parseInt(value.substring(slash + 1).trim());
+                } catch (NumberFormatException malformed) {
+                    throw new IllegalArgumentException("Invalid trusted proxy: " + value, malformed);
+                }
+                if (prefixLength < 0 || prefixLength > network.length * 8) {
+                    throw new IllegalArgumentException("Invalid trusted proxy: " + value);
+                }
+            }
+            return new Block(network, prefixLength);
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int whole = prefixLength / 8;
+            for (int index = 0; index < whole; index++) {
+                if (address[index] != network[index]) {
+                    return false;
+                }
+            }
+            int bits = prefixLength % 8;
+            if (bits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - bits) & 0xFF;
+            return (address[whole] & mask) == (network[whole] & mask);
+        }
+
+    }
+
+}
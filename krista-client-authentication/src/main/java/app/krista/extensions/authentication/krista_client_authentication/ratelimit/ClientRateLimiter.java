@@ -0,0 +1,203 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets held in a striped, bounded table.
+ * <p>
+ * Each bucket packs its token count (in thousandths of a token) and the time of its last update into one
+ * {@code AtomicLong}, so taking a token is a lock-free compare-and-set. A bucket that has refilled to capacity holds
+ * no information a fresh bucket would not, so such buckets are purged when a stripe fills up. While a stripe is full
+ * and nothing can be purged, a new client evicts the fullest of a few sampled buckets: clients that hammer the
+ * limiter keep their buckets drained and therefore keep them, while the evicted bucket loses at most the little that
+ * separates it from a fresh one. Memory therefore stays bounded by {@code maxKeys} however many distinct clients
+ * appear, and no new client is ever made to share another client's bucket.
+ * <p>
+ * Keys come from {@link ClientKeyResolver}. Requests whose client cannot be determined ({@code null} key) are not
+ * limited: pooling them would let one failing client lock out everyone who shares the unknown key.
+ */
+public final class ClientRateLimiter {
+
+    private static final int STRIPES = 16;
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI_TOKENS = 1000;
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+    private static final int EVICTION_SAMPLES = 8;
+
+    private static final ClientRateLimiter LOGIN = new ClientRateLimiter(
+            Integer.getInteger("krista.authn.rateLimit.login.perSecond", 5),
+            Integer.getInteger("krista.authn.rateLimit.login.burst", 20),
+            Integer.getInteger("krista.authn.rateLimit.maxKeys", 65_536),
+            System::currentTimeMillis);
+
+    private static final ClientRateLimiter UNAUTHENTICATED = new ClientRateLimiter(
+            Integer.getInteger("krista.authn.rateLimit.unauthenticated.perSecond", 10),
+            Integer.getInteger("krista.authn.rateLimit.unauthenticated.burst", 50),
+            Integer.getInteger("krista.authn.rateLimit.maxKeys", 65_536),
+            System::currentTimeMillis);
+
+    private final long refillPerMilli;
+    private final long capacity;
+    private final int maxKeysPerStripe;
+    private final LongSupplier clockMillis;
+    private final long epoch;
+    @SuppressWarnings("unchecked")
+    private final Map<String, Bucket>[] stripes = new Map[STRIPES];
+    private final AtomicLongArray lastPurge = new AtomicLongArray(STRIPES);
+
+    public ClientRateLimiter(int perSecond, int burst, int maxKeys) {
+        this(perSecond, burst, maxKeys, System::currentTimeMillis);
+    }
+
+    ClientRateLimiter(int perSecond, int burst, int maxKeys, LongSupplier clockMillis) {
+        if (perSecond < 1 || burst < 1 || burst * MILLI_TOKENS > TOKEN_MASK || maxKeys < STRIPES) {
+            throw new IllegalArgumentException(
+                    "Invalid rate limit: " + perSecond + "/s, burst " + burst + ", max keys " + maxKeys);
+        }
+        // One token per second is one thousandth of a token per millisecond.
+        this.refillPerMilli = perSecond;
+        this.capacity = burst * MILLI_TOKENS;
+        this.maxKeysPerStripe = maxKeys / STRIPES;
+        this.clockMillis = clockMillis;
+        this.epoch = clockMillis.getAsLong();
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            stripes[stripe] = new ConcurrentHashMap<>();
+            lastPurge.set(stripe, -PURGE_INTERVAL_MILLIS);
+        }
+    }
+
+    public static ClientRateLimiter getLoginDefault() {
+        return LOGIN;
+    }
+
+    public static ClientRateLimiter getUnauthenticatedDefault() {
+        return UNAUTHENTICATED;
+    }
+
+    /**
+     * Takes a token for {@code clientKey}; returns {@code false} when the client is over its limit. A {@code null}
+     * key is never limited.
+     */
+    public boolean tryAcquire(String clientKey) {
+        return take(clientKey, true);
+    }
+
+    /**
+     * Returns whether {@code clientKey} is currently over its limit, without taking a token.
+     */
+    public boolean isLimited(String clientKey) {
+        return !take(clientKey, false);
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<String, Bucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private boolean take(String clientKey, boolean consume) {
+        if (clientKey == null) {
+            return true;
+        }
+        long now = clockMillis.getAsLong() - epoch;
+        AtomicLong state = bucketFor(clientKey, now).state;
+        while (true) {
+            long current = state.get();
+            long tokens = refilled(current, now);
+            if (tokens < MILLI_TOKENS) {
+                return false;
+            }
+            if (!consume) {
+                return true;
+            }
+            long next = (Math.max(now, current >>> TOKEN_BITS) << TOKEN_BITS) | (tokens - MILLI_TOKENS);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private long refilled(long state, long now) {
+        long updatedAt = state >>> TOKEN_BITS;
+        long tokens = state & TOKEN_MASK;
+        long elapsed = Math.max(0, now - updatedAt);
+        return elapsed >= capacity / refillPerMilli ? capacity : Math.min(capacity, tokens + elapsed * refillPerMilli);
+    }
+
+    private Bucket bucketFor(String clientKey, long now) {
+        int hash = clientKey.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (STRIPES - 1);
+        Map<String, Bucket> stripe = stripes[index];
+        Bucket bucket = stripe.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= maxKeysPerStripe && !purge(index, stripe, now)) {
+            evictFullest(stripe, now);
+        }
+        return stripe.computeIfAbsent(clientKey, key -> new Bucket(capacity));
+    }
+
+    private void evictFullest(Map<String, Bucket> stripe, long now) {
+        Map.Entry<String, Bucket> fullest = null;
+        long most = -1;
+        int sampled = 0;
+        for (Map.Entry<String, Bucket> entry : stripe.entrySet()) {
+            long tokens = refilled(entry.getValue().state.get(), now);
+            if (tokens > most) {
+                fullest = entry;
+                most = tokens;
+            }
+            if (++sampled == EVICTION_SAMPLES) {
+                break;
+            }
+        }
+        if (fullest != null) {
+            stripe.remove(fullest.getKey(), fullest.getValue());
+        }
+    }
+
+    private boolean purge(int index, Map<String, Bucket> stripe, long now) {
+        long previous = lastPurge.get(index);
+        if (now - previous >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(index, previous, now)) {
+            stripe.values().removeIf(bucket -> refilled(bucket.state.get(), now) >= capacity);
+        }
+        return stripe.size() < maxKeysPerStripe;
+    }
+
+    private static final class Bucket {
+
+        private final AtomicLong state;
+
+        private Bucket(long capacity) {
+            this.state = new AtomicLong(capacity);
+        }
+
+    }
+
+}
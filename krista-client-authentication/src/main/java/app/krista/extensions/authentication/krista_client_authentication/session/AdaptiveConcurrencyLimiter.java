@@ -0,0 +1,224 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of in-flight {@code SessionManager} calls on this node with an AIMD limit driven by observed
+ * latency.
+ * <p>
+ * The limiter tracks a slowly decaying minimum latency as the no-load baseline. Latency only says something about
+ * the limit when the limit was fully used, so only calls that started with every slot taken move it on their latency:
+ * one that succeeds within {@code tolerance} times the baseline raises the limit by {@code 1 / limit}, i.e. by about
+ * one per round trip, and one that is slower cuts it by 10%. A call that fails cuts the limit whatever the load; at
+ * low load ordinary latency jitter leaves the limit alone. Callers that find
+ * the limit reached wait up to {@code maxQueueMillis} for a slot and are then shed with a
+ * {@link LimitExceededException}; the login resource and the request authenticator each answer it with a 503 and
+ * {@code Retry-After}.
+ * <p>
+ * Completions avoid a global lock: the limit is adjusted under a lock that a completing call only tries to take, so
+ * under contention some successful samples are skipped (failures, which cut the limit, always wait for it), and the
+ * queue's lock is taken only when a caller is actually waiting for a slot.
+ * <p>
+ * One limiter is shared per node through {@link #getDefault()}; its bounds can be set with the
+ * {@code krista.authn.limiter.*} system properties.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private static final double DECREASE_FACTOR = 0.9;
+    private static final double BASELINE_DECAY = 0.01;
+    private static final long LATENCY_FLOOR_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private static final AdaptiveConcurrencyLimiter DEFAULT = new AdaptiveConcurrencyLimiter(
+            Integer.getInteger("krista.authn.limiter.initialLimit", 20),
+            Integer.getInteger("krista.authn.limiter.minLimit", 2),
+            Integer.getInteger("krista.authn.limiter.maxLimit", 200),
+            Long.getLong("krista.authn.limiter.maxQueueMillis", 50),
+            2.0,
+            System::nanoTime);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxQueueNanos;
+    private final double tolerance;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock adjustLock = new ReentrantLock();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private double baselineNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long maxQueueMillis) {
+        this(initialLimit, minLimit, maxLimit, maxQueueMillis, 2.0, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long maxQueueMillis, double tolerance,
+            LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                    "Invalid limits: initial " + initialLimit + ", min " + minLimit + ", max " + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMillis);
+        this.tolerance = tolerance;
+        this.nanoClock = nanoClock;
+    }
+
+    public static AdaptiveConcurrencyLimiter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Wraps {@code delegate} so that every lookup runs under this limiter.
+     */
+    public SessionLookup limit(SessionLookup delegate) {
+        return clientSessionId -> call(() -> delegate.lookupAccountId(clientSessionId));
+    }
+
+    public <T> T call(Supplier<T> call) {
+        int inFlightAtStart = acquire();
+        long start = nanoClock.getAsLong();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            release(nanoClock.getAsLong() - start, success, inFlightAtStart);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private int acquire() {
+        int acquired = tryAcquire();
+        if (acquired >= 0) {
+            return acquired;
+        }
+        if (maxQueueNanos > 0) {
+            // Announce the wait before re-checking, so a release either sees the waiter or frees the slot first.
+            waiting.incrementAndGet();
+            lock.lock();
+            try {
+                long remaining = maxQueueNanos;
+                while (true) {
+                    acquired = tryAcquire();
+                    if (acquired >= 0) {
+                        return acquired;
+                    }
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } catch (InterruptedException cause) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+                waiting.decrementAndGet();
+            }
+        }
+        rejected.increment();
+        throw new LimitExceededException(RETRY_AFTER_SECONDS);
+    }
+
+    private int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    private void release(long latencyNanos, boolean success, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        if (!success) {
+            adjustLock.lock();
+        } else if (!adjustLock.tryLock()) {
+            signalWaiter();
+            return;
+        }
+        try {
+            adjust(latencyNanos, success, inFlightAtStart);
+        } finally {
+            adjustLock.unlock();
+        }
+        signalWaiter();
+    }
+
+    private void signalWaiter() {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void adjust(long latencyNanos, boolean success, int inFlightAtStart) {
+        double current = limit;
+        if (!success) {
+            limit = Math.max(minLimit, current * DECREASE_FACTOR);
+            return;
+        }
+        if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+            baselineNanos = latencyNanos;
+        } else {
+            baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DECAY;
+        }
+        if (inFlightAtStart + 1 < (int) current) {
+            return;
+        }
+        if (latencyNanos > LATENCY_FLOOR_NANOS && latencyNanos > baselineNanos * tolerance) {
+            limit = Math.max(minLimit, current * DECREASE_FACTOR);
+        } else {
+            limit = Math.min(maxLimit, current + 1 / current);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+/**
+ * Count-min sketch of how often session ids were looked up recently, used by the session stores to decide whether a
+ * newcomer is worth evicting a resident entry for.
+ * <p>
+ * Every id maps to four 4-bit counters, one in each of four words picked by differently seeded hashes, and its
+ * estimate is the smallest of them. Once the sketch has counted ten times as many lookups as the store holds entries,
+ * every counter is halved, so frequencies fade and a formerly hot session that went quiet can be displaced.
+ * <p>
+ * Counters are updated without synchronization. Under contention an increment may be lost, which only makes an
+ * estimate slightly low; the admission decisions built on it tolerate that.
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int maxEntries) {
+        int length = 8;
+        while (length < maxEntries && length < 1 << 30) {
+            length <<= 1;
+        }
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, maxEntries));
+    }
+
+    /**
+     * Counts one lookup of the id with the given hash.
+     */
+    public void increment(int hash) {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(spread, i), start + i);
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Estimates how often the id with the given hash was looked up recently, between 0 and {@value #MAX_COUNT}.
+     */
+    public int frequency(int hash) {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            int count = (int) ((table[indexOf(spread, i)] >>> ((start + i) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        long word = table[index];
+        if ((word & mask) == mask) {
+            return false;
+        }
+        table[index] = word + (1L << offset);
+        return true;
+    }
+
+    /**
+     * Halves every counter. Counts that were odd lose their remainder, which is taken off the addition count so the
+     * next reset happens after the same number of fresh lookups.
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = Math.max(0, (additions >>> 1) - (odd >>> 2));
+    }
+
+    private int indexOf(int spread, int i) {
+        long hash = (spread + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return (int) hash & tableMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+        hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+        return (hash >>> 16) ^ hash;
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * On-heap {@link SessionStore} backed by a {@link ConcurrentHashMap}, with W-TinyLFU admission.
+ * <p>
+ * New sessions enter a small first-in first-out window of {@value #WINDOW_PERCENT}% of the capacity, so a session
+ * gets a chance to be looked up again before it has to compete. A session leaving the window moves to the main
+ * region if there is room; otherwise a clock hand picks the first entry there that has expired or was not read since
+ * the hand last passed it, and the {@link FrequencySketch} decides the duel: unless the victim has expired, the
+ * newcomer is only admitted if it was looked up more often. A burst of one-hit session ids therefore
+ * cycles through the window without displacing the sessions that are in steady use.
+ * <p>
+ * Reads are lock-free; writes serialize on one lock.
+ */
+public class HeapSessionStore implements SessionStore {
+
+    private static final int WINDOW_PERCENT = 1;
+
+    private final Map<String, Node> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ArrayDeque<Node> window = new ArrayDeque<>();
+    private final int windowMax;
+    private final Node[] main;
+    private final int[] freeMain;
+    private int freeMainCount;
+    private int hand;
+
+    public HeapSessionStore(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum entries must be positive.");
+        }
+        this.windowMax = Math.max(1, maxEntries * WINDOW_PERCENT / 100);
+        this.main = new Node[Math.max(1, maxEntries - windowMax)];
+        this.freeMain = new int[main.length];
+        for (int i = 0; i < main.length; i++) {
+            freeMain[i] = main.length - 1 - i;
+        }
+        this.freeMainCount = main.length;
+        this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    @Override
+    public boolean read(String clientSessionId, Slot slot) {
+        sketch.increment(clientSessionId.hashCode());
+        Node node = entries.get(clientSessionId);
+        if (node == null) {
+            return false;
+        }
+        Value value = node.value;
+        slot.accountId = value.accountId;
+        slot.expiresAt = value.expiresAt;
+        slot.deltaNanos = value.deltaNanos;
+        slot.token = value;
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryMarkRefreshing(Slot slot) {
+        return ((Value) slot.token).refreshing.compareAndSet(false, true);
+    }
+
+    @Override
+    public void clearRefreshing(Slot slot) {
+        ((Value) slot.token).refreshing.set(false);
+    }
+
+    @Override
+    public void put(String clientSessionId, String accountId, long expiresAt, long deltaNanos, long now) {
+        Value value = new Value(accountId, expiresAt, deltaNanos);
+        writeLock.lock();
+        try {
+            Node node = entries.get(clientSessionId);
+            if (node != null) {
+                node.value = value;
+                node.referenced = true;
+                return;
+            }
+            node = new Node(clientSessionId, value);
+            entries.put(clientSessionId, node);
+            node.inWindow = true;
+            window.addLast(node);
+            if (window.size() > windowMax) {
+                Node candidate = window.pollFirst();
+                candidate.inWindow = false;
+                admit(candidate, now);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(String clientSessionId, Slot expected, String accountId, long expiresAt,
+            long deltaNanos) {
+        writeLock.lock();
+        try {
+            Node node = entries.get(clientSessionId);
+            if (node == null || node.value != expected.token) {
+                return false;
+            }
+            node.value = new Value(accountId, expiresAt, deltaNanos);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String clientSessionId) {
+        writeLock.lock();
+        try {
+            Node node = entries.remove(clientSessionId);
+            if (node != null) {
+                detach(node);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String clientSessionId, Slot expected) {
+        writeLock.lock();
+        try {
+            Node node = entries.get(clientSessionId);
+            if (node == null || node.value != expected.token) {
+                return false;
+            }
+            entries.remove(clientSessionId);
+            detach(node);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        writeLock.lock();
+        try {
+            entries.clear();
+            window.clear();
+            for (int i = 0; i < main.length; i++) {
+                main[i] = null;
+                freeMain[i] = main.length - 1 - i;
+            }
+            freeMainCount = main.length;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Moves a session that left the window into the main region, evicting either the clock victim or the session
+     * itself when the region is full.
+     */
+    private void admit(Node candidate, long now) {
+        if (freeMainCount > 0) {
+            place(candidate, freeMain[--freeMainCount]);
+            return;
+        }
+        int victimIndex = selectVictim(now);
+        Node victim = main[victimIndex];
+        if (now - victim.value.expiresAt >= 0
+                || sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            entries.remove(victim.key, victim);
+            victim.mainIndex = -1;
+            place(candidate, victimIndex);
+        } else {
+            entries.remove(candidate.key, candidate);
+        }
+    }
+
+    private int selectVictim(long now) {
+        for (int scanned = 0; ; scanned++) {
+            int index = hand;
+            hand = hand + 1 == main.length ? 0 : hand + 1;
+            Node node = main[index];
+            if (node == null) {
+                continue;
+            }
+            if (!node.referenced || scanned >= 2 * main.length || now - node.value.expiresAt >= 0) {
+                return index;
+            }
+            node.referenced = false;
+        }
+    }
+
+    private void place(Node node, int index) {
+        main[index] = node;
+        node.mainIndex = index;
+    }
+
+    private void detach(Node node) {
+        if (node.inWindow) {
+            window.remove(node);
+            node.inWindow = false;
+        } else if (node.mainIndex >= 0) {
+            main[node.mainIndex] = null;
+            freeMain[freeMainCount++] = node.mainIndex;
+            node.mainIndex = -1;
+        }
+    }
+
+    private static final class Node {
+
+        private final String key;
+        private volatile Value value;
+        private volatile boolean referenced;
+        private boolean inWindow;
+        private int mainIndex = -1;
+
+        private Node(String key, Value value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    private static final class Value {
+
+        private final String accountId;
+        private final long expiresAt;
+        private final long deltaNanos;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Value(String accountId, long expiresAt, long deltaNanos) {
+            this.accountId = accountId;
+            this.expiresAt = expiresAt;
+            this.deltaNanos = deltaNanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues a second, identical lookup when the first has not answered within the tracked latency percentile (p95 by
+ * default) and returns whichever answers first. The slower attempt is not interrupted; it finishes in the background
+ * and still contributes a latency sample.
+ * <p>
+ * Hedges are paid for from a budget that every lookup tops up by {@code budgetPercent} percent of a hedge, so extra
+ * load stays below that share of traffic even when the backend is uniformly slow. Hedging starts only after
+ * {@value #MIN_SAMPLES} latency samples have been seen. It is opt-in through the {@value #ENABLED_PROPERTY} system
+ * property.
+ */
+public class HedgedSessionLookup implements SessionLookup {
+
+    public static final String ENABLED_PROPERTY = "krista.authn.hedging.enabled";
+
+    static final int MIN_SAMPLES = 100;
+    private static final int SAMPLE_WINDOW = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final long MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long HEDGE_COST = 1000;
+    private static final long MAX_BUDGET = 10 * HEDGE_COST;
+    private static final Executor DEFAULT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SessionLookup delegate;
+    private final double percentile;
+    private final long budgetPerLookup;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_WINDOW);
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong budget = new AtomicLong();
+    private final LongAdder hedgesIssued = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private volatile long hedgeDelayNanos = Long.MAX_VALUE;
+
+    public HedgedSessionLookup(SessionLookup delegate) {
+        this(delegate, 0.95, 5, DEFAULT_EXECUTOR, System::nanoTime);
+    }
+
+    HedgedSessionLookup(SessionLookup delegate, double percentile, double budgetPercent, Executor executor,
+            LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.percentile = percentile;
+        this.budgetPerLookup = Math.round(HEDGE_COST * budgetPercent / 100);
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public String lookupAccountId(String clientSessionId) {
+        addBudget();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        executor.execute(() -> attempt(clientSessionId, result, pending, false));
+        long delay = hedgeDelayNanos;
+        if (delay != Long.MAX_VALUE) {
+            try {
+                return result.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException slow) {
+                if (spendBudget()) {
+                    pending.incrementAndGet();
+                    hedgesIssued.increment();
+                    executor.execute(() -> attempt(clientSessionId, result, pending, true));
+                }
+            } catch (InterruptedException | ExecutionException cause) {
+                return unwrap(cause);
+            }
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException | ExecutionException cause) {
+            return unwrap(cause);
+        }
+    }
+
+    public long getHedgesIssued() {
+        return hedgesIssued.sum();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * Returns the current hedge delay in nanoseconds, or {@link Long#MAX_VALUE} while too few samples have been seen.
+     */
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    private void attempt(String clientSessionId, CompletableFuture<String> result, AtomicInteger pending,
+            boolean hedge) {
+        long start = nanoClock.getAsLong();
+        try {
+            String accountId = delegate.lookupAccountId(clientSessionId);
+            record(nanoClock.getAsLong() - start);
+            if (result.complete(accountId) && hedge) {
+                hedgesWon.increment();
+            }
+        } catch (Throwable cause) {
+            // Any failure, Errors included, must complete the result once no attempt is left, or callers block.
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void record(long latencyNanos) {
+        long count = sampleCount.getAndIncrement();
+        samples.set((int) (count % SAMPLE_WINDOW), latencyNanos);
+        if (count + 1 >= MIN_SAMPLES && (count + 1) % RECOMPUTE_EVERY == 0) {
+            int size = (int) Math.min(count + 1, SAMPLE_WINDOW);
+            long[] window = new long[size];
+            for (int index = 0; index < size; index++) {
+                window[index] = samples.get(index);
+            }
+            Arrays.sort(window);
+            int rank = (int) Math.min(size - 1, Math.ceil(percentile * size) - 1);
+            hedgeDelayNanos = Math.max(MIN_DELAY_NANOS, window[Math.max(0, rank)]);
+        }
+    }
+
+    private void addBudget() {
+        budget.getAndUpdate(current -> Math.min(MAX_BUDGET, current + budgetPerLookup));
+    }
+
+    private boolean spendBudget() {
+        while (true) {
+            long current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+            if (budget.compareAndSet(current, current - HEDGE_COST)) {
+                return true;
+            }
+        }
+    }
+
+    private static String unwrap(Exception cause) {
+        if (cause instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for session lookup.", cause);
+        }
+        if (cause.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) cause.getCause();
+        }
+        if (cause.getCause() instanceof Error) {
+            throw (Error) cause.getCause();
+        }
+        throw new IllegalStateException("Session lookup failed.", cause.getCause());
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+/**
+ * Thrown by {@link AdaptiveConcurrencyLimiter} when a call is shed because the limit stayed reached for the whole
+ * queueing time. Callers answer it with a 503 and a {@code Retry-After} of {@link #getRetryAfterSeconds()}.
+ */
+public class LimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LimitExceededException(long retryAfterSeconds) {
+        super("Session lookup concurrency limit reached.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
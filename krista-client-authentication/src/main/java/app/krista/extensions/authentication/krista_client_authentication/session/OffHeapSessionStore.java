@@ -0,0 +1,625 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link SessionStore} that keeps its entries in direct memory, so millions of cached sessions add nothing for the
+ * garbage collector to trace.
+ * <p>
+ * Entries live in fixed-width slots of an open-addressing table with linear probing, sized once for
+ * {@code maxEntries} at a load factor of at most {@value #LOAD_FACTOR}. A slot holds a 128-bit SipHash-2-4 of the
+ * session id instead of the id itself, the expiry and load time, and a reference into an on-heap table of interned
+ * account ids; many sessions share one account. SipHash is a pseudorandom function keyed with 128 secret random bits
+ * per store, so without the key no one can compute an id's slot key, let alone pick an id whose key matches a live
+ * session's; an accidental collision needs around 2<sup>64</sup> cached sessions.
+ * <p>
+ * Writers serialize on one lock and delete by backward shifting. Admission follows W-TinyLFU like
+ * {@link HeapSessionStore}: new sessions are flagged as part of a small first-in first-out window, and when a session
+ * leaves the window of a full table it duels the entry picked by a clock hand, the first one outside the window
+ * that has expired or was not read since the hand last passed it. Unless that victim has expired, the newcomer only
+ * stays if the {@link FrequencySketch} saw it looked up more often.
+ * <p>
+ * Readers take no lock and allocate nothing: every slot carries a sequence number that writers make odd while they
+ * change it, and a read that overlaps a write simply reports a miss.
+ */
+public class OffHeapSessionStore implements SessionStore {
+
+    static final int SLOT_BYTES = 48;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int VERSION = 0;
+    private static final int FLAGS = 4;
+    private static final int KEY_HI = 8;
+    private static final int KEY_LO = 16;
+    private static final int EXPIRES_AT = 24;
+    private static final int DELTA_NANOS = 32;
+    private static final int ACCOUNT = 40;
+    private static final int REFERENCED = 1;
+    private static final int REFRESHING = 2;
+    private static final int WINDOW = 4;
+    private static final int WINDOW_PERCENT = 1;
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int maxEntries;
+    private final int mask;
+    private final int segmentMask;
+    private final ByteBuffer[] segments;
+    private final long key0;
+    private final long key1;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final long[] windowKeys;
+    private int windowHead;
+    private int windowCount;
+    private final Map<String, Integer> accountRefs = new HashMap<>();
+    private volatile String[] accounts = new String[16];
+    private int[] accountUses = new int[16];
+    private int[] freeAccounts = new int[16];
+    private int freeAccountCount;
+    private int accountCount;
+    private volatile int size;
+    private int hand;
+
+    public OffHeapSessionStore(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum entries must be positive.");
+        }
+        int capacity = 16;
+        while (capacity < maxEntries / LOAD_FACTOR && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        this.maxEntries = Math.min(maxEntries, (int) (capacity * LOAD_FACTOR));
+        this.mask = capacity - 1;
+        int segmentSlots = Math.min(capacity, 1 << SEGMENT_SHIFT);
+        this.segmentMask = segmentSlots - 1;
+        this.segments = new ByteBuffer[capacity / segmentSlots];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(segmentSlots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+        SecureRandom random = new SecureRandom();
+        this.key0 = random.nextLong();
+        this.key1 = random.nextLong();
+        this.sketch = new FrequencySketch(this.maxEntries);
+        this.windowKeys = new long[2 * (Math.max(1, this.maxEntries * WINDOW_PERCENT / 100) + 1)];
+    }
+
+    @Override
+    public boolean read(String clientSessionId, Slot slot) {
+        Key key = hash(clientSessionId);
+        long hi = key.hi;
+        long lo = key.lo;
+        sketch.increment(sketchHash(lo));
+        for (int index = home(hi), probes = 0; probes <= mask; index = (index + 1) & mask, probes++) {
+            ByteBuffer segment = segment(index);
+            int offset = offset(index);
+            int version = (int) INTS.getAcquire(segment, offset + VERSION);
+            if ((version & 1) != 0) {
+                return false;
+            }
+            long slotHi = (long) LONGS.get(segment, offset + KEY_HI);
+            long slotLo = (long) LONGS.get(segment, offset + KEY_LO);
+            if (slotHi == 0 && slotLo == 0) {
+                return false;
+            }
+            if (slotHi != hi || slotLo != lo) {
+                continue;
+            }
+            long expiresAt = (long) LONGS.get(segment, offset + EXPIRES_AT);
+            long deltaNanos = (long) LONGS.get(segment, offset + DELTA_NANOS);
+            int account = (int) INTS.get(segment, offset + ACCOUNT);
+            String[] table = accounts;
+            String accountId = account >= 0 && account < table.length ? table[account] : null;
+            VarHandle.loadLoadFence();
+            if ((int) INTS.get(segment, offset + VERSION) != version || accountId == null) {
+                return false;
+            }
+            slot.accountId = accountId;
+            slot.expiresAt = expiresAt;
+            slot.deltaNanos = deltaNanos;
+            slot.token = null;
+            slot.stamp = stamp(index, version);
+            int flags = (int) INTS.get(segment, offset + FLAGS);
+            if ((flags & REFERENCED) == 0) {
+                INTS.compareAndSet(segment, offset + FLAGS, flags, flags | REFERENCED);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryMarkRefreshing(Slot slot) {
+        int index = (int) (slot.stamp >>> 32);
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        int flags;
+        do {
+            flags = (int) INTS.getVolatile(segment, offset + FLAGS);
+            if ((flags & REFRESHING) != 0) {
+                return false;
+            }
+        } while (!INTS.compareAndSet(segment, offset + FLAGS, flags, flags | REFRESHING));
+        if ((int) INTS.getVolatile(segment, offset + VERSION) != (int) slot.stamp) {
+            // The slot was rewritten before we marked it; the mark is ours to take back.
+            clearFlag(segment, offset, REFRESHING);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void clearRefreshing(Slot slot) {
+        int index = (int) (slot.stamp >>> 32);
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        if ((int) INTS.getVolatile(segment, offset + VERSION) == (int) slot.stamp) {
+            clearFlag(segment, offset, REFRESHING);
+        }
+    }
+
+    @Override
+    public void put(String clientSessionId, String accountId, long expiresAt, long deltaNanos, long now) {
+        Key key = hash(clientSessionId);
+        long hi = key.hi;
+        long lo = key.lo;
+        writeLock.lock();
+        try {
+            int index = find(hi, lo);
+            if (index >= 0) {
+                int flags = (int) INTS.getVolatile(segment(index), offset(index) + FLAGS);
+                write(index, hi, lo, expiresAt, deltaNanos, accountId, flags & WINDOW | REFERENCED);
+                return;
+            }
+            index = home(hi);
+            while (!isEmpty(index)) {
+                index = (index + 1) & mask;
+            }
+            write(index, hi, lo, expiresAt, deltaNanos, accountId, WINDOW);
+            size++;
+            int candidate = enterWindow(hi, lo);
+            if (size > maxEntries) {
+                evict(candidate, now);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(String clientSessionId, Slot expected, String accountId, long expiresAt,
+            long deltaNanos) {
+        Key key = hash(clientSessionId);
+        long hi = key.hi;
+        long lo = key.lo;
+        writeLock.lock();
+        try {
+            int index = find(hi, lo);
+            if (index < 0 || !matches(index, expected)) {
+                return false;
+            }
+            int flags = (int) INTS.getVolatile(segment(index), offset(index) + FLAGS);
+            write(index, hi, lo, expiresAt, deltaNanos, accountId, flags & (WINDOW | REFERENCED));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String clientSessionId) {
+        Key key = hash(clientSessionId);
+        long hi = key.hi;
+        long lo = key.lo;
+        writeLock.lock();
+        try {
+            int index = find(hi, lo);
+            if (index >= 0) {
+                delete(index);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String clientSessionId, Slot expected) {
+        Key key = hash(clientSessionId);
+        long hi = key.hi;
+        long lo = key.lo;
+        writeLock.lock();
+        try {
+            int index = find(hi, lo);
+            if (index < 0 || !matches(index, expected)) {
+                return false;
+            }
+            delete(index);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        writeLock.lock();
+        try {
+            for (int index = 0; index <= mask; index++) {
+                if (!isEmpty(index)) {
+                    erase(index);
+                }
+            }
+            size = 0;
+            windowHead = 0;
+            windowCount = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    int accountCount() {
+        writeLock.lock();
+        try {
+            return accountRefs.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private int find(long hi, long lo) {
+        for (int index = home(hi), probes = 0; probes <= mask; index = (index + 1) & mask, probes++) {
+            ByteBuffer segment = segment(index);
+            int offset = offset(index);
+            long slotHi = (long) LONGS.get(segment, offset + KEY_HI);
+            long slotLo = (long) LONGS.get(segment, offset + KEY_LO);
+            if (slotHi == hi && slotLo == lo) {
+                return index;
+            }
+            if (slotHi == 0 && slotLo == 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int index, Slot expected) {
+        return (int) (expected.stamp >>> 32) == index
+                && (int) INTS.getVolatile(segment(index), offset(index) + VERSION) == (int) expected.stamp;
+    }
+
+    /**
+     * Queues a new session at the tail of the window and, once the window is over its size, takes the oldest session
+     * still in it out again. Returns the slot of that session, or -1 if none left the window.
+     */
+    private int enterWindow(long hi, long lo) {
+        int windowSlots = windowKeys.length / 2;
+        int tail = (windowHead + windowCount) % windowSlots;
+        windowKeys[2 * tail] = hi;
+        windowKeys[2 * tail + 1] = lo;
+        windowCount++;
+        while (windowCount > windowSlots - 1) {
+            long oldestHi = windowKeys[2 * windowHead];
+            long oldestLo = windowKeys[2 * windowHead + 1];
+            windowHead = (windowHead + 1) % windowSlots;
+            windowCount--;
+            int index = find(oldestHi, oldestLo);
+            // Sessions removed while in the window leave stale keys behind; skip them.
+            if (index >= 0 && (clearFlag(segment(index), offset(index), WINDOW) & WINDOW) != 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Brings the table back to its maximum size by deleting either the clock victim or the session that just left
+     * the window, whichever is less likely to be looked up again.
+     */
+    private void evict(int candidate, long now) {
+        int victim = selectVictim(candidate, now);
+        if (victim < 0) {
+            victim = candidate >= 0 ? candidate : firstOccupied();
+        } else if (candidate >= 0 && now - (long) LONGS.get(segment(victim), offset(victim) + EXPIRES_AT) < 0
+                && frequency(candidate) <= frequency(victim)) {
+            victim = candidate;
+        }
+        delete(victim);
+    }
+
+    /**
+     * Advances the clock hand to the first entry outside the window that is expired or was not read since the hand
+     * last passed it, clearing the referenced bit of the entries it skips. Returns -1 if every entry is in the window.
+     */
+    private int selectVictim(int candidate, long now) {
+        for (int scanned = 0; scanned <= 3 * mask; scanned++) {
+            int index = hand;
+            hand = (hand + 1) & mask;
+            if (index == candidate || isEmpty(index)) {
+                continue;
+            }
+            ByteBuffer segment = segment(index);
+            int offset = offset(index);
+            if (((int) INTS.getVolatile(segment, offset + FLAGS) & WINDOW) != 0) {
+                continue;
+            }
+            boolean expired = now - (long) LONGS.get(segment, offset + EXPIRES_AT) >= 0;
+            if (expired || scanned > 2 * mask || (clearFlag(segment, offset, REFERENCED) & REFERENCED) == 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int firstOccupied() {
+        int index = 0;
+        while (isEmpty(index)) {
+            index++;
+        }
+        return index;
+    }
+
+    private int frequency(int index) {
+        return sketch.frequency(sketchHash((long) LONGS.get(segment(index), offset(index) + KEY_LO)));
+    }
+
+    /**
+     * Empties the slot at {@code index} and shifts later entries of the same probe run back, so that lookups never
+     * need tombstones.
+     */
+    private void delete(int index) {
+        release((int) INTS.get(segment(index), offset(index) + ACCOUNT));
+        int hole = index;
+        for (int next = (hole + 1) & mask; !isEmpty(next); next = (next + 1) & mask) {
+            ByteBuffer segment = segment(next);
+            int offset = offset(next);
+            long hi = (long) LONGS.get(segment, offset + KEY_HI);
+            int home = home(hi);
+            boolean movable = next > hole ? home <= hole || home > next : home <= hole && home > next;
+            if (movable) {
+                move(next, hole);
+                hole = next;
+            }
+        }
+        clearSlot(hole);
+        size--;
+    }
+
+    private void erase(int index) {
+        release((int) INTS.get(segment(index), offset(index) + ACCOUNT));
+        clearSlot(index);
+    }
+
+    private void move(int from, int to) {
+        ByteBuffer source = segment(from);
+        int offset = offset(from);
+        ByteBuffer target = segment(to);
+        int targetOffset = offset(to);
+        int version = beginWrite(target, targetOffset);
+        LONGS.set(target, targetOffset + KEY_HI, (long) LONGS.get(source, offset + KEY_HI));
+        LONGS.set(target, targetOffset + KEY_LO, (long) LONGS.get(source, offset + KEY_LO));
+        LONGS.set(target, targetOffset + EXPIRES_AT, (long) LONGS.get(source, offset + EXPIRES_AT));
+        LONGS.set(target, targetOffset + DELTA_NANOS, (long) LONGS.get(source, offset + DELTA_NANOS));
+        INTS.set(target, targetOffset + ACCOUNT, (int) INTS.get(source, offset + ACCOUNT));
+        int flags = (int) INTS.getVolatile(source, offset + FLAGS);
+        INTS.setVolatile(target, targetOffset + FLAGS, flags & (WINDOW | REFERENCED));
+        INTS.setRelease(target, targetOffset + VERSION, version + 2);
+    }
+
+    private void write(int index, long hi, long lo, long expiresAt, long deltaNanos, String accountId, int flags) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        int account = acquire(accountId);
+        boolean occupied = !isEmpty(index);
+        int previous = (int) INTS.get(segment, offset + ACCOUNT);
+        int version = beginWrite(segment, offset);
+        LONGS.set(segment, offset + KEY_HI, hi);
+        LONGS.set(segment, offset + KEY_LO, lo);
+        LONGS.set(segment, offset + EXPIRES_AT, expiresAt);
+        LONGS.set(segment, offset + DELTA_NANOS, deltaNanos);
+        INTS.set(segment, offset + ACCOUNT, account);
+        INTS.setVolatile(segment, offset + FLAGS, flags);
+        INTS.setRelease(segment, offset + VERSION, version + 2);
+        if (occupied) {
+            release(previous);
+        }
+    }
+
+    private void clearSlot(int index) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        int version = beginWrite(segment, offset);
+        LONGS.set(segment, offset + KEY_HI, 0L);
+        LONGS.set(segment, offset + KEY_LO, 0L);
+        INTS.set(segment, offset + ACCOUNT, -1);
+        INTS.setVolatile(segment, offset + FLAGS, 0);
+        INTS.setRelease(segment, offset + VERSION, version + 2);
+    }
+
+    private static int beginWrite(ByteBuffer segment, int offset) {
+        int version = (int) INTS.get(segment, offset + VERSION);
+        INTS.setOpaque(segment, offset + VERSION, version + 1);
+        VarHandle.storeStoreFence();
+        return version;
+    }
+
+    private static int clearFlag(ByteBuffer segment, int offset, int flag) {
+        int flags;
+        do {
+            flags = (int) INTS.getVolatile(segment, offset + FLAGS);
+        } while ((flags & flag) != 0 && !INTS.compareAndSet(segment, offset + FLAGS, flags, flags & ~flag));
+        return flags;
+    }
+
+    private int acquire(String accountId) {
+        Integer existing = accountRefs.get(accountId);
+        int account;
+        if (existing != null) {
+            account = existing;
+        } else {
+            account = freeAccountCount > 0 ? freeAccounts[--freeAccountCount] : accountCount++;
+            if (account >= accountUses.length) {
+                accountUses = Arrays.copyOf(accountUses, accountUses.length * 2);
+                accounts = Arrays.copyOf(accounts, accountUses.length);
+            }
+            accounts[account] = accountId;
+            accountRefs.put(accountId, account);
+        }
+        accountUses[account]++;
+        return account;
+    }
+
+    private void release(int account) {
+        if (account < 0 || --accountUses[account] > 0) {
+            return;
+        }
+        accountRefs.remove(accounts[account]);
+        if (freeAccountCount == freeAccounts.length) {
+            freeAccounts = Arrays.copyOf(freeAccounts, freeAccounts.length * 2);
+        }
+        freeAccounts[freeAccountCount++] = account;
+    }
+
+    private boolean isEmpty(int index) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        return (long) LONGS.get(segment, offset + KEY_HI) == 0 && (long) LONGS.get(segment, offset + KEY_LO) == 0;
+    }
+
+    private ByteBuffer segment(int index) {
+        return segments[index >>> SEGMENT_SHIFT];
+    }
+
+    private int offset(int index) {
+        return (index & segmentMask) * SLOT_BYTES;
+    }
+
+    private int home(long hi) {
+        return (int) (hi ^ (hi >>> 32)) & mask;
+    }
+
+    private static int sketchHash(long lo) {
+        return (int) (lo ^ (lo >>> 32));
+    }
+
+    private static long stamp(int index, int version) {
+        return ((long) index << 32) | (version & 0xFFFFFFFFL);
+    }
+
+    private Key hash(String clientSessionId) {
+        Key key = sipHash128(key0, key1, clientSessionId);
+        // An all-zero key marks an empty slot.
+        return key.lo == 0 ? new Key(key.hi, 1) : key;
+    }
+
+    /**
+     * SipHash-2-4 with 128-bit output over the id's UTF-16LE bytes, taking four characters per message word. The
+     * state and the key are values that never escape, so the JIT keeps them in registers.
+     */
+    static Key sipHash128(long k0, long k1, String value) {
+        SipState state = new SipState(k0, k1);
+        int length = value.length();
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            state.compress(value.charAt(i) | (long) value.charAt(i + 1) << 16
+                    | (long) value.charAt(i + 2) << 32 | (long) value.charAt(i + 3) << 48);
+        }
+        long last = (long) (2 * length) << 56;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            last |= (long) value.charAt(i) << shift;
+        }
+        state.compress(last);
+        return state.finish();
+    }
+
+    private static final class SipState {
+
+        private long v0;
+        private long v1;
+        private long v2;
+        private long v3;
+
+        private SipState(long k0, long k1) {
+            v0 = 0x736F6D6570736575L ^ k0;
+            v1 = 0x646F72616E646F6DL ^ k1 ^ 0xEE;
+            v2 = 0x6C7967656E657261L ^ k0;
+            v3 = 0x7465646279746573L ^ k1;
+        }
+
+        private void compress(long message) {
+            v3 ^= message;
+            round();
+            round();
+            v0 ^= message;
+        }
+
+        private Key finish() {
+            v2 ^= 0xEE;
+            round();
+            round();
+            round();
+            round();
+            long hi = v0 ^ v1 ^ v2 ^ v3;
+            v1 ^= 0xDD;
+            round();
+            round();
+            round();
+            round();
+            return new Key(hi, v0 ^ v1 ^ v2 ^ v3);
+        }
+
+        private void round() {
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13) ^ v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16) ^ v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21) ^ v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17) ^ v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+
+    }
+
+    record Key(long hi, long lo) {
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import app.krista.extensions.authentication.krista_client_authentication.cluster.InvalidationBus;
+
+/**
+ * Caches session to account resolutions with refresh-ahead.
+ * <p>
+ * Each entry lives for the configured TTL shortened by a random jitter, so sessions resolved together do not expire
+ * together. Before that, every hit runs the XFetch test {@code now - delta * beta * ln(random) >= expiry}, where
+ * {@code delta} is how long the entry took to load, but at least {@value #MIN_DELTA_FRACTION} of the TTL so that
+ * sessions hit every few seconds also refresh ahead. Slow-to-load entries start refreshing earlier. When the
+ * test fires the caller still gets the cached account while one background refresh revalidates the session; only
+ * entries that were not hit before hard expiry are loaded synchronously, and concurrent loads of the same session
+ * share one call to the underlying lookup.
+ * <p>
+ * Only sessions that resolve to an account are cached; a refresh that finds the session gone removes the entry. An
+ * invalidation that arrives while the session is being loaded wins over the load's result, so a revoked session is
+ * never cached again by a lookup that started before the revocation.
+ * <p>
+ * Entries are kept in a {@link SessionStore}. The default one is chosen by {@code krista.authn.sessionCache.backend}:
+ * {@code heap} (the default) or {@code offheap} for deployments with millions of live sessions, bounded by
+ * {@code krista.authn.sessionCache.maxEntries}.
+ * <p>
+ * As an {@link InvalidationBus.Listener} the cache evicts sessions invalidated on other nodes; sessions that a refresh
+ * finds gone are reported to the {@linkplain #setRevocationListener revocation listener} so they can be spread the
+ * other way.
+ * <p>
+ * Nothing tells the cache when the platform logs a session out or revokes it, so a cached session keeps
+ * authenticating until its entry expires or a refresh finds it gone. The default TTL
+ * ({@code krista.authn.sessionCache.ttlMillis}) is therefore {@code 0}, which disables caching and asks the
+ * underlying lookup on every request.
+ */
+public class SessionCache implements SessionLookup, InvalidationBus.Listener {
+
+    public static final long DEFAULT_TTL_MILLIS = Long.getLong("krista.authn.sessionCache.ttlMillis", 0);
+    public static final double DEFAULT_BETA = 1.0;
+    public static final double DEFAULT_JITTER = 0.1;
+    private static final double MIN_DELTA_FRACTION = 0.05;
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("krista.authn.sessionCache.maxEntries", 100_000);
+    public static final String DEFAULT_BACKEND = System.getProperty("krista.authn.sessionCache.backend", "heap");
+    private static final Executor DEFAULT_REFRESHER = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final SessionLookup source;
+    private final long ttlNanos;
+    private final long minDeltaNanos;
+    private final double beta;
+    private final double jitter;
+    private final SessionStore store;
+    private final Executor refresher;
+    private final LongSupplier nanoClock;
+    private final DoubleSupplier random;
+    private final ThreadLocal<SessionStore.Slot> slots = ThreadLocal.withInitial(SessionStore.Slot::new);
+    private final Map<String, Load> loading = new ConcurrentHashMap<>();
+    private final AtomicLong clearGeneration = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private volatile Consumer<String> revocationListener = clientSessionId -> { };
+
+    public SessionCache(SessionLookup source) {
+        this(source, DEFAULT_TTL_MILLIS);
+    }
+
+    public SessionCache(SessionLookup source, long ttlMillis) {
+        this(source, ttlMillis, newDefaultStore());
+    }
+
+    public SessionCache(SessionLookup source, long ttlMillis, SessionStore store) {
+        this(source, ttlMillis, DEFAULT_BETA, DEFAULT_JITTER, store, DEFAULT_REFRESHER, System::nanoTime,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    SessionCache(SessionLookup source, long ttlMillis, double beta, double jitter, SessionStore store,
+            Executor refresher, LongSupplier nanoClock, DoubleSupplier random) {
+        if (source == null) {
+            throw new IllegalArgumentException("Session lookup is null.");
+        }
+        if (store == null) {
+            throw new IllegalArgumentException("Session store is null.");
+        }
+        this.source = source;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.minDeltaNanos = (long) (ttlNanos * MIN_DELTA_FRACTION);
+        this.beta = beta;
+        this.jitter = jitter;
+        this.store = store;
+        this.refresher = refresher;
+        this.nanoClock = nanoClock;
+        this.random = random;
+    }
+
+    @Override
+    public String lookupAccountId(String clientSessionId) {
+        if (clientSessionId == null || ttlNanos <= 0) {
+            return source.lookupAccountId(clientSessionId);
+        }
+        long now = nanoClock.getAsLong();
+        SessionStore.Slot slot = slots.get();
+        if (store.read(clientSessionId, slot) && now - slot.expiresAt < 0) {
+            hits.increment();
+            if (shouldRefreshEarly(slot, now)) {
+                refresh(clientSessionId, slot);
+            }
+            return slot.accountId;
+        }
+        misses.increment();
+        return load(clientSessionId);
+    }
+
+    @Override
+    public void invalidate(String clientSessionId) {
+        // Flag the in-flight load before removing, so a load that misses the flag stores before the removal.
+        Load inFlight = loading.get(clientSessionId);
+        if (inFlight != null) {
+            inFlight.invalidated = true;
+        }
+        store.remove(clientSessionId);
+    }
+
+    @Override
+    public void invalidateAll() {
+        clearGeneration.incrementAndGet();
+        store.clear();
+    }
+
+    /**
+     * Sets what to call with a cached session that a refresh found no longer resolves to an account.
+     */
+    public void setRevocationListener(Consumer<String> revocationListener) {
+        this.revocationListener = revocationListener;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    int size() {
+        return store.size();
+    }
+
+    static SessionStore newDefaultStore() {
+        return "offheap".equalsIgnoreCase(DEFAULT_BACKEND)
+                ? new OffHeapSessionStore(DEFAULT_MAX_ENTRIES)
+                : new HeapSessionStore(DEFAULT_MAX_ENTRIES);
+    }
+
+    private boolean shouldRefreshEarly(SessionStore.Slot entry, long now) {
+        double sample = random.getAsDouble();
+        if (sample <= 0) {
+            return true;
+        }
+        long delta = Math.max(entry.deltaNanos, minDeltaNanos);
+        return now - (long) (delta * beta * Math.log(sample)) - entry.expiresAt >= 0;
+    }
+
+    private String load(String clientSessionId) {
+        Load mine = new Load();
+        Load inFlight = loading.putIfAbsent(clientSessionId, mine);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            long generation = clearGeneration.get();
+            long start = nanoClock.getAsLong();
+            String accountId = source.lookupAccountId(clientSessionId);
+            long end = nanoClock.getAsLong();
+            if (accountId == null) {
+                store.remove(clientSessionId);
+            } else if (!mine.invalidated && clearGeneration.get() == generation) {
+                store.put(clientSessionId, accountId, expiresAt(end), end - start, end);
+                if (mine.invalidated || clearGeneration.get() != generation) {
+                    // Invalidated while storing; the invalidation may have run before the put.
+                    store.remove(clientSessionId);
+                }
+            }
+            mine.complete(accountId);
+            return accountId;
+        } catch (Throwable cause) {
+            // Complete on errors too, or every caller waiting on this load would block forever.
+            mine.completeExceptionally(cause);
+            throw cause;
+        } finally {
+            loading.remove(clientSessionId, mine);
+        }
+    }
+
+    private void refresh(String clientSessionId, SessionStore.Slot slot) {
+        if (!store.tryMarkRefreshing(slot)) {
+            return;
+        }
+        refreshes.increment();
+        SessionStore.Slot entry = slot.copy();
+        try {
+            refresher.execute(() -> {
+                try {
+                    long start = nanoClock.getAsLong();
+                    String accountId = source.lookupAccountId(clientSessionId);
+                    long end = nanoClock.getAsLong();
+                    if (accountId == null) {
+                        if (store.remove(clientSessionId, entry)) {
+                            revocationListener.accept(clientSessionId);
+                        }
+                    } else {
+                        store.replace(clientSessionId, entry, accountId, expiresAt(end), end - start);
+                    }
+                } catch (Throwable cause) {
+                    // Keep serving the current value until it expires; the next hit may try again.
+                    store.clearRefreshing(entry);
+                    if (cause instanceof Error error) {
+                        throw error;
+                    }
+                }
+            });
+        } catch (RuntimeException rejected) {
+            store.clearRefreshing(entry);
+        }
+    }
+
+    private long expiresAt(long now) {
+        return now + (long) (ttlNanos * (1 - jitter * random.getAsDouble()));
+    }
+
+    private static String await(Load inFlight) {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for session lookup.", cause);
+        } catch (ExecutionException cause) {
+            if (cause.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) cause.getCause();
+            }
+            if (cause.getCause() instanceof Error) {
+                throw (Error) cause.getCause();
+            }
+            throw new IllegalStateException("Session lookup failed.", cause.getCause());
+        }
+    }
+
+    /**
+     * A load in flight; {@code invalidated} is set when the session is invalidated before the load stores its result.
+     */
+    private static final class Load extends CompletableFuture<String> {
+
+        private volatile boolean invalidated;
+
+    }
+
+}
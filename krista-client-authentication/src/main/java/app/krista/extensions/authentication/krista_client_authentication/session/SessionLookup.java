@@ -0,0 +1,31 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+/**
+ * Resolves a client session id to the id of the account it is authenticated as, or {@code null} when the session is
+ * unknown or expired. Implemented by the platform {@code SessionManager} and by the caching and protective layers in
+ * this package that wrap it.
+ */
+@FunctionalInterface
+public interface SessionLookup {
+
+    String lookupAccountId(String clientSessionId);
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+/**
+ * Storage backend of a {@link SessionCache}.
+ * <p>
+ * Reads fill a caller-owned {@link Slot} instead of returning an entry object, so a backend that keeps its entries
+ * outside the Java heap can serve hits without allocating. The slot's {@code token} and {@code stamp} identify the
+ * version of the entry that was read; {@link #replace} and {@link #remove(String, Slot)} only act while that version
+ * is still current, so a background refresh can never resurrect an entry that was invalidated or replaced meanwhile.
+ * <p>
+ * Implementations are bounded and choose their own eviction policy.
+ */
+public interface SessionStore {
+
+    /**
+     * Fills {@code slot} with the entry for {@code clientSessionId}; returns {@code false} if there is none.
+     */
+    boolean read(String clientSessionId, Slot slot);
+
+    /**
+     * Marks the entry read into {@code slot} as being refreshed; returns {@code false} if another refresh is already
+     * running or the entry has changed.
+     */
+    boolean tryMarkRefreshing(Slot slot);
+
+    void clearRefreshing(Slot slot);
+
+    void put(String clientSessionId, String accountId, long expiresAt, long deltaNanos, long now);
+
+    boolean replace(String clientSessionId, Slot expected, String accountId, long expiresAt, long deltaNanos);
+
+    void remove(String clientSessionId);
+
+    boolean remove(String clientSessionId, Slot expected);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Holder for one entry read from a store. Slots are reused across reads; {@link #copy()} snapshots one for use
+     * by a background refresh.
+     */
+    final class Slot {
+
+        String accountId;
+        long expiresAt;
+        long deltaNanos;
+        Object token;
+        long stamp;
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        Slot copy() {
+            Slot copy = new Slot();
+            copy.accountId = accountId;
+            copy.expiresAt = expiresAt;
+            copy.deltaNanos = deltaNanos;
+            copy.token = token;
+            copy.stamp = stamp;
+            return copy;
+        }
+
+    }
+
+}
@@ -24,7 +24,14 @@ import app.krista.extension.request.RoutingInfo;
 import app.krista.extension.request.protos.http.HttpProtocol;
 import app.krista.extension.request.protos.http.HttpRequest;
 import app.krista.extension.request.protos.http.HttpResponse;
+import app.krista.extensions.authentication.krista_client_authentication.activity.ActivityTracker;
+import app.krista.extensions.authentication.krista_client_authentication.activity.InMemoryActivitySink;
 import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiConstants;
+import app.krista.extensions.authentication.krista_client_authentication.audit.AuditLog;
+import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiUtility;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientKeyResolver;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientRateLimiter;
+import app.krista.extensions.authentication.krista_client_authentication.session.LimitExceededException;
 import app.krista.ksdk.authentication.SessionManager;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +41,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.ByteArrayInputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
@@ -123,6 +131,129 @@ class KristaClientRequestAuthenticatorTest {
         assertNull(accountId, "Should return null when cookie doesn't have X-Krista-Context format");
     }
 
+    @Test
+    @DisplayName("Should skip all session work for public routes")
+    void testGetAuthenticatedAccountId_PublicRoute_SkipsSessionWork() {
+        // Arrange
+        when(mockHttpRequest.getMethod()).thenReturn("GET");
+        when(mockHttpRequest.getUri()).thenReturn(URI.create("https://example.com/static/docs/index.html"));
+
+        // Act
+        String accountId = authenticator.getAuthenticatedAccountId(mockHttpRequest);
+
+        // Assert
+        assertNull(accountId);
+        verify(mockHttpRequest, never()).getHeader(anyString());
+        verifyNoInteractions(mockSessionManager);
+    }
+
+    @Test
+    @DisplayName("Should answer 429 once a client has spent its failure budget")
+    void testGetAuthenticatedAccountId_RateLimited() {
+        // Arrange
+        KristaClientRequestAuthenticator limited = newLimited(new ClientRateLimiter(1, 2, 64), mock(AuditLog.class));
+        when(mockHttpRequest.getHeader(ApiConstants.X_FORWARDED_FOR)).thenReturn("203.0.113.7");
+        when(mockHttpRequest.getHeader(ApiConstants.COOKIE)).thenReturn(null);
+
+        // Act
+        limited.getAuthenticatedAccountId(mockHttpRequest);
+        limited.getAuthenticatedAccountId(mockHttpRequest);
+        String accountId = limited.getAuthenticatedAccountId(mockHttpRequest);
+        HttpResponse response = (HttpResponse) limited.getMustAuthenticateResponse(
+                new MustAuthenticateException("Not authenticated"), mockHttpRequest);
+
+        // Assert
+        assertNull(accountId);
+        assertEquals(429, response.getStatusCode());
+        assertEquals("1", response.getHeaders().get("Retry-After"));
+    }
+
+    @Test
+    @DisplayName("Should authenticate a valid session even when its client is over the limit")
+    void testGetAuthenticatedAccountId_RateLimitedClientWithValidSession() {
+        // Arrange
+        KristaClientRequestAuthenticator limited = newLimited(new ClientRateLimiter(1, 1, 64), mock(AuditLog.class));
+        when(mockHttpRequest.getHeader(ApiConstants.X_FORWARDED_FOR)).thenReturn("203.0.113.7");
+        when(mockHttpRequest.getHeader(ApiConstants.AUTHORIZATION)).thenReturn("Krista session-1");
+        when(mockSessionManager.lookupAccountId("session-1")).thenReturn(null, null, "account-1");
+
+        // Act
+        limited.getAuthenticatedAccountId(mockHttpRequest);
+        limited.getAuthenticatedAccountId(mockHttpRequest);
+        String accountId = limited.getAuthenticatedAccountId(mockHttpRequest);
+
+        // Assert
+        assertEquals("account-1", accountId);
+    }
+
+    @Test
+    @DisplayName("Should not rate-limit clients whose address is unknown")
+    void testGetAuthenticatedAccountId_UnknownClientNotLimited() {
+        // Arrange
+        KristaClientRequestAuthenticator limited = newLimited(new ClientRateLimiter(1, 1, 64), mock(AuditLog.class));
+        when(mockHttpRequest.getHeader(ApiConstants.X_KRISTA_ORIGINAL_URL)).thenReturn("https://app.example.com/");
+        when(mockInvoker.getRoutingInfo()).thenReturn(mockRoutingInfo);
+        when(mockRoutingInfo.getRoutingURL(HttpProtocol.PROTOCOL_NAME, RoutingInfo.Type.APPLIANCE))
+                .thenReturn("https://krista.example.com");
+
+        // Act
+        limited.getAuthenticatedAccountId(mockHttpRequest);
+        limited.getAuthenticatedAccountId(mockHttpRequest);
+        HttpResponse response = (HttpResponse) limited.getMustAuthenticateResponse(
+                new MustAuthenticateException("Not authenticated"), mockHttpRequest);
+
+        // Assert
+        assertEquals(302, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should audit must-authenticate responses with their status")
+    void testGetMustAuthenticateResponse_RecordsAuditEvent() {
+        // Arrange
+        AuditLog auditLog = mock(AuditLog.class);
+        KristaClientRequestAuthenticator audited = newLimited(new ClientRateLimiter(1, 1, 64), auditLog);
+        when(mockHttpRequest.getHeader(ApiConstants.X_FORWARDED_FOR)).thenReturn("203.0.113.7");
+        when(mockHttpRequest.getHeader(ApiConstants.X_KRISTA_ORIGINAL_URL)).thenReturn("https://app.example.com/");
+        when(mockInvoker.getRoutingInfo()).thenReturn(mockRoutingInfo);
+        when(mockRoutingInfo.getRoutingURL(HttpProtocol.PROTOCOL_NAME, RoutingInfo.Type.APPLIANCE))
+                .thenReturn("https://krista.example.com");
+
+        // Act
+        audited.getAuthenticatedAccountId(mockHttpRequest);
+        audited.getMustAuthenticateResponse(new MustAuthenticateException("Not authenticated"), mockHttpRequest);
+        audited.getAuthenticatedAccountId(mockHttpRequest);
+        audited.getMustAuthenticateResponse(new MustAuthenticateException("Not authenticated"), mockHttpRequest);
+
+        // Assert
+        verify(auditLog).mustAuthenticate(302, "203.0.113.7");
+        verify(auditLog).mustAuthenticate(429, "203.0.113.7");
+    }
+
+    @Test
+    @DisplayName("Should answer a request shed by the concurrency limiter with 503 instead of a redirect")
+    void testGetMustAuthenticateResponse_ShedLookupReturns503() {
+        // Arrange
+        AuditLog auditLog = mock(AuditLog.class);
+        KristaClientRequestAuthenticator shedding = new KristaClientRequestAuthenticator(
+                clientSessionId -> {
+                    throw new LimitExceededException(1);
+                }, RouteClassifier.getDefault(), new LoginRedirects(mockInvoker), new ClientRateLimiter(1, 1, 64),
+                ActivityTracker.getDefault(), auditLog);
+        when(mockHttpRequest.getHeader(ApiConstants.AUTHORIZATION)).thenReturn("Krista session-1");
+
+        // Act
+        String accountId = shedding.getAuthenticatedAccountId(mockHttpRequest);
+        HttpResponse response = (HttpResponse) shedding.getMustAuthenticateResponse(
+                new MustAuthenticateException("Not authenticated"), mockHttpRequest);
+
+        // Assert
+        assertNull(accountId);
+        assertEquals(503, response.getStatusCode());
+        assertEquals("1", response.getHeaders().get("Retry-After"));
+        verify(auditLog).mustAuthenticate(503, null);
+        verifyNoInteractions(mockInvoker);
+    }
+
     @Test
     @DisplayName("Should return empty map for attribute fields")
     void testGetAttributeFields_ReturnsEmptyMap() {
@@ -135,7 +266,7 @@ class KristaClientRequestAuthenticatorTest {
     }
 
     @Test
-    @DisplayName("Should return false for setServiceAuthorization")
+    @DisplayName("Should return false for setServiceAuthorization with an unknown token")
     void testSetServiceAuthorization_ReturnsFalse() {
         // Act
         boolean result = authenticator.setServiceAuthorization("test-token");
@@ -144,6 +275,92 @@ class KristaClientRequestAuthenticatorTest {
         assertFalse(result, "setServiceAuthorization should return false");
     }
 
+    @Test
+    @DisplayName("Should authenticate the service token through the session lookup so revocation applies")
+    void testSetServiceAuthorization_AcceptsResolvableToken() {
+        // Arrange
+        when(mockSessionManager.lookupAccountId("service-token")).thenReturn("service-account", "service-account",
+                null);
+        when(mockHttpRequest.getHeader(ApiConstants.AUTHORIZATION)).thenReturn("Bearer service-token");
+
+        // Act
+        boolean accepted = authenticator.setServiceAuthorization("service-token");
+        String first = authenticator.getAuthenticatedAccountId(mockHttpRequest);
+        String revoked = authenticator.getAuthenticatedAccountId(mockHttpRequest);
+
+        // Assert
+        assertTrue(accepted, "Resolvable service token should be accepted");
+        assertEquals("service-account", first);
+        assertNull(revoked, "A revoked service session should stop authenticating");
+        verify(mockHttpRequest, times(1)).getHeader(ApiConstants.COOKIE);
+    }
+
+    @Test
+    @DisplayName("Should authenticate Krista authorization header before parsing cookies")
+    void testGetAuthenticatedAccountId_KristaAuthorizationHeader() {
+        // Arrange
+        when(mockHttpRequest.getHeader(ApiConstants.AUTHORIZATION)).thenReturn("Krista session-123");
+        when(mockSessionManager.lookupAccountId("session-123")).thenReturn("account-1");
+
+        // Act
+        String accountId = authenticator.getAuthenticatedAccountId(mockHttpRequest);
+
+        // Assert
+        assertEquals("account-1", accountId);
+        verify(mockHttpRequest, never()).getHeader(ApiConstants.COOKIE);
+    }
+
+    @Test
+    @DisplayName("Should record activity of authenticated sessions for the next flush")
+    void testGetAuthenticatedAccountId_RecordsActivity() {
+        // Arrange
+        InMemoryActivitySink sink = new InMemoryActivitySink(60_000);
+        ActivityTracker activity = new ActivityTracker(sink);
+        KristaClientRequestAuthenticator tracked = new KristaClientRequestAuthenticator(
+                clientSessionId -> mockSessionManager.lookupAccountId(clientSessionId), RouteClassifier.getDefault(),
+                new LoginRedirects(mockInvoker), new ClientRateLimiter(1, 2, 64), activity);
+        when(mockHttpRequest.getHeader(ApiConstants.AUTHORIZATION)).thenReturn("Krista session-123");
+        when(mockSessionManager.lookupAccountId("session-123")).thenReturn("account-1");
+
+        // Act
+        tracked.getAuthenticatedAccountId(mockHttpRequest);
+        tracked.getAuthenticatedAccountId(mockHttpRequest);
+        activity.flush();
+
+        // Assert
+        assertEquals("account-1", sink.get("session-123").getAccountId());
+        assertEquals(1, activity.getFlushedCount());
+    }
+
+    @Test
+    @DisplayName("Should fall back to cookies when the authorization header does not resolve")
+    void testGetAuthenticatedAccountId_UnknownAuthorizationFallsBackToCookie() {
+        // Arrange
+        when(mockHttpRequest.getHeader(ApiConstants.AUTHORIZATION)).thenReturn("Bearer unknown");
+        when(mockHttpRequest.getHeader(ApiConstants.COOKIE)).thenReturn(null);
+
+        // Act
+        String accountId = authenticator.getAuthenticatedAccountId(mockHttpRequest);
+
+        // Assert
+        assertNull(accountId);
+        verify(mockSessionManager).lookupAccountId("unknown");
+        verify(mockHttpRequest).getHeader(ApiConstants.COOKIE);
+    }
+
+    @Test
+    @DisplayName("Should parse only Krista and Bearer authorization headers")
+    void testGetClientSessionIdFromAuthorization() {
+        assertEquals("abc", ApiUtility.getClientSessionIdFromAuthorization("Krista abc"));
+        assertEquals("abc", ApiUtility.getClientSessionIdFromAuthorization("bearer   abc  "));
+        assertNull(ApiUtility.getClientSessionIdFromAuthorization("Basic dXNlcjpwYXNz"));
+        assertNull(ApiUtility.getClientSessionIdFromAuthorization("Bearer"));
+        assertNull(ApiUtility.getClientSessionIdFromAuthorization("Bearer "));
+        assertNull(ApiUtility.getClientSessionIdFromAuthorization("Bearerabc"));
+        assertNull(ApiUtility.getClientSessionIdFromAuthorization("Bearer a b"));
+        assertNull(ApiUtility.getClientSessionIdFromAuthorization(null));
+    }
+
     @Test
     @DisplayName("Should return redirect response for must authenticate exception")
     void testGetMustAuthenticateResponse_ReturnsRedirect() {
@@ -165,6 +382,23 @@ class KristaClientRequestAuthenticatorTest {
         assertTrue(response.getHeaders().containsKey("Location"), "Should contain Location header");
     }
 
+    @Test
+    @DisplayName("Should redirect to the login page when the original URI header is missing")
+    void testGetMustAuthenticateResponse_NoOriginalUri() {
+        // Arrange
+        MustAuthenticateException exception = new MustAuthenticateException("Not authenticated");
+        when(mockInvoker.getRoutingInfo()).thenReturn(mockRoutingInfo);
+        when(mockRoutingInfo.getRoutingURL(HttpProtocol.PROTOCOL_NAME, RoutingInfo.Type.APPLIANCE))
+                .thenReturn("https://krista.example.com");
+
+        // Act
+        HttpResponse response = (HttpResponse) authenticator.getMustAuthenticateResponse(exception, mockHttpRequest);
+
+        // Assert
+        assertEquals(302, response.getStatusCode(), "Should return 302 redirect");
+        assertEquals("https://krista.example.com/authn/login", response.getHeaders().get("Location"));
+    }
+
     @Test
     @DisplayName("Should return null for getMustAuthenticateResponse without request")
     void testGetMustAuthenticateResponse_NoRequest_ReturnsNull() {
@@ -177,4 +411,12 @@ class KristaClientRequestAuthenticatorTest {
         // Assert
         assertNull(response, "Should return null when no request is provided");
     }
+
+    private KristaClientRequestAuthenticator newLimited(ClientRateLimiter limiter, AuditLog auditLog) {
+        return new KristaClientRequestAuthenticator(
+                clientSessionId -> mockSessionManager.lookupAccountId(clientSessionId), RouteClassifier.getDefault(),
+                new LoginRedirects(mockInvoker), limiter, ActivityTracker.getDefault(), auditLog,
+                new ClientKeyResolver("10.0.0.0/8"));
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import app.krista.extension.request.protos.http.HttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoginRedirects.
+ */
+@DisplayName("Login Redirects Tests")
+class LoginRedirectsTest {
+
+    private final AtomicReference<String> routingUrl = new AtomicReference<>("https://krista.example.com");
+    private final AtomicInteger routingLookups = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+
+    private LoginRedirects newRedirects(int capacity) {
+        return new LoginRedirects(() -> {
+            routingLookups.incrementAndGet();
+            return routingUrl.get();
+        }, 100, capacity, clock::get);
+    }
+
+    @Test
+    @DisplayName("Should build an encoded login redirect")
+    void testRedirectLocation() {
+        HttpResponse response = newRedirects(4).redirect("https://app.example.com/page?a=1&b=2");
+
+        assertEquals(302, response.getStatusCode());
+        assertEquals("https://krista.example.com/authn/login?X-Krista-Original-URI="
+                        + "https%3A%2F%2Fapp.example.com%2Fpage%3Fa%3D1%26b%3D2",
+                response.getHeaders().get("Location"));
+    }
+
+    @Test
+    @DisplayName("Should redirect to the bare login page when the original URI is missing")
+    void testMissingOriginalUri() {
+        HttpResponse response = newRedirects(4).redirect(null);
+
+        assertEquals("https://krista.example.com/authn/login", response.getHeaders().get("Location"));
+    }
+
+    @Test
+    @DisplayName("Should reuse cached headers and read routing info once per recheck interval")
+    void testCachesRoutingUrlAndHeaders() {
+        LoginRedirects redirects = newRedirects(4);
+
+        Map<String, String> first = redirects.headers("https://app.example.com/a");
+        Map<String, String> second = redirects.headers("https://app.example.com/a");
+
+        assertSame(first, second);
+        assertEquals(1, routingLookups.get());
+    }
+
+    @Test
+    @DisplayName("Should rebuild redirects when the routing URL changes")
+    void testDetectsRoutingUrlChange() {
+        LoginRedirects redirects = newRedirects(4);
+        Map<String, String> before = redirects.headers("https://app.example.com/a");
+
+        clock.addAndGet(100);
+        Map<String, String> unchanged = redirects.headers("https://app.example.com/a");
+        routingUrl.set("https://other.example.com");
+        clock.addAndGet(100);
+        Map<String, String> after = redirects.headers("https://app.example.com/a");
+
+        assertSame(before, unchanged);
+        assertEquals(3, routingLookups.get());
+        assertTrue(after.get("Location").startsWith("https://other.example.com/authn/login?"));
+    }
+
+    @Test
+    @DisplayName("Should keep serving the last good routing URL while it is unavailable")
+    void testRoutingUrlUnavailable() {
+        LoginRedirects redirects = newRedirects(4);
+        routingUrl.set(null);
+        assertEquals("/authn/login", redirects.headers(null).get("Location"), "Without a routing URL yet");
+
+        routingUrl.set("https://krista.example.com");
+        clock.addAndGet(100);
+        Map<String, String> good = redirects.headers("https://app.example.com/a");
+        routingUrl.set(null);
+        clock.addAndGet(100);
+        Map<String, String> during = redirects.headers("https://app.example.com/a");
+
+        assertSame(good, during);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used original URI when full")
+    void testEvictsLeastRecentlyUsed() {
+        LoginRedirects redirects = newRedirects(2);
+        Map<String, String> a = redirects.headers("/a");
+        Map<String, String> b = redirects.headers("/b");
+        redirects.headers("/a");
+        redirects.headers("/c");
+
+        assertSame(a, redirects.headers("/a"));
+        assertNotSame(b, redirects.headers("/b"));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication;
+
+import java.util.ArrayList;
+import java.util.List;
+import app.krista.extensions.authentication.krista_client_authentication.RouteClassifier.Route;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RouteClassifier.
+ */
+@DisplayName("Route Classifier Tests")
+class RouteClassifierTest {
+
+    private final RouteClassifier defaults = new RouteClassifier(RouteClassifier.DEFAULT_PUBLIC_ROUTES,
+            RouteClassifier.DEFAULT_LOGIN_ROUTES);
+
+    @Test
+    @DisplayName("Should classify the default public routes")
+    void testDefaultPublicRoutes() {
+        assertEquals(Route.PUBLIC, defaults.classify("GET", "/authenticator"));
+        assertEquals(Route.PUBLIC, defaults.classify("GET", "/static/docs/index.html"));
+        assertEquals(Route.PUBLIC, defaults.classify("GET", "/static/docs"));
+        assertEquals(Route.PUBLIC, defaults.classify("OPTIONS", "/login"));
+    }
+
+    @Test
+    @DisplayName("Should keep other static content and health checks protected unless configured")
+    void testNarrowDefaults() {
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/static/app/data.json"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/static"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/health"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/health/ready"));
+
+        List<String> configured = new ArrayList<>(RouteClassifier.DEFAULT_PUBLIC_ROUTES);
+        configured.addAll(List.of("/health", "/health/**"));
+        RouteClassifier withHealth = new RouteClassifier(configured, RouteClassifier.DEFAULT_LOGIN_ROUTES);
+
+        assertEquals(Route.PUBLIC, withHealth.classify("GET", "/health"));
+        assertEquals(Route.PUBLIC, withHealth.classify("GET", "/health/ready"));
+    }
+
+    @Test
+    @DisplayName("Should classify login and protected routes")
+    void testLoginAndProtectedRoutes() {
+        assertEquals(Route.LOGIN, defaults.classify("POST", "/login"));
+        assertEquals(Route.LOGIN, defaults.classify("GET", "/login/"));
+        assertEquals(Route.PROTECTED, defaults.classify("POST", "/authenticator"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/api/data"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/loginx"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", null));
+    }
+
+    @Test
+    @DisplayName("Should never treat dot segments as public")
+    void testDotSegmentsAreProtected() {
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/static/docs/../../api/data"));
+        assertEquals(Route.PROTECTED, defaults.classify("GET", "/static/docs/./index.html"));
+        assertEquals(Route.PUBLIC, defaults.classify("GET", "/static/docs/.hidden"));
+    }
+
+    @Test
+    @DisplayName("Should prefer literal segments, then wildcards, then rest matches with backtracking")
+    void testPrecedenceAndBacktracking() {
+        RouteClassifier classifier = new RouteClassifier(
+                List.of("/files/**", "/tenants/*/public"),
+                List.of("/files/private/login"));
+
+        assertEquals(Route.LOGIN, classifier.classify("GET", "/files/private/login"));
+        assertEquals(Route.PUBLIC, classifier.classify("GET", "/files/private/other"));
+        assertEquals(Route.PUBLIC, classifier.classify("GET", "/tenants/acme/public"));
+        assertEquals(Route.PROTECTED, classifier.classify("GET", "/tenants/acme/private"));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed rules")
+    void testMalformedRules() {
+        assertThrows(IllegalArgumentException.class, () -> new RouteClassifier(List.of("static"), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new RouteClassifier(List.of("/a/**/b"), List.of()));
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.activity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ActivityTracker.
+ */
+@DisplayName("Activity Tracker Tests")
+class ActivityTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private final List<List<SessionActivity>> batches = new ArrayList<>();
+    private final ActivitySink recording = batches::add;
+
+    @Test
+    @DisplayName("Should emit only the latest activity of each session that moved since the last flush")
+    void testFlushCoalescesActivity() {
+        // Arrange
+        ActivityTracker tracker = new ActivityTracker(recording, 100, 60_000, 10, clock::get);
+
+        // Act
+        tracker.record("session-1", "account-1");
+        clock.addAndGet(5);
+        tracker.record("session-1", "account-1");
+        tracker.record("session-2", "account-2");
+        tracker.flush();
+        tracker.flush();
+
+        // Assert
+        assertEquals(1, batches.size(), "A flush with nothing new should not write a batch");
+        List<SessionActivity> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        SessionActivity first = batch.stream()
+                .filter(activity -> activity.getClientSessionId().equals("session-1"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("account-1", first.getAccountId());
+        assertEquals(1_005, first.getLastSeenMillis());
+        assertEquals(2, tracker.getFlushedCount());
+    }
+
+    @Test
+    @DisplayName("Should split large flushes into batches")
+    void testBatchSize() {
+        // Arrange
+        ActivityTracker tracker = new ActivityTracker(recording, 100, 60_000, 10, clock::get);
+        for (int i = 0; i < 25; i++) {
+            tracker.record("session-" + i, "account");
+        }
+
+        // Act
+        tracker.flush();
+
+        // Assert
+        assertEquals(3, batches.size());
+        assertEquals(25, batches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    @DisplayName("Should forget sessions once they have been idle long enough")
+    void testIdleSessionsAreDropped() {
+        // Arrange
+        ActivityTracker tracker = new ActivityTracker(recording, 100, 1_000, 10, clock::get);
+        tracker.record("session-1", "account-1");
+        tracker.flush();
+
+        // Act
+        clock.addAndGet(1_000);
+        tracker.flush();
+
+        // Assert
+        assertEquals(0, tracker.size());
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    @DisplayName("Should retry a batch the sink rejected on the next flush")
+    void testFailedBatchIsRetried() {
+        // Arrange
+        AtomicBoolean failing = new AtomicBoolean(true);
+        ActivityTracker tracker = new ActivityTracker(batch -> {
+            if (failing.get()) {
+                throw new IOException("disk full");
+            }
+            batches.add(batch);
+        }, 100, 60_000, 10, clock::get);
+        tracker.record("session-1", "account-1");
+
+        // Act
+        tracker.flush();
+        failing.set(false);
+        tracker.flush();
+
+        // Assert
+        assertEquals(1, tracker.getFailedBatchCount());
+        assertEquals(1, batches.size());
+        assertEquals("session-1", batches.get(0).get(0).getClientSessionId());
+    }
+
+    @Test
+    @DisplayName("Should stop tracking new sessions when the tables are full")
+    void testBounded() {
+        // Arrange
+        ActivityTracker tracker = new ActivityTracker(recording, 16, 60_000, 10, clock::get);
+
+        // Act
+        for (int i = 0; i < 1_000; i++) {
+            tracker.record("session-" + i, "account");
+        }
+
+        // Assert
+        assertTrue(tracker.size() <= 16);
+        assertEquals(1_000 - tracker.size(), tracker.getUntrackedCount());
+    }
+
+    @Test
+    @DisplayName("Should record nothing when no sink is configured")
+    void testDisabled() {
+        // Arrange
+        ActivityTracker tracker = new ActivityTracker(null, 100, 60_000, 10, clock::get);
+
+        // Act
+        tracker.record("session-1", "account-1");
+        tracker.flush();
+
+        // Assert
+        assertEquals(0, tracker.size());
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.activity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FileActivitySink and InMemoryActivitySink.
+ */
+@DisplayName("Activity Sink Tests")
+class FileActivitySinkTest {
+
+    @Test
+    @DisplayName("Should append one JSON line per session without the raw session id")
+    void testFileSink() throws IOException {
+        // Arrange
+        Path file = Files.createTempFile("krista-activity", ".jsonl");
+        try (FileActivitySink sink = new FileActivitySink(file)) {
+
+            // Act
+            sink.write(List.of(new SessionActivity("secret-session-1", "account-1", 42)));
+            sink.write(List.of(new SessionActivity("secret-session-2", "account-2", 43)));
+            sink.close();
+
+            // Assert
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+            assertFalse(lines.get(0).contains("secret-session-1"), "Session ids are credentials");
+            JsonObject first = new Gson().fromJson(lines.get(0), JsonObject.class);
+            assertEquals(32, first.get("session").getAsString().length());
+            assertEquals("account-1", first.get("account").getAsString());
+            assertEquals(42, first.get("lastSeen").getAsLong());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the latest activity in memory and drop sessions past retention")
+    void testInMemorySink() {
+        // Arrange
+        long[] now = {1_000};
+        InMemoryActivitySink sink = new InMemoryActivitySink(500, 10_000, () -> now[0]);
+
+        // Act
+        sink.write(List.of(new SessionActivity("session-1", "account-1", 900),
+                new SessionActivity("session-2", "account-2", 400)));
+
+        // Assert
+        assertEquals(900, sink.get("session-1").getLastSeenMillis());
+        assertNull(sink.get("session-2"));
+        assertEquals(1, sink.size());
+        assertEquals(1, sink.getBatchCount());
+    }
+
+    @Test
+    @DisplayName("Should rotate the file at the size cap and keep a bounded number of files")
+    void testFileSinkRotates() throws IOException {
+        // Arrange
+        Path directory = Files.createTempDirectory("krista-activity");
+        Path file = directory.resolve("activity.jsonl");
+        try (FileActivitySink sink = new FileActivitySink(file, 200, 3)) {
+
+            // Act
+            for (int i = 0; i < 20; i++) {
+                sink.write(List.of(new SessionActivity("session-" + i, "account-" + i, i)));
+            }
+            sink.close();
+
+            // Assert
+            try (var files = Files.list(directory)) {
+                assertEquals(3, files.count());
+            }
+            for (Path kept : List.of(file, directory.resolve("activity.jsonl.1"),
+                    directory.resolve("activity.jsonl.2"))) {
+                assertTrue(Files.size(kept) <= 200, kept + " should respect the size cap");
+            }
+            List<String> newest = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals("account-19",
+                    new Gson().fromJson(newest.get(newest.size() - 1), JsonObject.class).get("account").getAsString());
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path path : files.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("Should prune the in-memory sink at most once per interval but hide expired sessions at once")
+    void testInMemorySinkPrunesPerInterval() {
+        // Arrange
+        long[] now = {1_000};
+        InMemoryActivitySink sink = new InMemoryActivitySink(500, 10_000, () -> now[0]);
+        sink.write(List.of(new SessionActivity("session-1", "account-1", 900)));
+
+        // Act
+        now[0] = 2_000;
+        sink.write(List.of(new SessionActivity("session-2", "account-2", 1_900)));
+
+        // Assert
+        assertNull(sink.get("session-1"), "An expired session should not be returned");
+        assertEquals(2, sink.size(), "The second batch falls inside the prune interval");
+        now[0] = 11_000;
+        sink.write(List.of(new SessionActivity("session-3", "account-3", 10_900)));
+        assertEquals(1, sink.size());
+    }
+
+}
@@ -19,6 +19,9 @@
 package app.krista.extensions.authentication.krista_client_authentication.api;
 
 import app.krista.extension.executor.Invoker;
+import app.krista.extensions.authentication.krista_client_authentication.audit.AuditLog;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientKeyResolver;
+import app.krista.extensions.authentication.krista_client_authentication.ratelimit.ClientRateLimiter;
 import app.krista.ksdk.authentication.SessionManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,9 +31,12 @@ import org.mockito.MockitoAnnotations;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -89,7 +95,8 @@ class AuthenticationResourceTest {
         when(mockHttpHeaders.getRequestHeader("origin")).thenReturn(List.of(originUrl));
         when(mockSessionManager.lookupAccountId(clientSessionId)).thenReturn(accountId);
 
-        Response response = authenticationResource.login(mockHttpHeaders, loginInput, mockHttpHeaders);
+        Response response = authenticationResource.login(mockHttpHeaders, loginInput, mockHttpHeaders)
+                .toCompletableFuture().get();
 
         assertNotNull(response, "Response should not be null");
         assertEquals(202, response.getStatus(), "Should return 202 Accepted");
@@ -108,10 +115,79 @@ class AuthenticationResourceTest {
         when(mockHttpHeaders.getRequestHeader("origin")).thenReturn(List.of(originUrl));
         when(mockSessionManager.lookupAccountId(clientSessionId)).thenReturn(null);
 
-        Response response = authenticationResource.login(mockHttpHeaders, loginInput, mockHttpHeaders);
+        Response response = authenticationResource.login(mockHttpHeaders, loginInput, mockHttpHeaders)
+                .toCompletableFuture().get();
 
         assertNotNull(response, "Response should not be null");
         assertEquals(401, response.getStatus(), "Should return 401 Unauthorized");
     }
-}
 
+    @Test
+    @DisplayName("Should return 503 when the session lookup exceeds the deadline")
+    void testLogin_SlowSessionLookup_Returns503() throws Exception {
+        String clientSessionId = "slow-session-id";
+        Map<String, String> loginInput = new HashMap<>();
+        loginInput.put("clientSessionId", clientSessionId);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        AuthenticationResource resource = new AuthenticationResource(mockSessionManager, mockInvoker,
+                new BlockingCalls(executor, Duration.ofMillis(50)));
+
+        when(mockHttpHeaders.getRequestHeader("origin")).thenReturn(List.of("https://example.com"));
+        when(mockSessionManager.lookupAccountId(clientSessionId)).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return "account-123";
+        });
+
+        try {
+            Response response = resource.login(mockHttpHeaders, loginInput, mockHttpHeaders)
+                    .toCompletableFuture().get();
+
+            assertEquals(503, response.getStatus(), "Should return 503 Service Unavailable");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return 429 before any session work once a client exceeds the failed-login rate")
+    void testLogin_RateLimited_Returns429() throws Exception {
+        AuthenticationResource resource = new AuthenticationResource(mockSessionManager, mockInvoker,
+                BlockingCalls.getDefault(), new ClientRateLimiter(1, 1, 64), mock(AuditLog.class),
+                new ClientKeyResolver("10.0.0.0/8"));
+        Map<String, String> loginInput = new HashMap<>();
+        loginInput.put("clientSessionId", "session-id");
+
+        when(mockHttpHeaders.getHeaderString("X-Forwarded-For")).thenReturn("203.0.113.7");
+        when(mockHttpHeaders.getRequestHeader("origin")).thenReturn(List.of("https://example.com"));
+
+        resource.login(mockHttpHeaders, loginInput, mockHttpHeaders).toCompletableFuture().get();
+        Response response = resource.login(mockHttpHeaders, loginInput, mockHttpHeaders)
+                .toCompletableFuture().get();
+
+        assertEquals(429, response.getStatus(), "Should return 429 Too Many Requests");
+        verify(mockSessionManager, times(1)).lookupAccountId("session-id");
+    }
+
+    @Test
+    @DisplayName("Should audit successful, failed and rate-limited logins")
+    void testLogin_RecordsAuditEvents() throws Exception {
+        AuditLog auditLog = mock(AuditLog.class);
+        AuthenticationResource resource = new AuthenticationResource(mockSessionManager, mockInvoker,
+                BlockingCalls.getDefault(), new ClientRateLimiter(1, 1, 64), auditLog,
+                new ClientKeyResolver("10.0.0.0/8"));
+        Map<String, String> loginInput = new HashMap<>();
+        loginInput.put("clientSessionId", "session-id");
+
+        when(mockHttpHeaders.getHeaderString("X-Forwarded-For")).thenReturn("203.0.113.7");
+        when(mockHttpHeaders.getRequestHeader("origin")).thenReturn(List.of("https://example.com"));
+        when(mockSessionManager.lookupAccountId("session-id")).thenReturn("account-123", (String) null);
+
+        resource.login(mockHttpHeaders, loginInput, mockHttpHeaders).toCompletableFuture().get();
+        resource.login(mockHttpHeaders, loginInput, mockHttpHeaders).toCompletableFuture().get();
+        resource.login(mockHttpHeaders, loginInput, mockHttpHeaders).toCompletableFuture().get();
+
+        verify(auditLog).loginSucceeded("session-id", "body", "account-123", "203.0.113.7");
+        verify(auditLog).loginFailed("session-id", "body", 401, "AuthenticationException", "203.0.113.7");
+        verify(auditLog).loginFailed(null, null, 429, "RateLimited", "203.0.113.7");
+    }
+}
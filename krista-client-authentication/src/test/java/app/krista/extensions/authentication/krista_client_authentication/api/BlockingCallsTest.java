@@ -0,0 +1,95 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.api;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BlockingCalls.
+ */
+@DisplayName("Blocking Calls Tests")
+class BlockingCallsTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should run calls on virtual threads and complete with their response")
+    void testRunsOnVirtualThread() throws Exception {
+        BlockingCalls calls = new BlockingCalls(executor, Duration.ofSeconds(5));
+        AtomicBoolean virtual = new AtomicBoolean();
+
+        Response response = calls.respond(() -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            return Response.ok().build();
+        }).toCompletableFuture().get();
+
+        assertEquals(200, response.getStatus());
+        assertTrue(virtual.get(), "Call should run on a virtual thread");
+    }
+
+    @Test
+    @DisplayName("Should return 503 and interrupt the call when the deadline passes")
+    void testDeadlineReturns503() throws Exception {
+        BlockingCalls calls = new BlockingCalls(executor, Duration.ofMillis(50));
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Response response = calls.respond(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return Response.ok().build();
+        }).toCompletableFuture().get();
+
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeaderString("Retry-After"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Blocked call should be interrupted");
+    }
+
+    @Test
+    @DisplayName("Should propagate failures to the exception mappers")
+    void testPropagatesFailures() {
+        BlockingCalls calls = new BlockingCalls(executor, Duration.ofSeconds(5));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> calls.respond(() -> {
+            throw new IllegalStateException("boom");
+        }).toCompletableFuture().get());
+
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.audit;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AuditLog and the file format written by AuditFileWriter.
+ */
+@DisplayName("Audit Log Tests")
+class AuditLogTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("krista-audit");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should write one JSON line per event without the raw session id")
+    void testJsonLines() throws Exception {
+        // Arrange
+        AuditLog auditLog = newLog(AuditFileWriter.Format.JSONL, 8, AuditLog.OverflowPolicy.DROP, 1 << 20, 4);
+
+        // Act
+        auditLog.loginSucceeded("secret-session", "cookie", "account-1", "10.0.0.1");
+        auditLog.loginFailed("secret-session", "body", 401, "Quote\"d", "10.0.0.2");
+        auditLog.mustAuthenticate(302, "10.0.0.3");
+        auditLog.close();
+
+        // Assert
+        List<String> lines = Files.readAllLines(onlyFile(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertFalse(String.join("\n", lines).contains("secret-session"), "Session ids are credentials");
+        Gson gson = new Gson();
+        JsonObject success = gson.fromJson(lines.get(0), JsonObject.class);
+        assertEquals("LOGIN_SUCCEEDED", success.get("type").getAsString());
+        assertEquals(16, success.get("session").getAsString().length());
+        assertEquals("account-1", success.get("account").getAsString());
+        JsonObject failure = gson.fromJson(lines.get(1), JsonObject.class);
+        assertEquals(success.get("session"), failure.get("session"), "Fingerprints should correlate a session");
+        assertEquals("Quote\"d", failure.get("reason").getAsString());
+        assertEquals(401, failure.get("status").getAsInt());
+        JsonObject redirect = gson.fromJson(lines.get(2), JsonObject.class);
+        assertEquals("MUST_AUTHENTICATE", redirect.get("type").getAsString());
+        assertNull(redirect.get("session"));
+        assertEquals(3, auditLog.getWritten());
+    }
+
+    @Test
+    @DisplayName("Should write length-prefixed binary records after the magic")
+    void testBinaryRecords() throws Exception {
+        // Arrange
+        AuditLog auditLog = newLog(AuditFileWriter.Format.BINARY, 8, AuditLog.OverflowPolicy.DROP, 1 << 20, 4);
+
+        // Act
+        auditLog.loginFailed("secret-session", "cookie", 503, "Overloaded", "10.0.0.1");
+        auditLog.mustAuthenticate(429, null);
+        auditLog.close();
+
+        // Assert
+        byte[] bytes = Files.readAllBytes(onlyFile());
+        assertArrayEquals(AuditFileWriter.BINARY_MAGIC, Arrays.copyOf(bytes, AuditFileWriter.BINARY_MAGIC.length));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipNBytes(AuditFileWriter.BINARY_MAGIC.length);
+        int length = in.readUnsignedShort();
+        assertEquals(AuditEventType.LOGIN_FAILED.getCode(), in.readByte());
+        assertTrue(in.readLong() > 0);
+        assertEquals(503, in.readShort());
+        in.skipNBytes(8);
+        assertEquals("cookie", readString(in));
+        assertNull(readString(in));
+        assertEquals("10.0.0.1", readString(in));
+        assertEquals("Overloaded", readString(in));
+        assertEquals(AuditFileWriter.BINARY_MAGIC.length + 2 + length, bytes.length - in.available(),
+                "The length prefix should cover the whole record");
+        in.readUnsignedShort();
+        assertEquals(AuditEventType.MUST_AUTHENTICATE.getCode(), in.readByte());
+        in.skipNBytes(8);
+        assertEquals(429, in.readShort());
+        assertArrayEquals(new byte[8], in.readNBytes(8), "Events without a session carry a zero fingerprint");
+    }
+
+    @Test
+    @DisplayName("Should rotate files past the size limit and keep only the newest")
+    void testRotation() throws Exception {
+        // Arrange
+        AuditLog auditLog = newLog(AuditFileWriter.Format.JSONL, 8, AuditLog.OverflowPolicy.DROP, 300, 3);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            auditLog.mustAuthenticate(302, "10.0.0." + i);
+            auditLog.drain();
+        }
+        auditLog.close();
+
+        // Assert
+        List<Path> files = listFiles();
+        assertEquals(3, files.size());
+        for (Path file : files) {
+            assertTrue(Files.size(file) <= 300, "Files should not grow past the limit");
+        }
+        List<String> newest = Files.readAllLines(files.get(2), StandardCharsets.UTF_8);
+        assertTrue(newest.get(newest.size() - 1).contains("10.0.0.19"));
+    }
+
+    @Test
+    @DisplayName("Should drop and count events when the ring is full under the drop policy")
+    void testDropWhenFull() throws Exception {
+        // Arrange
+        AuditLog auditLog = newLog(AuditFileWriter.Format.JSONL, 4, AuditLog.OverflowPolicy.DROP, 1 << 20, 4);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            auditLog.mustAuthenticate(302, "10.0.0." + i);
+        }
+        auditLog.close();
+
+        // Assert
+        assertEquals(6, auditLog.getDroppedFull());
+        assertEquals(4, auditLog.getWritten());
+        assertEquals(4, Files.readAllLines(onlyFile(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    @DisplayName("Should wait up to the timeout for room and count events that still do not fit")
+    void testBlockTimeout() throws Exception {
+        // Arrange
+        AuditLog auditLog = newLog(AuditFileWriter.Format.JSONL, 2, AuditLog.OverflowPolicy.BLOCK, 1 << 20, 4);
+        auditLog.mustAuthenticate(302, "a");
+        auditLog.mustAuthenticate(302, "b");
+
+        // Act
+        long start = System.nanoTime();
+        auditLog.mustAuthenticate(302, "c");
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        auditLog.close();
+
+        // Assert
+        assertTrue(waitedMillis >= 20, "Should wait for the timeout, waited " + waitedMillis + "ms");
+        assertEquals(1, auditLog.getDroppedTimeout());
+        assertEquals(0, auditLog.getDroppedFull());
+        assertEquals(2, auditLog.getWritten());
+    }
+
+    @Test
+    @DisplayName("Should let a blocked producer through once the writer thread makes room")
+    void testBlockUntilDrained() throws Exception {
+        // Arrange
+        AuditLog auditLog = newLog(AuditFileWriter.Format.JSONL, 2, AuditLog.OverflowPolicy.BLOCK, 1 << 20, 4);
+        auditLog.start();
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            auditLog.mustAuthenticate(302, "10.0.0." + i);
+        }
+        auditLog.close();
+
+        // Assert
+        assertEquals(0, auditLog.getDroppedTimeout());
+        assertEquals(50, auditLog.getWritten());
+        assertEquals(50, Files.readAllLines(onlyFile(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    @DisplayName("Should cut long fields on a character boundary")
+    void testTruncatesOnCharacterBoundary() throws Exception {
+        // Arrange
+        AuditLog binaryLog = newLog(AuditFileWriter.Format.BINARY, 8, AuditLog.OverflowPolicy.DROP, 1 << 20, 4);
+        // 1023 ASCII bytes followed by a 2-byte character: a byte cut at 1024 would split it.
+        String reason = "r".repeat(1023) + "\u00E9\u00E9";
+        // 1023 chars followed by a surrogate pair: a char cut at 1024 would split it.
+        String emoji = "s".repeat(1023) + "\uD83D\uDE00";
+
+        // Act
+        binaryLog.loginFailed(null, emoji, 401, reason, null);
+        binaryLog.close();
+
+        // Assert
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(onlyFile())));
+        in.skipNBytes(AuditFileWriter.BINARY_MAGIC.length + 2 + 1 + 8 + 2 + 8);
+        in.skipNBytes(in.readUnsignedShort());
+        assertNull(readString(in));
+        assertNull(readString(in));
+        assertEquals("r".repeat(1023), readString(in), "The split character should be dropped whole");
+        tearDown();
+        setUp();
+        AuditLog jsonLog = newLog(AuditFileWriter.Format.JSONL, 8, AuditLog.OverflowPolicy.DROP, 1 << 20, 4);
+        jsonLog.loginFailed(null, emoji, 401, "reason", null);
+        jsonLog.close();
+        JsonObject line = new Gson().fromJson(Files.readAllLines(onlyFile(), StandardCharsets.UTF_8).get(0),
+                JsonObject.class);
+        assertEquals("s".repeat(1023), line.get("source").getAsString());
+    }
+
+    @Test
+    @DisplayName("Should leave the default log off unless it is enabled")
+    void testDefaultIsDisabled() {
+        assertSame(AuditLog.disabled(), AuditLog.getDefault());
+    }
+
+    @Test
+    @DisplayName("Should record nothing when disabled")
+    void testDisabled() throws Exception {
+        // Act
+        AuditLog.disabled().loginSucceeded("session", "cookie", "account", "10.0.0.1");
+
+        // Assert
+        assertEquals(0, AuditLog.disabled().getWritten());
+        assertEquals(0, AuditLog.disabled().getDroppedFull());
+    }
+
+    private AuditLog newLog(AuditFileWriter.Format format, int capacity, AuditLog.OverflowPolicy policy,
+            long maxFileBytes, int maxFiles) {
+        return new AuditLog(new AuditFileWriter(directory, format, maxFileBytes, maxFiles), capacity, policy, 20);
+    }
+
+    private Path onlyFile() throws IOException {
+        List<Path> files = listFiles();
+        assertEquals(1, files.size());
+        return files.get(0);
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        return length == 0xFFFF ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+}
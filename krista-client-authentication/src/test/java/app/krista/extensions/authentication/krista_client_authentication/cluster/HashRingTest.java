@@ -0,0 +1,92 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HashRing.
+ */
+@DisplayName("Hash Ring Tests")
+class HashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    @DisplayName("Should spread keys evenly over the nodes")
+    void testBalance() {
+        // Arrange
+        HashRing ring = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"), 160);
+
+        // Act
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("session-" + i), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > KEYS / 4 * 0.8 && count < KEYS / 4 * 1.2, "Unbalanced share: " + counts);
+        }
+    }
+
+    @Test
+    @DisplayName("Should move only the new node's share of keys when a node joins")
+    void testMinimalMovement() {
+        // Arrange
+        HashRing before = new HashRing(List.of("node-a", "node-b", "node-c", "node-d"), 160);
+        HashRing after = new HashRing(List.of("node-a", "node-b", "node-c", "node-d", "node-e"), 160);
+
+        // Act
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "session-" + i;
+            String owner = after.owner(key);
+            if (!owner.equals(before.owner(key))) {
+                moved++;
+                assertEquals("node-e", owner, "Keys should only move to the new node");
+            }
+        }
+
+        // Assert
+        assertTrue(moved > KEYS / 5 * 0.8 && moved < KEYS / 5 * 1.2, "Moved " + moved + " keys");
+    }
+
+    @Test
+    @DisplayName("Should assign the same owners regardless of node order")
+    void testDeterministic() {
+        // Arrange
+        HashRing first = new HashRing(List.of("node-a", "node-b", "node-c"), 160);
+        HashRing second = new HashRing(List.of("node-c", "node-a", "node-b"), 160);
+
+        // Act & Assert
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(first.owner("session-" + i), second.owner("session-" + i));
+        }
+        assertNull(new HashRing(List.of(), 160).owner("session-1"));
+    }
+
+}
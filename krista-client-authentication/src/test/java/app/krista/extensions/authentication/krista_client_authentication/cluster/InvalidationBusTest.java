@@ -0,0 +1,279 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InvalidationBus over the loopback transport.
+ */
+@DisplayName("Invalidation Bus Tests")
+class InvalidationBusTest {
+
+    private static final long HOUR = 3_600_000;
+
+    private final LoopbackTransport.Hub hub = new LoopbackTransport.Hub();
+    private final List<InvalidationBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (InvalidationBus bus : buses) {
+            bus.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should coalesce repeated invalidations and deliver them to the other nodes only")
+    void testCoalescesAndDelivers() throws IOException {
+        // Arrange
+        InvalidationBus sender = newBus(new LoopbackTransport(hub), "node-a", 100);
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 100);
+        RecordingListener own = new RecordingListener();
+        RecordingListener remote = new RecordingListener();
+        sender.addListener(own);
+        receiver.addListener(remote);
+
+        // Act
+        sender.publish("session-1");
+        sender.publish("session-1");
+        sender.publish("session-2");
+        sender.flush();
+
+        // Assert
+        assertEquals(List.of("session-1", "session-2"), remote.invalidated.stream().sorted().toList());
+        assertEquals(1, sender.getMessagesSent());
+        assertEquals(3, sender.getPublishedCount());
+        assertTrue(own.invalidated.isEmpty(), "A node should not receive its own invalidations");
+        assertEquals(0, receiver.getResyncCount());
+    }
+
+    @Test
+    @DisplayName("Should split pending invalidations into messages that fit the transport")
+    void testBatchesBySize() throws IOException {
+        // Arrange
+        InvalidationBus sender = newBus(new LossyTransport(hub, 200), "node-a", 1000);
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 1000);
+        RecordingListener remote = new RecordingListener();
+        receiver.addListener(remote);
+
+        // Act
+        for (int i = 0; i < 40; i++) {
+            sender.publish("session-" + i + "-0123456789abcdef");
+        }
+        sender.flush();
+
+        // Assert
+        assertEquals(40, remote.invalidated.size());
+        assertTrue(sender.getMessagesSent() > 1, "Should need several messages");
+        assertEquals(sender.getMessagesSent(), receiver.getReceivedCount());
+        assertEquals(0, receiver.getResyncCount());
+        assertEquals(0, remote.allCount.get());
+    }
+
+    @Test
+    @DisplayName("Should evict everything when a sequence gap shows a message was missed")
+    void testResyncsOnGap() throws IOException {
+        // Arrange
+        LossyTransport lossy = new LossyTransport(hub, 1400);
+        InvalidationBus sender = newBus(lossy, "node-a", 100);
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 100);
+        RecordingListener remote = new RecordingListener();
+        receiver.addListener(remote);
+        sender.publish("session-1");
+        sender.flush();
+
+        // Act
+        lossy.dropNext = true;
+        sender.publish("session-2");
+        sender.flush();
+        sender.publish("session-3");
+        sender.flush();
+
+        // Assert
+        assertEquals(1, receiver.getResyncCount());
+        assertEquals(1, remote.allCount.get());
+        assertEquals(List.of("session-1"), remote.invalidated);
+    }
+
+    @Test
+    @DisplayName("Should notice a lost last message from the heartbeat")
+    void testHeartbeatRevealsLostMessage() throws IOException {
+        // Arrange
+        LossyTransport lossy = new LossyTransport(hub, 1400);
+        InvalidationBus sender = newBus(lossy, "node-a", 100);
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 100);
+        RecordingListener remote = new RecordingListener();
+        receiver.addListener(remote);
+        sender.heartbeat();
+        lossy.dropNext = true;
+        sender.publish("session-1");
+        sender.flush();
+
+        // Act
+        sender.heartbeat();
+        sender.heartbeat();
+
+        // Assert
+        assertEquals(1, receiver.getResyncCount());
+        assertEquals(1, remote.allCount.get());
+    }
+
+    @Test
+    @DisplayName("Should collapse too many pending invalidations into one evict-everything message")
+    void testCollapsesOverflow() throws IOException {
+        // Arrange
+        InvalidationBus sender = newBus(new LoopbackTransport(hub), "node-a", 3);
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 3);
+        RecordingListener remote = new RecordingListener();
+        receiver.addListener(remote);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            sender.publish("session-" + i);
+        }
+        sender.flush();
+
+        // Assert
+        assertEquals(1, sender.getMessagesSent());
+        assertEquals(1, remote.allCount.get());
+        assertTrue(remote.invalidated.isEmpty());
+        assertEquals(0, receiver.getResyncCount());
+    }
+
+    @Test
+    @DisplayName("Should count and ignore messages it cannot decode")
+    void testIgnoresMalformedMessages() throws IOException {
+        // Arrange
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 100);
+        RecordingListener remote = new RecordingListener();
+        receiver.addListener(remote);
+        byte[] valid = new InvalidationMessage("node-a", 1, 0, List.of("session-1")).encode();
+
+        // Act
+        receiver.receive(new byte[] {1, 2, 3});
+        receiver.receive(Arrays.copyOf(valid, valid.length - 3));
+
+        // Assert
+        assertEquals(2, receiver.getMalformedCount());
+        assertEquals(0, receiver.getReceivedCount());
+        assertTrue(remote.invalidated.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should evict a session from another node's cache")
+    void testEvictsFromSessionCache() throws IOException {
+        // Arrange
+        AtomicInteger lookups = new AtomicInteger();
+        SessionCache cache = new SessionCache(clientSessionId -> {
+            lookups.incrementAndGet();
+            return "account-1";
+        }, 60_000);
+        InvalidationBus sender = newBus(new LoopbackTransport(hub), "node-a", 100);
+        InvalidationBus receiver = newBus(new LoopbackTransport(hub), "node-b", 100);
+        receiver.addListener(cache);
+        cache.lookupAccountId("session-1");
+        cache.lookupAccountId("session-1");
+
+        // Act
+        sender.publish("session-1");
+        sender.flush();
+        cache.lookupAccountId("session-1");
+
+        // Assert
+        assertEquals(2, lookups.get());
+    }
+
+    private InvalidationBus newBus(InvalidationTransport transport, String nodeId, int maxPending)
+            throws IOException {
+        InvalidationBus bus = new InvalidationBus(transport, nodeId, maxPending, HOUR, System::currentTimeMillis)
+                .start(HOUR);
+        buses.add(bus);
+        return bus;
+    }
+
+    private static final class RecordingListener implements InvalidationBus.Listener {
+
+        private final List<String> invalidated = new ArrayList<>();
+        private final AtomicInteger allCount = new AtomicInteger();
+
+        @Override
+        public void invalidate(String clientSessionId) {
+            invalidated.add(clientSessionId);
+        }
+
+        @Override
+        public void invalidateAll() {
+            allCount.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * A loopback transport with a small message limit that can lose the next message.
+     */
+    private static final class LossyTransport implements InvalidationTransport {
+
+        private final LoopbackTransport delegate;
+        private final int maxMessageBytes;
+        private boolean dropNext;
+
+        private LossyTransport(LoopbackTransport.Hub hub, int maxMessageBytes) {
+            this.delegate = new LoopbackTransport(hub);
+            this.maxMessageBytes = maxMessageBytes;
+        }
+
+        @Override
+        public int getMaxMessageBytes() {
+            return maxMessageBytes;
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+            delegate.start(receiver);
+        }
+
+        @Override
+        public void send(byte[] message) {
+            assertTrue(message.length <= maxMessageBytes, "Message exceeds the transport limit");
+            if (dropNext) {
+                dropNext = false;
+                return;
+            }
+            delegate.send(message);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionCache;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShardedSessionCache over the in-process transport.
+ */
+@DisplayName("Sharded Session Cache Tests")
+class ShardedSessionCacheTest {
+
+    private static final List<String> NODES = List.of("node-a", "node-b", "node-c");
+
+    private final Map<String, String> accounts = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionManagerCalls = new AtomicInteger();
+    private final SessionLookup sessionManager = clientSessionId -> {
+        sessionManagerCalls.incrementAndGet();
+        return accounts.get(clientSessionId);
+    };
+    private final InProcessPeerTransport.Network network = new InProcessPeerTransport.Network();
+    private final List<ShardedSessionCache> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            accounts.put("session-" + i, "account-" + i);
+        }
+        for (String nodeId : NODES) {
+            nodes.add(new ShardedSessionCache(nodeId, NODES, new SessionCache(sessionManager, 60_000), 60_000, 100,
+                    new InProcessPeerTransport(network), 160).start());
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve every session once across the cluster, at its owner")
+    void testSessionManagerLoadScalesWithSessions() {
+        // Act
+        for (ShardedSessionCache node : nodes) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals("account-" + i, node.lookupAccountId("session-" + i));
+            }
+        }
+
+        // Assert
+        assertEquals(100, sessionManagerCalls.get(), "Each session should reach SessionManager once");
+        long owned = nodes.stream().mapToLong(ShardedSessionCache::getOwnedLookups).sum();
+        long remote = nodes.stream().mapToLong(ShardedSessionCache::getRemoteLookups).sum();
+        long served = nodes.stream().mapToLong(ShardedSessionCache::getServedCount).sum();
+        assertEquals(100, owned);
+        assertEquals(200, remote);
+        assertEquals(remote, served);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups of a remote session from the near-cache")
+    void testNearCache() {
+        // Arrange
+        ShardedSessionCache node = nodes.get(0);
+        String session = remoteSession(node);
+
+        // Act
+        node.lookupAccountId(session);
+        node.lookupAccountId(session);
+        node.lookupAccountId(session);
+
+        // Assert
+        assertEquals(1, node.getRemoteLookups());
+        assertEquals(2, node.getNearHitCount());
+    }
+
+    @Test
+    @DisplayName("Should resolve locally when the owner cannot be reached")
+    void testFallsBackWhenOwnerIsDown() {
+        // Arrange
+        ShardedSessionCache node = nodes.get(0);
+        String session = remoteSession(node);
+        network.setUnreachable(node.getOwner(session), true);
+
+        // Act
+        String accountId = node.lookupAccountId(session);
+
+        // Assert
+        assertEquals(accountId, accounts.get(session));
+        assertEquals(1, node.getRemoteFailures());
+        assertEquals(1, sessionManagerCalls.get());
+    }
+
+    @Test
+    @DisplayName("Should evict an invalidated session from the near-cache")
+    void testInvalidateEvictsNearCopy() {
+        // Arrange
+        ShardedSessionCache node = nodes.get(0);
+        String session = remoteSession(node);
+        node.lookupAccountId(session);
+
+        // Act
+        node.invalidate(session);
+        node.lookupAccountId(session);
+
+        // Assert
+        assertEquals(2, node.getRemoteLookups());
+    }
+
+    @Test
+    @DisplayName("Should send sessions to the new owner once membership changes")
+    void testMembershipChange() throws IOException {
+        // Arrange
+        List<String> grown = List.of("node-a", "node-b", "node-c", "node-d");
+        ShardedSessionCache added = new ShardedSessionCache("node-d", grown, new SessionCache(sessionManager, 60_000),
+                60_000, 100, new InProcessPeerTransport(network), 160).start();
+        ShardedSessionCache node = nodes.get(0);
+        node.setPeers(grown);
+        String session = null;
+        for (int i = 0; i < 100 && session == null; i++) {
+            if ("node-d".equals(node.getOwner("session-" + i))) {
+                session = "session-" + i;
+            }
+        }
+        assertNotNull(session, "Some session should move to the new node");
+
+        // Act
+        node.lookupAccountId(session);
+
+        // Assert
+        assertEquals(1, added.getServedCount());
+    }
+
+    private static String remoteSession(ShardedSessionCache node) {
+        for (int i = 0; i < 100; i++) {
+            String session = "session-" + i;
+            if (!node.getNodeId().equals(node.getOwner(session))) {
+                return session;
+            }
+        }
+        throw new AssertionError("Every session is owned by " + node.getNodeId());
+    }
+
+}
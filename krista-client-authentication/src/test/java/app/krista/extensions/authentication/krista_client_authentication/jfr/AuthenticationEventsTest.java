@@ -0,0 +1,99 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import app.krista.extensions.authentication.krista_client_authentication.api.constants.ApiUtility;
+import app.krista.extensions.authentication.krista_client_authentication.session.SessionLookup;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the JFR events emitted on the authentication path.
+ */
+@SuppressWarnings("deprecation")
+@DisplayName("Authentication JFR Event Tests")
+class AuthenticationEventsTest {
+
+    @Test
+    @DisplayName("Should record session lookups with source and hit when the threshold is met")
+    void testSessionLookupRecorded() throws Exception {
+        SessionLookup sessions = mock(SessionLookup.class);
+        when(sessions.lookupAccountId("known")).thenReturn("account-1");
+
+        List<RecordedEvent> events = record("app.krista.authn.SessionLookup", Duration.ZERO, () -> {
+            ApiUtility.lookupAccountId(sessions, "known", "cookie");
+            ApiUtility.lookupAccountId(sessions, "unknown", "query");
+        });
+
+        assertEquals(2, events.size());
+        assertEquals("cookie", events.get(0).getString("source"));
+        assertTrue(events.get(0).getBoolean("hit"));
+        assertEquals("query", events.get(1).getString("source"));
+        assertFalse(events.get(1).getBoolean("hit"));
+    }
+
+    @Test
+    @DisplayName("Should not commit events faster than the threshold")
+    void testFastEventsFiltered() throws Exception {
+        List<RecordedEvent> events = record("app.krista.authn.CookieDecode", Duration.ofSeconds(10),
+                () -> ApiUtility.getClientSessionIdFromCookie("clientSessionId=abc"));
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should record cookie decodes with length and outcome")
+    void testCookieDecodeRecorded() throws Exception {
+        String cookie = "other=1";
+        List<RecordedEvent> events = record("app.krista.authn.CookieDecode", Duration.ZERO,
+                () -> ApiUtility.getClientSessionIdFromCookie(cookie));
+
+        assertEquals(1, events.size());
+        assertEquals(cookie.length(), events.get(0).getInt("cookieLength"));
+        assertFalse(events.get(0).getBoolean("found"));
+    }
+
+    private static List<RecordedEvent> record(String eventName, Duration threshold, Runnable action)
+            throws Exception {
+        Path file = Files.createTempFile("krista-authn", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(threshold);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AsyncAuthLogger, its ring buffer and the drainer thread.
+ */
+@DisplayName("Async Auth Logger Tests")
+class AsyncAuthLoggerTest {
+
+    @Test
+    @DisplayName("Should redact client session ids on the writer thread")
+    void testRedactsSessionIds() {
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+        AsyncAuthLogger authLog = new AsyncAuthLogger(logger, 16);
+
+        authLog.log(AuthLogEvent.LOGIN_REQUESTED, "0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0", "body");
+
+        verify(logger, timeout(5000)).info(AuthLogEvent.LOGIN_REQUESTED.getTemplate(), "****e1f0", "body");
+    }
+
+    @Test
+    @DisplayName("Should not publish anything when the level is disabled")
+    void testSkipsDisabledLevel() throws InterruptedException {
+        Logger logger = mock(Logger.class);
+        AsyncAuthLogger authLog = new AsyncAuthLogger(logger, 16);
+
+        authLog.log(AuthLogEvent.LOGIN_REQUESTED, "session", "body");
+
+        Thread.sleep(50);
+        verify(logger, never()).info(any(String.class), any(Object.class), any(Object.class));
+        assertEquals(0, authLog.getDropped());
+    }
+
+    @Test
+    @DisplayName("Should log one in sampleEvery occurrences of a sampled event")
+    void testSamplesEvents() {
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(true);
+        AsyncAuthLogger authLog = new AsyncAuthLogger(logger, 1024);
+        int sampleEvery = AuthLogEvent.AUTHENTICATOR_REQUESTED.getSampleEvery();
+
+        for (int i = 0; i < sampleEvery * 3; i++) {
+            authLog.log(AuthLogEvent.AUTHENTICATOR_REQUESTED, "/path");
+        }
+
+        verify(logger, timeout(5000).times(3))
+                .info(eq(AuthLogEvent.AUTHENTICATOR_REQUESTED.getTemplate()), eq("/path"), any());
+    }
+
+    @Test
+    @DisplayName("Should mask short and null session ids")
+    void testRedactShortValues() {
+        assertNull(AsyncAuthLogger.redactSessionId(null));
+        assertEquals("****", AsyncAuthLogger.redactSessionId("abc"));
+        assertEquals("****6789", AsyncAuthLogger.redactSessionId("0123456789"));
+    }
+
+    @Test
+    @DisplayName("Ring buffer should reject offers when full and accept them again after a drain")
+    void testRingBufferFull() {
+        MpscRing<ValueSlot> ring = new MpscRing<>(4, ValueSlot::new);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(ring, i));
+        }
+        assertFalse(offer(ring, 4));
+
+        List<Object> drained = new ArrayList<>();
+        assertEquals(4, ring.drain(slot -> drained.add(slot.value), Integer.MAX_VALUE));
+        assertEquals(List.of(0, 1, 2, 3), drained);
+        assertTrue(ring.isEmpty());
+        assertTrue(offer(ring, 4));
+        assertFalse(ring.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ring buffer should deliver every event from concurrent producers exactly once")
+    void testRingBufferConcurrentProducers() throws InterruptedException {
+        MpscRing<ValueSlot> ring = new MpscRing<>(64, ValueSlot::new);
+        int producers = 4;
+        int perProducer = 10_000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!offer(ring, base + i)) {
+                        // Hand the CPU to the draining thread; spinning starves it on a single core.
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] count = new int[1];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count[0] < seen.length && System.nanoTime() < deadline) {
+            ring.drain(slot -> {
+                int value = slot.value;
+                assertFalse(seen[value]);
+                seen[value] = true;
+                count[0]++;
+            }, 16);
+        }
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(seen.length, count[0]);
+    }
+
+
+    @Test
+    @DisplayName("Drainer should sleep while idle and wake on a signal")
+    void testDrainerParksWhileIdle() throws InterruptedException {
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger drains = new AtomicInteger();
+        AtomicInteger handled = new AtomicInteger();
+        RingDrainer drainer = new RingDrainer("test-drainer", () -> {
+            drains.incrementAndGet();
+            int work = pending.getAndSet(0);
+            handled.addAndGet(work);
+            return work;
+        }, () -> pending.get() > 0).start();
+
+        Thread.sleep(200);
+        assertTrue(drains.get() <= 3, "An idle drainer should not poll, drained " + drains.get() + " times");
+
+        pending.incrementAndGet();
+        drainer.signal();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handled.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, handled.get());
+
+        pending.incrementAndGet();
+        drainer.stop();
+        assertEquals(2, handled.get(), "Stopping should drain what is left");
+    }
+
+    private static boolean offer(MpscRing<ValueSlot> ring, int value) {
+        ValueSlot slot = ring.claim();
+        if (slot == null) {
+            return false;
+        }
+        slot.value = value;
+        ring.publish(slot);
+        return true;
+    }
+
+    private static final class ValueSlot extends MpscRing.Slot {
+
+        private int value;
+
+        @Override
+        protected void clear() {
+            value = -1;
+        }
+
+    }
+
+}
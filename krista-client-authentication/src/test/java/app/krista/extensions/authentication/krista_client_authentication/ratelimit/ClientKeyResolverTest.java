@@ -0,0 +1,82 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClientKeyResolver.
+ */
+@DisplayName("Client Key Resolver Tests")
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver("10.0.0.0/8, 192.0.2.1, ::1");
+
+    @Test
+    @DisplayName("Should key on an untrusted peer and ignore its forwarding headers")
+    void testUntrustedPeer() {
+        assertEquals("198.51.100.9", resolver.resolve("198.51.100.9", "203.0.113.7", "203.0.113.8"));
+    }
+
+    @Test
+    @DisplayName("Should follow forwarding headers only through trusted proxies")
+    void testTrustedProxyChain() {
+        assertEquals("203.0.113.7", resolver.resolve("192.0.2.1", "spoofed, 203.0.113.7, 10.1.2.3", null));
+        assertEquals("203.0.113.8", resolver.resolve("::1", null, " 203.0.113.8 "));
+        assertEquals("10.1.2.3", resolver.resolve("192.0.2.1", "10.1.2.3", null));
+    }
+
+    @Test
+    @DisplayName("Should start at the right-most forwarded address when the platform is the peer")
+    void testPlatformPeer() {
+        assertEquals("203.0.113.7", resolver.resolve(null, "1.2.3.4, 203.0.113.7", null));
+        assertEquals("203.0.113.7", resolver.resolve(null, "203.0.113.7:5123, 10.1.2.3", null));
+        assertNull(resolver.resolve(null, null, "203.0.113.8"), "X-Real-IP needs a trusted peer");
+        assertNull(resolver.resolve(null, "unknown", null));
+        assertNull(resolver.resolve(null, null, null));
+    }
+
+    @Test
+    @DisplayName("Should resolve nothing through the platform until trusted proxies are configured")
+    void testPlatformPeerWithoutTrustedProxies() {
+        ClientKeyResolver none = new ClientKeyResolver("");
+
+        assertNull(none.resolve(null, "1.2.3.4, 203.0.113.7", null));
+        assertEquals("198.51.100.9", none.resolve("198.51.100.9", "203.0.113.7", null));
+    }
+
+    @Test
+    @DisplayName("Should never resolve host names")
+    void testRejectsHostNames() {
+        assertNull(ClientKeyResolver.parse("example.com"));
+        assertNull(ClientKeyResolver.parse("abc.def"));
+        assertEquals("2001:db8:0:0:0:0:0:1", ClientKeyResolver.parse("[2001:db8::1]:443").getHostAddress());
+    }
+
+    @Test
+    @DisplayName("Should reject malformed trusted proxy entries")
+    void testInvalidTrustedProxies() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientKeyResolver("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> new ClientKeyResolver("proxy.internal"));
+    }
+
+}
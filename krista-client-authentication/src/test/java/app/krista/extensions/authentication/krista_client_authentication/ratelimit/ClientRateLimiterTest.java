@@ -0,0 +1,131 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClientRateLimiter.
+ */
+@DisplayName("Client Rate Limiter Tests")
+class ClientRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    @DisplayName("Should allow the burst, then refill at the configured rate")
+    void testBurstAndRefill() {
+        ClientRateLimiter limiter = new ClientRateLimiter(2, 3, 64, clock::get);
+
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertFalse(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.isLimited("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.2"), "Other clients have their own bucket");
+
+        clock.addAndGet(500);
+        assertFalse(limiter.isLimited("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertFalse(limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Should not pool unknown clients into one limited bucket")
+    void testUnknownClient() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 2, 64, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(null));
+        }
+        assertFalse(limiter.isLimited(null));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    @DisplayName("Should give a new client its own bucket even when the table is full of limited clients")
+    void testFullTableDoesNotShareBuckets() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 16, clock::get);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("attacker-" + i);
+        }
+
+        assertTrue(limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.2"));
+        assertFalse(limiter.tryAcquire("10.0.0.2"), "The new client's bucket should be its own");
+        assertTrue(limiter.size() <= 16 + 1, "Table should stay bounded: " + limiter.size());
+    }
+
+    @Test
+    @DisplayName("Should keep the table bounded under many distinct clients")
+    void testBoundedUnderManyKeys() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 2, 64, clock::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+
+        assertTrue(limiter.size() <= 64, "Table should stay bounded: " + limiter.size());
+    }
+
+    @Test
+    @DisplayName("Should purge refilled buckets to make room for new clients")
+    void testPurgesRefilledBuckets() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 64, clock::get);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("old-" + i);
+        }
+
+        int before = limiter.size();
+
+        clock.addAndGet(5_000);
+        assertTrue(limiter.tryAcquire("fresh"));
+
+        assertTrue(limiter.size() < before, "Refilled buckets should have been purged");
+    }
+
+    @Test
+    @DisplayName("Should hand out exactly the burst under concurrent access")
+    void testConcurrentAcquire() throws InterruptedException {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 100, 64, clock::get);
+        AtomicInteger granted = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (limiter.tryAcquire("shared")) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, granted.get());
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdaptiveConcurrencyLimiter.
+ */
+@DisplayName("Adaptive Concurrency Limiter Tests")
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Should shed calls with a retry hint once the limit is reached")
+    void testShedsAboveLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 4, 0);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> limiter.call(() -> {
+            entered.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        LimitExceededException shed = assertThrows(LimitExceededException.class,
+                () -> limiter.call(() -> "never"));
+
+        assertEquals(1, shed.getRetryAfterSeconds());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(1, limiter.getInFlight());
+        release.countDown();
+        holder.join();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Should let queued callers proceed when a slot frees up in time")
+    void testQueuesBriefly() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 4, 5_000);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> limiter.call(() -> {
+            entered.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        Thread.ofVirtual().start(() -> {
+            sleep(50);
+            release.countDown();
+        });
+
+        assertEquals("queued", limiter.call(() -> "queued"));
+        assertEquals(0, limiter.getRejectedCount());
+        holder.join();
+    }
+
+    @Test
+    @DisplayName("Should raise the limit while saturated calls stay fast")
+    void testAdditiveIncrease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 0, 2.0, clock::get);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.call(() -> clock.addAndGet(2 * MILLI));
+        }
+
+        assertTrue(limiter.getLimit() > 1, "Limit should grow: " + limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should cut the limit when saturated calls slow down or calls fail")
+    void testMultiplicativeDecrease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 50, 0, 2.0, clock::get);
+        limiter.call(() -> clock.addAndGet(2 * MILLI));
+
+        for (int i = 0; i < 5; i++) {
+            saturated(limiter, limiter.getLimit() - 1, () -> clock.addAndGet(50 * MILLI));
+        }
+        int afterSlow = limiter.getLimit();
+        assertThrows(IllegalStateException.class, () -> limiter.call(() -> {
+            throw new IllegalStateException("backend down");
+        }));
+
+        assertTrue(afterSlow < 4, "Slow calls should reduce the limit: " + afterSlow);
+        assertTrue(limiter.getLimit() < afterSlow || limiter.getLimit() == 2, "Failures should reduce the limit");
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    @DisplayName("Should keep the limit when jittery calls run far below it")
+    void testLowLoadJitterKeepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 50, 0, 2.0, clock::get);
+
+        for (int i = 0; i < 200; i++) {
+            long latency = i % 3 == 0 ? 10 * MILLI : 2 * MILLI;
+            limiter.call(() -> clock.addAndGet(latency));
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should wrap session lookups")
+    void testLimitWrapsLookup() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 0);
+
+        SessionLookup limited = limiter.limit(clientSessionId -> "account-for-" + clientSessionId);
+
+        assertEquals("account-for-s", limited.lookupAccountId("s"));
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Runs {@code call} inside {@code holders} nested calls, so it starts with that many slots already taken.
+     */
+    private static <T> T saturated(AdaptiveConcurrencyLimiter limiter, int holders, Supplier<T> call) {
+        return holders == 0 ? limiter.call(call) : limiter.call(() -> saturated(limiter, holders - 1, call));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrequencySketch.
+ */
+@DisplayName("Frequency Sketch Tests")
+class FrequencySketchTest {
+
+    @Test
+    @DisplayName("Should count lookups up to the counter maximum")
+    void testCountsAndSaturates() {
+        // Arrange
+        FrequencySketch sketch = new FrequencySketch(1000);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("session-1".hashCode());
+        }
+        for (int i = 0; i < 40; i++) {
+            sketch.increment("session-2".hashCode());
+        }
+
+        // Assert
+        assertEquals(0, sketch.frequency("session-0".hashCode()));
+        assertEquals(5, sketch.frequency("session-1".hashCode()));
+        assertEquals(15, sketch.frequency("session-2".hashCode()));
+    }
+
+    @Test
+    @DisplayName("Should halve all counts once enough lookups were counted")
+    void testAging() {
+        // Arrange
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 12; i++) {
+            sketch.increment("hot".hashCode());
+        }
+        assertEquals(12, sketch.frequency("hot".hashCode()));
+
+        // Act: 16 entries age after 160 counted lookups.
+        for (int i = 0; i < 150; i++) {
+            sketch.increment(("one-hit-" + i).hashCode());
+        }
+
+        // Assert
+        assertEquals(6, sketch.frequency("hot".hashCode()));
+    }
+
+    @Test
+    @DisplayName("Should keep estimates of one-hit ids low")
+    void testOneHitIdsStayLow() {
+        // Arrange
+        FrequencySketch sketch = new FrequencySketch(10_000);
+
+        // Act
+        for (int i = 0; i < 5_000; i++) {
+            sketch.increment(("one-hit-" + i).hashCode());
+        }
+
+        // Assert
+        int overestimated = 0;
+        for (int i = 0; i < 5_000; i++) {
+            if (sketch.frequency(("one-hit-" + i).hashCode()) > 1) {
+                overestimated++;
+            }
+        }
+        assertTrue(overestimated < 50, "Overestimated " + overestimated + " of 5000 ids");
+    }
+
+}
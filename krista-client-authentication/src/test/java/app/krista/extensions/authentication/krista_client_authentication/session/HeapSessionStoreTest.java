@@ -0,0 +1,129 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HeapSessionStore.
+ */
+@DisplayName("Heap Session Store Tests")
+class HeapSessionStoreTest {
+
+    private static final long FAR = TimeUnit.HOURS.toNanos(1);
+
+    private final SessionStore.Slot slot = new SessionStore.Slot();
+
+    @Test
+    @DisplayName("Should only replace or remove the version that was read")
+    void testConditionalWrites() {
+        // Arrange
+        HeapSessionStore store = new HeapSessionStore(100);
+        store.put("session-1", "account-1", FAR, 0, 0);
+        assertTrue(store.read("session-1", slot));
+        SessionStore.Slot stale = slot.copy();
+
+        // Act
+        assertTrue(store.tryMarkRefreshing(slot));
+        assertFalse(store.tryMarkRefreshing(slot));
+        assertTrue(store.replace("session-1", slot, "account-2", FAR, 0));
+
+        // Assert
+        assertFalse(store.replace("session-1", stale, "account-3", FAR, 0));
+        assertFalse(store.remove("session-1", stale));
+        assertTrue(store.read("session-1", slot));
+        assertEquals("account-2", slot.getAccountId());
+        assertTrue(store.remove("session-1", slot));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @DisplayName("Should keep hot sessions resident through a scan of one-hit ids")
+    void testScanResistance() {
+        // Arrange
+        HeapSessionStore store = new HeapSessionStore(100);
+        for (int i = 0; i < 50; i++) {
+            store.put("hot-" + i, "account", FAR, 0, 0);
+            store.read("hot-" + i, slot);
+            store.read("hot-" + i, slot);
+        }
+
+        // Act: look up each scanned id once and cache it, as a session cache does on a miss, while the hot sessions
+        // stay in use.
+        for (int i = 0; i < 10_000; i++) {
+            store.read("hot-" + i % 50, slot);
+            store.read("scan-" + i, slot);
+            store.put("scan-" + i, "account", FAR, 0, 0);
+        }
+
+        // Assert
+        for (int i = 0; i < 50; i++) {
+            assertTrue(store.read("hot-" + i, slot), "hot-" + i);
+        }
+        assertTrue(store.size() <= 100);
+    }
+
+    @Test
+    @DisplayName("Should let a newcomer replace an expired resident")
+    void testExpiredVictimMakesRoom() {
+        // Arrange
+        HeapSessionStore store = new HeapSessionStore(3);
+        store.put("expired", "account", 10, 0, 0);
+        store.read("expired", slot);
+        store.put("resident", "account", FAR, 0, 0);
+        store.read("resident", slot);
+        store.put("window", "account", FAR, 0, 0);
+
+        // Act
+        store.put("next", "account", FAR, 0, 20);
+
+        // Assert
+        assertFalse(store.read("expired", slot));
+        assertTrue(store.read("resident", slot));
+        assertTrue(store.read("window", slot), "A cold newcomer should take an expired entry's place");
+        assertTrue(store.read("next", slot));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    @DisplayName("Should forget everything on clear and accept new entries afterwards")
+    void testClear() {
+        // Arrange
+        HeapSessionStore store = new HeapSessionStore(10);
+        for (int i = 0; i < 20; i++) {
+            store.put("session-" + i, "account", FAR, 0, 0);
+        }
+
+        // Act
+        store.clear();
+        for (int i = 0; i < 10; i++) {
+            store.put("again-" + i, "account", FAR, 0, 0);
+        }
+
+        // Assert
+        assertEquals(10, store.size());
+        assertFalse(store.read("session-19", slot));
+        assertTrue(store.read("again-0", slot));
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HedgedSessionLookup.
+ */
+@DisplayName("Hedged Session Lookup Tests")
+class HedgedSessionLookupTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answers immediately except for call number {@code stuckCall}, which blocks until the test releases it.
+     */
+    private SessionLookup backend(int stuckCall) {
+        return clientSessionId -> {
+            int call = calls.incrementAndGet();
+            if (call == stuckCall) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow-" + clientSessionId;
+            }
+            return "fast-" + clientSessionId;
+        };
+    }
+
+    @Test
+    @DisplayName("Should not hedge before enough latency samples are seen")
+    void testNoHedgeWithoutSamples() {
+        HedgedSessionLookup hedged = new HedgedSessionLookup(backend(-1), 0.95, 100, executor, System::nanoTime);
+
+        assertEquals("fast-s", hedged.lookupAccountId("s"));
+
+        assertEquals(Long.MAX_VALUE, hedged.getHedgeDelayNanos());
+        assertEquals(0, hedged.getHedgesIssued());
+    }
+
+    @Test
+    @DisplayName("Should hedge a slow lookup and return the first answer")
+    void testHedgeWins() {
+        int warmup = 128;
+        // Top up a whole hedge per lookup so hedges spent on warmup hiccups cannot starve the stuck call.
+        HedgedSessionLookup hedged = new HedgedSessionLookup(backend(warmup + 1), 0.95, 100, executor,
+                System::nanoTime);
+        for (int i = 0; i < warmup; i++) {
+            hedged.lookupAccountId("warm");
+        }
+        assertTrue(hedged.getHedgeDelayNanos() < Long.MAX_VALUE, "Hedge delay should be tracked after warmup");
+        // A scheduling hiccup during warmup may already have been hedged; count only what the stuck call adds.
+        calls.set(warmup);
+        long issued = hedged.getHedgesIssued();
+        long won = hedged.getHedgesWon();
+
+        assertEquals("fast-s", hedged.lookupAccountId("s"));
+
+        assertEquals(issued + 1, hedged.getHedgesIssued());
+        assertEquals(won + 1, hedged.getHedgesWon());
+    }
+
+    @Test
+    @DisplayName("Should not hedge when the budget is exhausted")
+    void testBudgetCapsHedges() throws InterruptedException {
+        int warmup = 128;
+        HedgedSessionLookup hedged = new HedgedSessionLookup(backend(warmup + 1), 0.95, 0, executor,
+                System::nanoTime);
+        for (int i = 0; i < warmup; i++) {
+            hedged.lookupAccountId("warm");
+        }
+
+        Thread caller = Thread.ofVirtual().start(() -> assertEquals("slow-s", hedged.lookupAccountId("s")));
+        Thread.sleep(50);
+        release.countDown();
+        caller.join();
+
+        assertEquals(0, hedged.getHedgesIssued());
+    }
+
+    @Test
+    @DisplayName("Should propagate failures once every attempt has failed")
+    void testPropagatesFailure() {
+        HedgedSessionLookup hedged = new HedgedSessionLookup(clientSessionId -> {
+            throw new IllegalStateException("backend down");
+        }, 0.95, 5, executor, System::nanoTime);
+
+        assertThrows(IllegalStateException.class, () -> hedged.lookupAccountId("s"));
+    }
+
+    @Test
+    @DisplayName("Should propagate an Error from the last attempt instead of leaving the caller waiting")
+    void testPropagatesError() {
+        HedgedSessionLookup hedged = new HedgedSessionLookup(clientSessionId -> {
+            throw new AssertionError("backend bug");
+        }, 0.95, 5, executor, System::nanoTime);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(AssertionError.class, () -> hedged.lookupAccountId("s")));
+    }
+
+}
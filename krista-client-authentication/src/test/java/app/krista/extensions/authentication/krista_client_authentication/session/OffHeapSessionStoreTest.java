@@ -0,0 +1,266 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OffHeapSessionStore.
+ */
+@DisplayName("Off-Heap Session Store Tests")
+class OffHeapSessionStoreTest {
+
+    private static final long FAR = TimeUnit.HOURS.toNanos(1);
+
+    private final SessionStore.Slot slot = new SessionStore.Slot();
+
+    @Test
+    @DisplayName("Should read back stored entries and forget removed ones")
+    void testPutReadRemove() {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(100);
+
+        // Act
+        store.put("session-1", "account-1", FAR, 42, 0);
+        store.put("session-2", "account-1", FAR, 7, 0);
+
+        // Assert
+        assertTrue(store.read("session-1", slot));
+        assertEquals("account-1", slot.getAccountId());
+        assertEquals(FAR, slot.getExpiresAt());
+        assertEquals(42, slot.deltaNanos);
+        assertFalse(store.read("session-3", slot));
+        assertEquals(2, store.size());
+        assertEquals(1, store.accountCount(), "Sessions of one account should share its interned id");
+
+        store.remove("session-1");
+        assertFalse(store.read("session-1", slot));
+        assertTrue(store.read("session-2", slot));
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.accountCount());
+    }
+
+    @Test
+    @DisplayName("Should keep every entry reachable across deletes in a crowded table")
+    void testBackwardShiftDelete() {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(12);
+        assertEquals(16, store.capacity());
+        for (int i = 0; i < 12; i++) {
+            store.put("session-" + i, "account-" + i, FAR, 0, 0);
+        }
+
+        // Act
+        for (int i = 0; i < 12; i += 2) {
+            store.remove("session-" + i);
+        }
+
+        // Assert
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i % 2 == 1, store.read("session-" + i, slot), "session-" + i);
+            if (i % 2 == 1) {
+                assertEquals("account-" + i, slot.getAccountId());
+            }
+        }
+        assertEquals(6, store.size());
+        assertEquals(6, store.accountCount());
+    }
+
+    @Test
+    @DisplayName("Should evict an expired entry before entries that were read")
+    void testClockEvictsExpired() {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(3);
+        store.put("expired", "account", 10, 0, 0);
+        store.put("hot-1", "account", FAR, 0, 0);
+        store.put("hot-2", "account", FAR, 0, 0);
+        store.read("hot-1", slot);
+        store.read("hot-2", slot);
+
+        // Act
+        store.put("new", "account", FAR, 0, 20);
+
+        // Assert
+        assertFalse(store.read("expired", slot));
+        assertTrue(store.read("hot-1", slot));
+        assertTrue(store.read("hot-2", slot));
+        assertTrue(store.read("new", slot));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    @DisplayName("Should not let one-hit sessions displace resident ones")
+    void testAdmissionKeepsResidents() {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(3);
+        store.put("hot", "account", FAR, 0, 0);
+        store.put("resident", "account", FAR, 0, 0);
+        store.put("first-scan", "account", FAR, 0, 0);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            assertTrue(store.read("hot", slot), "Round " + i);
+            store.put("scan-" + i, "account", FAR, 0, 0);
+        }
+
+        // Assert
+        assertTrue(store.read("hot", slot));
+        assertTrue(store.read("resident", slot), "A tie in frequency should keep the resident");
+        assertFalse(store.read("first-scan", slot));
+        assertFalse(store.read("scan-18", slot));
+        assertTrue(store.read("scan-19", slot), "The newest session should still be in the window");
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    @DisplayName("Should admit a newcomer that was looked up more often than the victim")
+    void testAdmissionPromotesFrequentNewcomer() {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(3);
+        store.put("resident-1", "account", FAR, 0, 0);
+        store.put("resident-2", "account", FAR, 0, 0);
+        store.put("newcomer", "account", FAR, 0, 0);
+        store.read("newcomer", slot);
+        store.read("newcomer", slot);
+
+        // Act
+        store.put("next", "account", FAR, 0, 0);
+
+        // Assert
+        assertTrue(store.read("newcomer", slot));
+        assertEquals(3, store.size());
+        assertFalse(store.read("resident-1", slot) && store.read("resident-2", slot),
+                "One of the residents should have made room");
+    }
+
+    @Test
+    @DisplayName("Should only replace or remove the version that was read")
+    void testConditionalWrites() {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(100);
+        store.put("session-1", "account-1", FAR, 0, 0);
+        assertTrue(store.read("session-1", slot));
+        SessionStore.Slot stale = slot.copy();
+
+        // Act
+        assertTrue(store.tryMarkRefreshing(slot));
+        assertFalse(store.tryMarkRefreshing(slot), "Only one refresh should run at a time");
+        assertTrue(store.replace("session-1", slot, "account-2", FAR, 0));
+
+        // Assert
+        assertFalse(store.replace("session-1", stale, "account-3", FAR, 0));
+        assertFalse(store.remove("session-1", stale));
+        assertTrue(store.read("session-1", slot));
+        assertEquals("account-2", slot.getAccountId());
+        assertTrue(store.tryMarkRefreshing(slot), "A replaced entry should be refreshable again");
+        assertTrue(store.remove("session-1", slot));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    @DisplayName("Should back a session cache")
+    void testSessionCacheBackend() {
+        // Arrange
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicLong clock = new AtomicLong();
+        List<Runnable> refreshes = new ArrayList<>();
+        SessionCache cache = new SessionCache(clientSessionId -> "account-" + lookups.incrementAndGet(), 1000, 1.0,
+                0.0, new OffHeapSessionStore(100), refreshes::add, clock::get, () -> 1e-9);
+
+        // Act
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        refreshes.forEach(Runnable::run);
+
+        // Assert
+        assertEquals(1, refreshes.size());
+        assertEquals("account-2", cache.lookupAccountId("session-1"));
+        cache.invalidate("session-1");
+        assertEquals("account-3", cache.lookupAccountId("session-1"));
+    }
+
+    @Test
+    @DisplayName("Should never return another session's account while writers churn the table")
+    void testConcurrentReadersSeeConsistentEntries() throws InterruptedException {
+        // Arrange
+        OffHeapSessionStore store = new OffHeapSessionStore(64);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                SessionStore.Slot mine = new SessionStore.Slot();
+                while (running.get()) {
+                    for (int i = 0; i < 96; i++) {
+                        if (store.read("session-" + i, mine) && !mine.getAccountId().equals("account-" + i % 5)) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+
+        // Act
+        for (int round = 0; round < 2_000; round++) {
+            for (int i = round % 3; i < 96; i += 3) {
+                if ((round + i) % 4 == 0) {
+                    store.remove("session-" + i);
+                } else {
+                    store.put("session-" + i, "account-" + i % 5, FAR, 0, 0);
+                }
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        // Assert
+        assertEquals(0, mismatches.get());
+        assertTrue(store.size() <= 64);
+    }
+
+    @Test
+    @DisplayName("Should key slots with SipHash-2-4-128 over the id's UTF-16LE bytes")
+    void testSipHashVectors() {
+        long k0 = 0x0706050403020100L;
+        long k1 = 0x0F0E0D0C0B0A0908L;
+
+        // Reference vector for the empty input with key 00..0f: a3817f04ba25a8e6 6df67214c7550293 (little-endian).
+        assertEquals(new OffHeapSessionStore.Key(-1826168168029126237L, -7853620486650792339L),
+                OffHeapSessionStore.sipHash128(k0, k1, ""));
+        assertEquals(new OffHeapSessionStore.Key(-7489090612866566515L, -3314053422904989205L),
+                OffHeapSessionStore.sipHash128(k0, k1, "abcd"));
+        assertEquals(new OffHeapSessionStore.Key(-5597875130250174222L, -831924923395958984L),
+                OffHeapSessionStore.sipHash128(k0, k1, "session-0123456789abcdef-\u00FF\u0100"));
+        assertNotEquals(OffHeapSessionStore.sipHash128(k0, k1, "abcd"),
+                OffHeapSessionStore.sipHash128(k0 + 1, k1, "abcd"), "A different key should change the hash");
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Replays synthetic session traces against the session stores and a plain LRU of the same capacity and prints their
+ * hit rates. Not run by the test suite.
+ * <p>
+ * Every trace draws sessions in steady use from a fixed population; the scan variants interleave bursts of unique
+ * ids that are looked up once, like bots probing with made-up cookies or stale tabs coming back. The "steady" column
+ * counts only the lookups of sessions in steady use, since one-hit ids can never hit.
+ */
+public final class SessionAdmissionTrace {
+
+    private static final int CAPACITY = 10_000;
+    private static final int REQUESTS = 2_000_000;
+    private static final String SCAN_PREFIX = "scan-";
+    private static final long FAR = TimeUnit.HOURS.toNanos(1);
+
+    private SessionAdmissionTrace() {
+    }
+
+    public static void main(String[] args) {
+        replayAll("zipf(0.9) over 200k sessions", trace(200_000, 0.9, 0, 0));
+        replayAll("zipf(0.9) over 200k sessions, 50k-id scan every 100k", trace(200_000, 0.9, 100_000, 50_000));
+        replayAll("uniform over 8k sessions, 30k-id scan every 50k", trace(8_000, 0.0, 50_000, 30_000));
+    }
+
+    private static void replayAll(String name, String[] trace) {
+        System.out.println(name);
+        replay("LRU", trace, SessionAdmissionTrace::lru);
+        replay("heap W-TinyLFU", trace, () -> store(new HeapSessionStore(CAPACITY)));
+        replay("off-heap W-TinyLFU", trace, () -> store(new OffHeapSessionStore(CAPACITY)));
+    }
+
+    private static void replay(String policy, String[] trace, Supplier<Predicate<String>> cacheFactory) {
+        Predicate<String> cache = cacheFactory.get();
+        long hits = 0;
+        long steadyHits = 0;
+        long steady = 0;
+        for (String clientSessionId : trace) {
+            boolean hit = cache.test(clientSessionId);
+            boolean scanned = clientSessionId.startsWith(SCAN_PREFIX);
+            hits += hit ? 1 : 0;
+            steady += scanned ? 0 : 1;
+            steadyHits += hit && !scanned ? 1 : 0;
+        }
+        System.out.printf("  %-20s overall %5.1f%%   steady %5.1f%%%n", policy, 100.0 * hits / trace.length,
+                100.0 * steadyHits / steady);
+    }
+
+    /**
+     * A cache that loads every miss, the way {@link SessionCache} does for sessions that resolve to an account.
+     */
+    private static Predicate<String> store(SessionStore store) {
+        SessionStore.Slot slot = new SessionStore.Slot();
+        return clientSessionId -> {
+            if (store.read(clientSessionId, slot)) {
+                return true;
+            }
+            store.put(clientSessionId, "account", FAR, 0, 0);
+            return false;
+        };
+    }
+
+    private static Predicate<String> lru() {
+        Map<String, String> lru = new LinkedHashMap<>(CAPACITY * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CAPACITY;
+            }
+        };
+        return clientSessionId -> {
+            if (lru.get(clientSessionId) != null) {
+                return true;
+            }
+            lru.put(clientSessionId, "account");
+            return false;
+        };
+    }
+
+    /**
+     * Draws {@link #REQUESTS} lookups from {@code population} sessions with Zipf exponent {@code skew}, inserting
+     * {@code scanLength} unique ids after every {@code scanEvery} of them.
+     */
+    private static String[] trace(int population, double skew, int scanEvery, int scanLength) {
+        String[] sessions = new String[population];
+        double[] cumulative = new double[population];
+        double total = 0;
+        for (int i = 0; i < population; i++) {
+            sessions[i] = "session-" + i;
+            total += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        String[] trace = new String[REQUESTS];
+        int scanned = 0;
+        for (int i = 0; i < REQUESTS; ) {
+            if (scanEvery > 0 && i > 0 && i % scanEvery == 0) {
+                for (int j = 0; j < scanLength && i < REQUESTS; j++) {
+                    trace[i++] = SCAN_PREFIX + scanned++;
+                }
+            }
+            if (i < REQUESTS) {
+                int rank = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                trace[i++] = sessions[rank < 0 ? -rank - 1 : rank];
+            }
+        }
+        return trace;
+    }
+
+}
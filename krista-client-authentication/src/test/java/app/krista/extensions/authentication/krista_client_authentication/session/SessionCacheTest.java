@@ -0,0 +1,282 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SessionCache.
+ */
+@DisplayName("Session Cache Tests")
+class SessionCacheTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Map<String, String> accounts = new ConcurrentHashMap<>(Map.of("session-1", "account-1"));
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final Executor queued = refreshes::add;
+
+    private final SessionLookup source = clientSessionId -> {
+        lookups.incrementAndGet();
+        return accounts.get(clientSessionId);
+    };
+
+    private SessionCache newCache(double randomSample) {
+        return new SessionCache(source, 1000, 1.0, 0.0, new HeapSessionStore(100), queued, clock::get,
+                () -> randomSample);
+    }
+
+    @Test
+    @DisplayName("Should serve hits from the cache until the entry expires")
+    void testCachesUntilExpiry() {
+        SessionCache cache = newCache(0.999999);
+
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        clock.addAndGet(500 * MILLI);
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        clock.addAndGet(500 * MILLI);
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+
+        assertEquals(2, lookups.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Should refresh ahead in the background while serving the current value")
+    void testRefreshAhead() {
+        // ln(0.1) * 50ms (5% of the TTL) is about -115ms, so hits in the last ~115ms trigger a refresh.
+        SessionCache cache = newCache(0.1);
+        cache.lookupAccountId("session-1");
+
+        clock.addAndGet(800 * MILLI);
+        cache.lookupAccountId("session-1");
+        assertTrue(refreshes.isEmpty(), "Far from expiry nothing should refresh");
+
+        clock.addAndGet(150 * MILLI);
+        accounts.put("session-1", "account-2");
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        assertEquals(1, refreshes.size(), "Only one refresh should be scheduled per entry");
+
+        refreshes.get(0).run();
+        assertEquals("account-2", cache.lookupAccountId("session-1"));
+        assertEquals(1, cache.getRefreshCount());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    @DisplayName("Should drop the entry when a refresh finds the session gone")
+    void testRefreshRemovesLoggedOutSession() {
+        SessionCache cache = newCache(0.0);
+        cache.lookupAccountId("session-1");
+        cache.lookupAccountId("session-1");
+        accounts.remove("session-1");
+
+        refreshes.get(0).run();
+
+        assertEquals(0, cache.size());
+        assertNull(cache.lookupAccountId("session-1"));
+    }
+
+    @Test
+    @DisplayName("Should report sessions a refresh finds gone to the revocation listener")
+    void testRefreshReportsRevokedSession() {
+        SessionCache cache = newCache(0.0);
+        List<String> revoked = new ArrayList<>();
+        cache.setRevocationListener(revoked::add);
+        cache.lookupAccountId("session-1");
+        cache.lookupAccountId("session-1");
+        accounts.remove("session-1");
+
+        refreshes.get(0).run();
+
+        assertEquals(List.of("session-1"), revoked);
+    }
+
+    @Test
+    @DisplayName("Should allow another refresh after a refresh throws an Error")
+    void testRefreshErrorClearsRefreshing() {
+        AtomicInteger calls = new AtomicInteger();
+        SessionCache cache = new SessionCache(clientSessionId -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new AssertionError("backend bug");
+            }
+            return "account-1";
+        }, 1000, 1.0, 0.0, new HeapSessionStore(100), queued, clock::get, () -> 0.0);
+        cache.lookupAccountId("session-1");
+        cache.lookupAccountId("session-1");
+
+        assertThrows(AssertionError.class, () -> refreshes.get(0).run());
+        cache.lookupAccountId("session-1");
+
+        assertEquals(2, refreshes.size(), "The failed refresh should not leave the entry marked as refreshing");
+        refreshes.get(1).run();
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown sessions")
+    void testDoesNotCacheMisses() {
+        SessionCache cache = newCache(0.5);
+
+        assertNull(cache.lookupAccountId("unknown"));
+        assertNull(cache.lookupAccountId("unknown"));
+
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    @DisplayName("Should forget invalidated sessions")
+    void testInvalidate() {
+        SessionCache cache = newCache(0.5);
+        cache.lookupAccountId("session-1");
+
+        cache.invalidate("session-1");
+        cache.lookupAccountId("session-1");
+
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    @DisplayName("Should spread expiry with jitter")
+    void testJitterShortensTtl() {
+        SessionCache cache = new SessionCache(source, 1000, 1.0, 0.5, new HeapSessionStore(100), queued, clock::get,
+                () -> 0.999999);
+        cache.lookupAccountId("session-1");
+
+        clock.addAndGet(600 * MILLI);
+        cache.lookupAccountId("session-1");
+
+        assertEquals(2, lookups.get(), "A jittered entry should expire after at most half the TTL");
+    }
+
+    @Test
+    @DisplayName("Should share one lookup between concurrent misses")
+    void testCoalescesConcurrentLoads() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowLookups = new AtomicInteger();
+        SessionCache cache = new SessionCache(clientSessionId -> {
+            slowLookups.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "account-1";
+        }, 1000, 1.0, 0.0, new HeapSessionStore(100), queued, System::nanoTime, () -> 0.5);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(Thread.ofVirtual().start(() -> assertEquals("account-1", cache.lookupAccountId("s"))));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, slowLookups.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache a load that was invalidated while it ran")
+    void testInvalidationDuringLoadWins() {
+        AtomicReference<SessionCache> self = new AtomicReference<>();
+        AtomicInteger calls = new AtomicInteger();
+        SessionLookup revokedMidway = clientSessionId -> {
+            if (calls.incrementAndGet() == 1) {
+                self.get().invalidate(clientSessionId);
+            } else if (calls.get() == 3) {
+                self.get().invalidateAll();
+            }
+            return "account-1";
+        };
+        SessionCache cache = new SessionCache(revokedMidway, 1000, 1.0, 0.0, new HeapSessionStore(100), queued,
+                clock::get, () -> 0.5);
+        self.set(cache);
+
+        assertEquals("account-1", cache.lookupAccountId("session-1"));
+        assertEquals(0, cache.size(), "An invalidation during the lookup should win");
+        cache.lookupAccountId("session-1");
+        assertEquals(1, cache.size());
+        cache.invalidate("session-1");
+        cache.lookupAccountId("session-1");
+
+        assertEquals(0, cache.size(), "A clear during the lookup should win");
+    }
+
+    @Test
+    @DisplayName("Should fail waiting callers when the lookup throws an Error")
+    void testErrorReachesCoalescedWaiters() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SessionCache cache = new SessionCache(clientSessionId -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("backend bug");
+        }, 1000, 1.0, 0.0, new HeapSessionStore(100), queued, System::nanoTime, () -> 0.5);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    cache.lookupAccountId("s");
+                } catch (Throwable failure) {
+                    failures.add(failure);
+                }
+            }));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        release.countDown();
+        for (Thread thread : threads) {
+            assertTrue(thread.join(Duration.ofSeconds(5)), "No caller should block forever");
+        }
+
+        assertEquals(3, failures.size());
+        assertTrue(failures.stream().allMatch(AssertionError.class::isInstance));
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Krista Client Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.authentication.krista_client_authentication.session;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap and off-heap session stores at a given number of live sessions. Not run by the test suite;
+ * run one backend per JVM so their footprints do not mix, for example:
+ * <pre>
+ * java -Xmx3g -XX:MaxDirectMemorySize=1g ... SessionStoreBenchmark offheap 10000000
+ * </pre>
+ * Reports the time to fill the store, the cost and allocation of a lookup beyond building its key, the heap that
+ * stays live and how long a full collection takes with the store populated.
+ */
+public final class SessionStoreBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int LOOKUPS = 20_000_000;
+
+    private SessionStoreBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        String backend = args.length > 0 ? args[0] : "heap";
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        String[] accounts = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = "account-" + i;
+        }
+        long baseline = liveHeap();
+
+        long start = System.nanoTime();
+        SessionStore store = "offheap".equals(backend)
+                ? new OffHeapSessionStore(entries)
+                : new HeapSessionStore(entries);
+        long expiresAt = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+        for (int i = 0; i < entries; i++) {
+            store.put(id(i), accounts[i % ACCOUNTS], expiresAt, 1_000, 0);
+        }
+        long fillMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        SessionStore.Slot slot = new SessionStore.Slot();
+        SplittableRandom random = new SplittableRandom(42);
+        long hits = lookups(store, entries, slot, random, LOOKUPS / 4);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        long lengths = lookups(null, entries, slot, random, LOOKUPS);
+        long keyNanos = System.nanoTime() - start;
+        long keyAllocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        long gcBefore = collectionMillis();
+        allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        hits += lookups(store, entries, slot, random, LOOKUPS);
+        long lookupNanos = System.nanoTime() - start - keyNanos;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore - keyAllocated;
+        long gcDuringLookups = collectionMillis() - gcBefore;
+
+        long live = liveHeap() - baseline;
+        start = System.nanoTime();
+        System.gc();
+        long fullGcMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.printf("backend=%s entries=%d size=%d hits=%d (%d)%n", backend, entries, store.size(), hits,
+                lengths);
+        System.out.printf("  fill: %d ms%n", fillMillis);
+        System.out.printf("  lookups: %.1f ns/op, %.2f bytes allocated/op, %d ms in GC%n",
+                (double) lookupNanos / LOOKUPS, Math.max(0.0, (double) allocated / LOOKUPS), gcDuringLookups);
+        System.out.printf("  live heap held by the store: %d MB%n", live >> 20);
+        System.out.printf("  full GC with store populated: %d ms%n", fullGcMillis);
+    }
+
+    /**
+     * Requests carry a freshly parsed session id, so every lookup builds its key anew and pays for hashing it. With a
+     * {@code null} store this measures just building the keys, which is subtracted from the reported lookup cost.
+     */
+    private static long lookups(SessionStore store, int entries, SessionStore.Slot slot, SplittableRandom random,
+            int count) {
+        long hits = 0;
+        for (int i = 0; i < count; i++) {
+            String clientSessionId = id(random.nextInt(entries));
+            if (store == null) {
+                hits += clientSessionId.length();
+            } else if (store.read(clientSessionId, slot)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static String id(int i) {
+        return "session-" + Long.toHexString(0x5DEECE66DL * (i + 1)) + "-" + i;
+    }
+
+    private static long liveHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+}